@@ -0,0 +1,89 @@
+package com.blueskykong.tm.benchmarks;
+
+import com.blueskykong.tm.common.netty.MessageCodecService;
+import com.blueskykong.tm.common.netty.compress.FrameCompressor;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FrameCompressor} 压缩、解压一个编码后的帧的耗时，压缩率在setup时输出
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameCompressorBenchmark {
+
+    @Param({"kryo", "compact"})
+    private String codec;
+
+    @Param({"10", "50"})
+    private int msgs;
+
+    private EmbeddedChannel channel;
+
+    private ByteBuf plain;
+
+    private ByteBuf out;
+
+    private ByteBuf compressed;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        channel = new EmbeddedChannel();
+        FrameCompressor.enable(channel, 0);
+        plain = PooledByteBufAllocator.DEFAULT.directBuffer(64 * 1024);
+        out = PooledByteBufAllocator.DEFAULT.directBuffer(64 * 1024);
+        MessageCodecBenchmark.codecOf(codec).encode(plain, Payloads.createGroup(msgs));
+        compressed = plain.copy();
+        FrameCompressor.compress(channel, compressed, 0);
+        compressed.skipBytes(MessageCodecService.MESSAGE_LENGTH);
+        System.out.println(codec + " frame with " + msgs + " msgs: " + plain.readableBytes()
+                + " -> " + (compressed.readableBytes() + MessageCodecService.MESSAGE_LENGTH) + " bytes");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        plain.release();
+        out.release();
+        compressed.release();
+        channel.finish();
+    }
+
+    @Benchmark
+    public int compress() {
+        out.clear();
+        out.writeBytes(plain, plain.readerIndex(), plain.readableBytes());
+        FrameCompressor.compress(channel, out, 0);
+        return out.writerIndex();
+    }
+
+    @Benchmark
+    public int decompress() {
+        final ByteBuf raw = FrameCompressor.decompress(PooledByteBufAllocator.DEFAULT, compressed.duplicate(), Integer.MAX_VALUE);
+        try {
+            return raw.readableBytes();
+        } finally {
+            raw.release();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.blueskykong.tm.benchmarks;
+
+import com.blueskykong.tm.common.holder.IdWorkerUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link IdWorkerUtils} 单线程和多线程竞争下的吞吐，每毫秒最多4096个id，超过后借用下一毫秒
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdWorkerBenchmark {
+
+    private final IdWorkerUtils idWorker = IdWorkerUtils.getInstance();
+
+    @Benchmark
+    @Threads(1)
+    public long nextIdSingleThread() {
+        return idWorker.nextId();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long nextIdContended() {
+        return idWorker.nextId();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String createGroupIdContended() {
+        return idWorker.createGroupId();
+    }
+}
@@ -0,0 +1,81 @@
+package com.blueskykong.tm.benchmarks;
+
+import com.blueskykong.tm.common.netty.MessageCodecService;
+import com.blueskykong.tm.common.netty.bean.LottorRequest;
+import com.blueskykong.tm.common.netty.serizlize.kryo.KryoCodecServiceImpl;
+import com.blueskykong.tm.common.netty.serizlize.kryo.KryoPoolFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 旧版本的Kryo格式（只注册LottorRequest）与完整注册表的对比：每秒编解码次数，每帧字节数在setup时输出
+ * 运行：java -jar lottor-benchmarks/target/benchmarks.jar KryoRegistryBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KryoRegistryBenchmark {
+
+    @Param({"legacy", "registry"})
+    private String layout;
+
+    @Param({"1", "10", "50"})
+    private int msgs;
+
+    private MessageCodecService codecService;
+
+    private LottorRequest request;
+
+    private ByteBuf out;
+
+    private ByteBuf frame;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        codecService = new KryoCodecServiceImpl("registry".equals(layout)
+                ? KryoPoolFactory.getRegistryPoolInstance() : KryoPoolFactory.getKryoPoolInstance());
+        request = Payloads.createGroup(msgs);
+        out = PooledByteBufAllocator.DEFAULT.directBuffer(64 * 1024);
+        frame = PooledByteBufAllocator.DEFAULT.directBuffer(64 * 1024);
+        codecService.encode(frame, request);
+        System.out.println(layout + " kryo frame bytes with " + msgs + " msgs: " + frame.readableBytes());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        out.release();
+        frame.release();
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        out.clear();
+        codecService.encode(out, request);
+        return out.writerIndex();
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return codecService.decode(frame.slice(MessageCodecService.MESSAGE_LENGTH,
+                frame.readableBytes() - MessageCodecService.MESSAGE_LENGTH));
+    }
+}
@@ -0,0 +1,96 @@
+package com.blueskykong.tm.benchmarks;
+
+import com.blueskykong.tm.common.netty.MessageCodecService;
+import com.blueskykong.tm.common.netty.bean.LottorRequest;
+import com.blueskykong.tm.common.netty.serizlize.compact.CompactCodecServiceImpl;
+import com.blueskykong.tm.common.netty.serizlize.hessian.HessianCodecServiceImpl;
+import com.blueskykong.tm.common.netty.serizlize.kryo.KryoCodecServiceImpl;
+import com.blueskykong.tm.common.netty.serizlize.kryo.KryoPoolFactory;
+import com.blueskykong.tm.common.netty.serizlize.protostuff.ProtostuffCodecServiceImpl;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 所有 {@link MessageCodecService} 的编解码耗时，帧大小在setup时输出
+ * 运行：java -jar lottor-benchmarks/target/benchmarks.jar MessageCodecBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCodecBenchmark {
+
+    @Param({"kryo", "hessian", "protostuff", "compact"})
+    private String codec;
+
+    @Param({"1", "10", "50"})
+    private int msgs;
+
+    private MessageCodecService codecService;
+
+    private LottorRequest request;
+
+    private ByteBuf out;
+
+    private ByteBuf frame;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        codecService = codecOf(codec);
+        request = Payloads.createGroup(msgs);
+        out = PooledByteBufAllocator.DEFAULT.directBuffer(64 * 1024);
+        frame = PooledByteBufAllocator.DEFAULT.directBuffer(64 * 1024);
+        codecService.encode(frame, request);
+        System.out.println(codec + " frame bytes with " + msgs + " msgs: " + frame.readableBytes());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        out.release();
+        frame.release();
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        out.clear();
+        codecService.encode(out, request);
+        return out.writerIndex();
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return codecService.decode(frame.slice(MessageCodecService.MESSAGE_LENGTH,
+                frame.readableBytes() - MessageCodecService.MESSAGE_LENGTH));
+    }
+
+    static MessageCodecService codecOf(String codec) {
+        switch (codec) {
+            case "hessian":
+                return new HessianCodecServiceImpl();
+            case "protostuff":
+                return new ProtostuffCodecServiceImpl();
+            case "compact":
+                return new CompactCodecServiceImpl();
+            default:
+                return new KryoCodecServiceImpl(KryoPoolFactory.getKryoPoolInstance());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.blueskykong.tm.benchmarks;
+
+import com.blueskykong.tm.common.exception.TransactionException;
+import com.blueskykong.tm.common.netty.bean.LottorRequest;
+import com.blueskykong.tm.common.serializer.HessianSerializer;
+import com.blueskykong.tm.common.serializer.JavaSerializer;
+import com.blueskykong.tm.common.serializer.KryoSerializer;
+import com.blueskykong.tm.common.serializer.ObjectSerializer;
+import com.blueskykong.tm.common.serializer.ProtostuffSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 补偿记录使用的 {@link ObjectSerializer} 序列化、反序列化耗时
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectSerializerBenchmark {
+
+    @Param({"kryo", "hessian", "protostuff", "java"})
+    private String serializer;
+
+    @Param({"1", "10", "50"})
+    private int msgs;
+
+    private ObjectSerializer objectSerializer;
+
+    private LottorRequest request;
+
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setup() throws TransactionException {
+        objectSerializer = serializerOf(serializer);
+        request = Payloads.createGroup(msgs);
+        bytes = objectSerializer.serialize(request);
+        System.out.println(serializer + " bytes with " + msgs + " msgs: " + bytes.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws TransactionException {
+        return objectSerializer.serialize(request);
+    }
+
+    @Benchmark
+    public LottorRequest deserialize() throws TransactionException {
+        return objectSerializer.deSerialize(bytes, LottorRequest.class);
+    }
+
+    private static ObjectSerializer serializerOf(String serializer) {
+        switch (serializer) {
+            case "hessian":
+                return new HessianSerializer();
+            case "protostuff":
+                return new ProtostuffSerializer();
+            case "java":
+                return new JavaSerializer();
+            default:
+                return new KryoSerializer();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.blueskykong.tm.benchmarks;
+
+import com.blueskykong.tm.common.entity.TransactionMsgAdapter;
+import com.blueskykong.tm.common.enums.NettyMessageActionEnum;
+import com.blueskykong.tm.common.enums.TransactionStatusEnum;
+import com.blueskykong.tm.common.holder.IdWorkerUtils;
+import com.blueskykong.tm.common.netty.bean.LottorRequest;
+import com.blueskykong.tm.common.netty.bean.TxTransactionGroup;
+import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 压测用的消息，结构与客户端创建事务组时发送的消息一致
+ */
+final class Payloads {
+
+    private static final String ARGS = "{\"userId\":10086,\"orderId\":\"O2018042700001\",\"amount\":\"199.00\",\"remark\":\"benchmark\"}";
+
+    private Payloads() {
+
+    }
+
+    /**
+     * @param msgs 事务包含的消息数
+     * @return CREATE_GROUP请求
+     */
+    static LottorRequest createGroup(int msgs) {
+        final String groupId = IdWorkerUtils.getInstance().createGroupId();
+
+        final TxTransactionItem item = new TxTransactionItem();
+        item.setTaskKey(groupId);
+        item.setStatus(TransactionStatusEnum.BEGIN.getCode());
+        item.setModelName("lottor-benchmark-service");
+        item.setTmDomain("127.0.0.1:9998");
+        item.setTxGroupId(groupId);
+        item.setCreateDate("2018-04-27 12:00:00");
+        item.setWaitMaxTime(60);
+        item.setMsgs(msgs(groupId, msgs));
+
+        final TxTransactionGroup group = new TxTransactionGroup();
+        group.setId(groupId);
+        group.setWaitTime(60);
+        group.setSource("lottor-benchmark-service");
+        group.setStatus(TransactionStatusEnum.BEGIN.getCode());
+        group.setItem(item);
+
+        final LottorRequest request = new LottorRequest();
+        request.setAction(NettyMessageActionEnum.CREATE_GROUP.getCode());
+        request.setKey(String.valueOf(IdWorkerUtils.getInstance().nextId()));
+        request.setTxTransactionGroup(group);
+        return request;
+    }
+
+    private static List<TransactionMsgAdapter> msgs(String groupId, int count) {
+        final List<TransactionMsgAdapter> msgs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final TransactionMsgAdapter msg = new TransactionMsgAdapter();
+            msg.setGroupId(groupId);
+            msg.setSubTaskId(IdWorkerUtils.getInstance().createTaskKey());
+            msg.setSource("lottor-benchmark-service");
+            msg.setTarget("lottor-benchmark-target-" + (i % 4));
+            msg.setMethod("createOrder");
+            msg.setArgs(ARGS.getBytes(StandardCharsets.UTF_8));
+            msg.setArgsType("java.util.HashMap");
+            msgs.add(msg);
+        }
+        return msgs;
+    }
+}
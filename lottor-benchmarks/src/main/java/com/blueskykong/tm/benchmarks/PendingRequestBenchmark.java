@@ -0,0 +1,69 @@
+package com.blueskykong.tm.benchmarks;
+
+import com.blueskykong.tm.common.concurrent.task.PendingRequestHelper;
+import com.blueskykong.tm.common.holder.IdWorkerUtils;
+import com.blueskykong.tm.common.netty.bean.LottorRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PendingRequestHelper} 注册、唤醒、移除的耗时，多个业务线程同时发送请求
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class PendingRequestBenchmark {
+
+    private static final long TIMEOUT_MILLIS = 30_000;
+
+    private final PendingRequestHelper helper = PendingRequestHelper.getInstance();
+
+    private final LottorRequest reply = new LottorRequest();
+
+    /**
+     * 正常的请求：注册后收到响应唤醒
+     */
+    @Benchmark
+    public LottorRequest registerAndComplete() {
+        final long key = IdWorkerUtils.getInstance().nextId();
+        final CompletableFuture<LottorRequest> future = helper.register(key, TIMEOUT_MILLIS);
+        helper.complete(key, reply);
+        return future.getNow(null);
+    }
+
+    /**
+     * 调用方放弃等待：注册后直接移除
+     */
+    @Benchmark
+    public int registerAndRemove() {
+        final long key = IdWorkerUtils.getInstance().nextId();
+        helper.register(key, TIMEOUT_MILLIS);
+        helper.removeByKey(key);
+        return helper.size();
+    }
+
+    /**
+     * 响应使用字符串key，与netty io线程的处理一致
+     */
+    @Benchmark
+    public boolean completeByStringKey() {
+        final long key = IdWorkerUtils.getInstance().nextId();
+        helper.register(key, TIMEOUT_MILLIS);
+        return helper.complete(String.valueOf(key), reply);
+    }
+}
@@ -0,0 +1,153 @@
+package com.blueskykong.tm.benchmarks;
+
+import com.blueskykong.tm.common.enums.NettyMessageActionEnum;
+import com.blueskykong.tm.common.enums.NettyResultEnum;
+import com.blueskykong.tm.common.enums.SerializeProtocolEnum;
+import com.blueskykong.tm.common.enums.TransportTypeEnum;
+import com.blueskykong.tm.common.netty.NettyPipelineInit;
+import com.blueskykong.tm.common.netty.NettyTransport;
+import com.blueskykong.tm.common.netty.bean.LottorRequest;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本机回环上一问一答的延迟，比较不同的传输层，socket参数与客户端、TxManager一致
+ * 不可用的传输层按照 {@link NettyTransport} 的规则降级，setup时输出实际使用的传输层
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransportBenchmark {
+
+    @Param({"nio", "epoll", "io_uring"})
+    private String transport;
+
+    @Param({"kryo", "compact"})
+    private String codec;
+
+    private EventLoopGroup bossGroup;
+
+    private EventLoopGroup workerGroup;
+
+    private EventLoopGroup clientGroup;
+
+    private Channel client;
+
+    private final ReplyHandler replyHandler = new ReplyHandler();
+
+    private LottorRequest request;
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        final NettyTransport nettyTransport = NettyTransport.of(TransportTypeEnum.fromString(transport));
+        System.out.println("requested transport: " + transport + ", actual: " + nettyTransport);
+        final SerializeProtocolEnum protocol = SerializeProtocolEnum.acquireSerializeProtocol(codec);
+        request = Payloads.createGroup(1);
+
+        bossGroup = nettyTransport.newEventLoopGroup(1);
+        workerGroup = nettyTransport.newEventLoopGroup(1);
+        final ServerBootstrap server = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(nettyTransport.serverChannelClass())
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        NettyPipelineInit.serializePipeline(protocol, ch.pipeline());
+                        ch.pipeline().addLast(new EchoHandler());
+                    }
+                });
+        nettyTransport.serverOptions(server, false);
+        final Channel serverChannel = server.bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+
+        clientGroup = nettyTransport.newEventLoopGroup(1);
+        final Bootstrap bootstrap = new Bootstrap()
+                .group(clientGroup)
+                .channel(nettyTransport.socketChannelClass())
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        NettyPipelineInit.serializePipeline(protocol, ch.pipeline());
+                        ch.pipeline().addLast(replyHandler);
+                    }
+                });
+        nettyTransport.clientOptions(bootstrap);
+        client = bootstrap.connect(serverChannel.localAddress()).sync().channel();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        client.close().sync();
+        clientGroup.shutdownGracefully().sync();
+        bossGroup.shutdownGracefully().sync();
+        workerGroup.shutdownGracefully().sync();
+    }
+
+    @Benchmark
+    public LottorRequest roundTrip() throws Exception {
+        final CompletableFuture<LottorRequest> reply = new CompletableFuture<>();
+        replyHandler.pending = reply;
+        client.writeAndFlush(request);
+        return reply.get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 与TxManager一样，对每个请求回复一个RECEIVE
+     */
+    private static final class EchoHandler extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            final LottorRequest reply = new LottorRequest();
+            reply.setKey(((LottorRequest) msg).getKey());
+            reply.setAction(NettyMessageActionEnum.RECEIVE.getCode());
+            reply.setResult(NettyResultEnum.SUCCESS.getCode());
+            ctx.writeAndFlush(reply);
+        }
+    }
+
+    @ChannelHandler.Sharable
+    private static final class ReplyHandler extends ChannelInboundHandlerAdapter {
+
+        private volatile CompletableFuture<LottorRequest> pending;
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            final CompletableFuture<LottorRequest> current = pending;
+            if (current != null) {
+                current.complete((LottorRequest) msg);
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.blueskykong.tm.common.concurrent.task;
+
+import com.blueskykong.tm.common.concurrent.threadpool.TxTransactionThreadFactory;
+import com.blueskykong.tm.common.netty.bean.LottorRequest;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 等待TxManager响应的请求表，key为请求的唯一标示
+ * 由netty io线程直接complete，调用方在future上等待结果
+ * 超时由共享的时间轮统一处理，超时的请求以null响应唤醒
+ */
+public class PendingRequestHelper {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * 时间轮每一格的时长，单位：ms
+     */
+    private static final long TICK_DURATION = 50;
+
+    private static final int TICKS_PER_WHEEL = 512;
+
+    private static final PendingRequestHelper PENDING_REQUEST_HELPER = new PendingRequestHelper();
+
+    private final ConcurrentMap<Long, PendingFuture> pending = new ConcurrentHashMap<>(INITIAL_CAPACITY);
+
+    private final HashedWheelTimer timer = new HashedWheelTimer(
+            TxTransactionThreadFactory.create("PendingRequestTimer", true),
+            TICK_DURATION, TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
+
+    /**
+     * 超时未响应的请求数
+     */
+    private final LongAdder expiredCount = new LongAdder();
+
+    /**
+     * 超时之后才到达（或者没有对应请求）的响应数
+     */
+    private final LongAdder lateResponseCount = new LongAdder();
+
+    private PendingRequestHelper() {
+
+    }
+
+    public static PendingRequestHelper getInstance() {
+        return PENDING_REQUEST_HELPER;
+    }
+
+    /**
+     * 注册一个等待响应的请求，先设置超时再放入请求表，响应到达时一定能取消超时
+     *
+     * @param key           请求的唯一标示
+     * @param timeoutMillis 等待响应的超时时间，单位：ms
+     * @return 等待响应的future
+     */
+    public CompletableFuture<LottorRequest> register(long key, long timeoutMillis) {
+        final PendingFuture future = new PendingFuture();
+        future.timeout = timer.newTimeout(timeout -> expire(key, future), timeoutMillis, TimeUnit.MILLISECONDS);
+        final PendingFuture previous = pending.putIfAbsent(key, future);
+        if (Objects.nonNull(previous)) {
+            future.cancelTimeout();
+            return previous;
+        }
+        //放入请求表之前已经超时，expire没有找到请求
+        if (future.timeout.isExpired()) {
+            expire(key, future);
+        }
+        return future;
+    }
+
+    /**
+     * 收到响应，唤醒等待的请求
+     *
+     * @param key   请求的唯一标示
+     * @param reply 响应信息，null表示放弃等待
+     * @return true 存在等待的请求
+     */
+    public boolean complete(long key, LottorRequest reply) {
+        final PendingFuture future = pending.remove(key);
+        if (Objects.isNull(future)) {
+            if (Objects.nonNull(reply)) {
+                lateResponseCount.increment();
+            }
+            return false;
+        }
+        future.cancelTimeout();
+        return future.complete(reply);
+    }
+
+    public boolean complete(String key, LottorRequest reply) {
+        final long pendingKey = parseKey(key);
+        return pendingKey >= 0 && complete(pendingKey, reply);
+    }
+
+    public void removeByKey(long key) {
+        final PendingFuture future = pending.remove(key);
+        if (Objects.nonNull(future)) {
+            future.cancelTimeout();
+        }
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.sum();
+    }
+
+    public long getLateResponseCount() {
+        return lateResponseCount.sum();
+    }
+
+    private void expire(long key, PendingFuture future) {
+        if (pending.remove(key, future)) {
+            expiredCount.increment();
+            future.complete(null);
+        }
+    }
+
+    /**
+     * 解析请求的key，非数字的key返回-1
+     *
+     * @param key 请求的唯一标示
+     * @return long key
+     */
+    public static long parseKey(String key) {
+        if (StringUtils.isNumeric(key)) {
+            try {
+                return Long.parseLong(key);
+            } catch (NumberFormatException e) {
+                return -1L;
+            }
+        }
+        return -1L;
+    }
+
+    private static final class PendingFuture extends CompletableFuture<LottorRequest> {
+
+        private volatile Timeout timeout;
+
+        private void cancelTimeout() {
+            final Timeout current = timeout;
+            if (Objects.nonNull(current)) {
+                current.cancel();
+            }
+        }
+    }
+}
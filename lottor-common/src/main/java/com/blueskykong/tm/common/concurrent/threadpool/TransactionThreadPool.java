@@ -35,6 +35,7 @@ public class TransactionThreadPool {
     private static final Logger LOGGER = LoggerFactory.getLogger(TransactionThreadPool.class);
 
     private static final String THREAD_FACTORY_NAME = "txTransaction";
+    private static final String COMPENSATION_THREAD_NAME = "txCompensation";
     private static final int MAX_ARRAY_QUEUE = 1000;
 
     private TxConfig txConfig;
@@ -43,6 +44,8 @@ public class TransactionThreadPool {
 
     private ExecutorService fixExecutorService;
 
+    private ExecutorService compensationExecutorService;
+
     private static final ScheduledExecutorService SCHEDULED_EXECUTOR_SERVICE =
             new ScheduledThreadPoolExecutor(1,
                     TxTransactionThreadFactory.create(THREAD_FACTORY_NAME, false));
@@ -57,6 +60,9 @@ public class TransactionThreadPool {
                 createBlockingQueue(),
                 TxTransactionThreadFactory.create(THREAD_FACTORY_NAME, false), createPolicy());
 
+        compensationExecutorService = new ThreadPoolExecutor(txConfig.getCompensationThreadMax(), txConfig.getCompensationThreadMax(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(txConfig.getCompensationQueueMax()),
+                TxTransactionThreadFactory.create(COMPENSATION_THREAD_NAME, true), new AbortPolicy(COMPENSATION_THREAD_NAME));
     }
 
 
@@ -116,6 +122,13 @@ public class TransactionThreadPool {
                 TxTransactionThreadFactory.create(THREAD_FACTORY_NAME, false), createPolicy());
     }
 
+    /**
+     * 异步事务处理中执行本地补偿记录等阻塞操作的线程池，队列有界，队列满时拒绝
+     */
+    public ExecutorService getCompensationExecutor() {
+        return compensationExecutorService;
+    }
+
     public ScheduledExecutorService newSingleThreadScheduledExecutor() {
         return SCHEDULED_EXECUTOR_SERVICE;
     }
@@ -15,6 +15,24 @@ public class TxConfig {
 
     private int delayTime = 30;
 
+    /**
+     * 创建事务组、添加事务等待TxManager响应的超时时间
+     * 单位：ms，小于等于0时使用delayTime
+     */
+    private int createTimeout = 0;
+
+    /**
+     * 提交、回滚等待TxManager响应的超时时间
+     * 单位：ms，小于等于0时使用delayTime
+     */
+    private int commitTimeout = 0;
+
+    /**
+     * 查询事务组状态、信息等待TxManager响应的超时时间
+     * 单位：ms，小于等于0时使用delayTime
+     */
+    private int queryTimeout = 0;
+
 
     private int transactionThreadMax = Runtime.getRuntime().availableProcessors() << 1;
 
@@ -23,6 +41,71 @@ public class TxConfig {
 
     private int heartTime = 10;
 
+    /**
+     * 与每个TxManager建立的长连接数
+     */
+    private int channelPoolSize = 1;
+
+    /**
+     * 连接选择策略 leastPending 或 roundRobin
+     */
+    private String channelSelectType = "leastPending";
+
+    /**
+     * 是否合并flush
+     */
+    private boolean flushConsolidation = true;
+
+    /**
+     * 累计多少次flush后强制flush
+     */
+    private int explicitFlushAfterFlushes = 256;
+
+    /**
+     * 业务线程发送的消息是否合并到下一次事件循环flush
+     */
+    private boolean writeBatching = false;
+
+    /**
+     * 是否压缩大消息，需要TxManager同样开启
+     */
+    private boolean compress = false;
+
+    /**
+     * 消息体超过该大小时压缩
+     * 单位：byte
+     */
+    private int compressThreshold = 4096;
+
+    /**
+     * 建立连接时是否先发送握手帧声明序列化方式，由TxManager按连接选择编解码器
+     * 需要所有TxManager都支持握手后再开启
+     */
+    private boolean codecHandshake = false;
+
+    /**
+     * 批量发送的等待时间，该时间内发往同一连接的请求合并为一个批量帧，小于等于0时不合并
+     * 需要TxManager支持批量帧
+     * 单位：ms
+     */
+    private int batchLinger = 0;
+
+    /**
+     * 一个批量帧最多包含的请求数
+     */
+    private int batchMaxSize = 64;
+
+    /**
+     * 最大帧长度，超过时断开连接
+     * 单位：byte
+     */
+    private int maxFrameLength = 8 * 1024 * 1024;
+
+    /**
+     * 发送的LottorRequest、TxTransactionGroup、TxTransactionItem是否使用对象池，写出编码后回收
+     */
+    private boolean recycle = false;
+
 
     private String rejectPolicy = "Abort";
 
@@ -46,24 +129,59 @@ public class TxConfig {
     private int refreshInterval = 60;
 
 
+    /**
+     * 连续重连失败达到该次数时告警，之后按照最大退避时间继续重连
+     */
     private int retryMax = 5;
 
     /**
-     * 客户端失联，重试间隔
+     * 客户端失联，重试间隔的上限，重连按照指数退避增长到该值
      * 单位：s
      */
     private int retryInterval = 6;
 
+    /**
+     * 重连的初始退避时间
+     * 单位：ms
+     */
+    private int retryBackoffMin = 100;
+
+    /**
+     * 业务线程等待TxManager连接可用的最长时间
+     * 单位：ms
+     */
+    private int readyTimeout = 2000;
+
 
     private int recoverDelayTime = 60;
 
 
     private String txManagerId = "lotor";
 
+    /**
+     * id生成器的workerId，取值0~1023，小于0时根据服务发现的instance-id计算
+     * 同一TxManager集群内的实例必须不同，与在线实例冲突时TxManager拒绝注册
+     */
+    private int workerId = -1;
+
     private TxMongoConfig txMongoConfig;
 
     private TxRedisConfig txRedisConfig;
 
+    /**
+     * 传输层 nio epoll io_uring，不可用时依次降级
+     */
+    private String transport = "nio";
+
+    /**
+     * 建立连接的超时时间
+     * 单位：ms
+     */
+    private int connectTimeout = 3000;
+
+    /**
+     * 兼容旧配置，等同于 transport=epoll
+     */
     private boolean onEpoll = false;
 
 }
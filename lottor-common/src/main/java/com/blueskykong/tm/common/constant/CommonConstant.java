@@ -37,5 +37,7 @@ public interface CommonConstant {
 
     String FIND_SERVER = "/findTxManagerServer";
 
+    String FIND_LOCAL_SERVER = "/findLocalServer";
+
     int HEAD_DATA = 0X76;
 }
@@ -9,5 +9,10 @@ public class TxManagerServer {
 
     private Integer port;
 
+    /**
+     * TxManager的Kryo注册表指纹，用于检查与客户端是否一致
+     */
+    private String kryoRegistration;
+
 
 }
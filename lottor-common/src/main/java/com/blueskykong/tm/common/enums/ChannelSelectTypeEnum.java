@@ -0,0 +1,54 @@
+package com.blueskykong.tm.common.enums;
+
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+
+
+public enum ChannelSelectTypeEnum {
+
+    /**
+     * Select the healthy channel with the fewest in-flight requests.
+     */
+    LEAST_PENDING("leastPending"),
+
+    /**
+     * Select healthy channels in turn.
+     */
+    ROUND_ROBIN("roundRobin");
+
+    private String value;
+
+    ChannelSelectTypeEnum(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Gets value.
+     *
+     * @return the value
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * From string channel select type enum.
+     *
+     * @param value the value
+     * @return the channel select type enum
+     */
+    public static ChannelSelectTypeEnum fromString(String value) {
+        Optional<ChannelSelectTypeEnum> channelSelectTypeEnum =
+                Arrays.stream(ChannelSelectTypeEnum.values())
+                        .filter(v -> Objects.equals(v.getValue(), value))
+                        .findFirst();
+        return channelSelectTypeEnum.orElse(ChannelSelectTypeEnum.LEAST_PENDING);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -9,29 +9,51 @@ public enum SerializeProtocolEnum {
     /**
      * Jdk serialize protocol enum.
      */
-    JDK("jdk"),
+    JDK(0, "jdk"),
 
     /**
      * Kryo serialize protocol enum.
      */
-    KRYO("kryo"),
+    KRYO(1, "kryo"),
 
     /**
      * Hessian serialize protocol enum.
      */
-    HESSIAN("hessian"),
+    HESSIAN(2, "hessian"),
 
     /**
      * Protostuff serialize protocol enum.
      */
-    PROTOSTUFF("protostuff");
+    PROTOSTUFF(3, "protostuff"),
+
+    /**
+     * Hand-written compact binary protocol for LottorRequest.
+     */
+    COMPACT(4, "compact");
+
+    private int codecId;
 
     private String serializeProtocol;
 
-    SerializeProtocolEnum(String serializeProtocol) {
+    SerializeProtocolEnum(int codecId, String serializeProtocol) {
+        this.codecId = codecId;
         this.serializeProtocol = serializeProtocol;
     }
 
+    /**
+     * Acquire serialize protocol by the codec id carried in the handshake frame.
+     *
+     * @param codecId the codec id
+     * @return the serialize protocol enum, or null if the id is unknown
+     */
+    public static SerializeProtocolEnum acquireByCodecId(int codecId) {
+        Optional<SerializeProtocolEnum> serializeProtocolEnum =
+                Arrays.stream(SerializeProtocolEnum.values())
+                        .filter(v -> v.getCodecId() == codecId)
+                        .findFirst();
+        return serializeProtocolEnum.orElse(null);
+    }
+
     /**
      * Acquire serialize protocol serialize protocol enum.
      *
@@ -48,6 +70,15 @@ public enum SerializeProtocolEnum {
 
     }
 
+    /**
+     * Gets codec id.
+     *
+     * @return the codec id
+     */
+    public int getCodecId() {
+        return codecId;
+    }
+
     /**
      * Gets serialize protocol.
      *
@@ -0,0 +1,59 @@
+package com.blueskykong.tm.common.enums;
+
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+
+
+public enum SlowConsumerPolicyEnum {
+
+    /**
+     * Stop reading from the client until its channel is writable again.
+     */
+    PAUSE("pause"),
+
+    /**
+     * Pause reading and drop messages written while the channel is unwritable.
+     */
+    SHED("shed"),
+
+    /**
+     * Pause reading and close the channel once it stays unwritable past the timeout.
+     */
+    DISCONNECT("disconnect");
+
+    private String value;
+
+    SlowConsumerPolicyEnum(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Gets value.
+     *
+     * @return the value
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * From string slow consumer policy enum.
+     *
+     * @param value the value
+     * @return the slow consumer policy enum
+     */
+    public static SlowConsumerPolicyEnum fromString(String value) {
+        Optional<SlowConsumerPolicyEnum> slowConsumerPolicyEnum =
+                Arrays.stream(SlowConsumerPolicyEnum.values())
+                        .filter(v -> Objects.equals(v.getValue(), value))
+                        .findFirst();
+        return slowConsumerPolicyEnum.orElse(SlowConsumerPolicyEnum.PAUSE);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -0,0 +1,59 @@
+package com.blueskykong.tm.common.enums;
+
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+
+
+public enum TransportTypeEnum {
+
+    /**
+     * JDK NIO selector transport, available on every platform.
+     */
+    NIO("nio"),
+
+    /**
+     * Native Linux epoll transport in edge-triggered mode.
+     */
+    EPOLL("epoll"),
+
+    /**
+     * Linux io_uring transport from netty-incubator-transport-io_uring, when it is on the classpath.
+     */
+    IO_URING("io_uring");
+
+    private String value;
+
+    TransportTypeEnum(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Gets value.
+     *
+     * @return the value
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * From string transport type enum.
+     *
+     * @param value the value
+     * @return the transport type enum
+     */
+    public static TransportTypeEnum fromString(String value) {
+        Optional<TransportTypeEnum> transportTypeEnum =
+                Arrays.stream(TransportTypeEnum.values())
+                        .filter(v -> Objects.equals(v.getValue(), value))
+                        .findFirst();
+        return transportTypeEnum.orElse(TransportTypeEnum.NIO);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
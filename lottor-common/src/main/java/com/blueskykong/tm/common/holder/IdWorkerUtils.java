@@ -1,24 +1,40 @@
 package com.blueskykong.tm.common.holder;
 
-import java.util.UUID;
-
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 64位按时间递增的id生成器，结构与snowflake相同：41位毫秒时间戳 + 10位workerId + 12位毫秒内序列
+ * 时间戳和序列打包在一个AtomicLong中通过CAS推进，无锁；
+ * 同一毫秒内序列用完时借用下一毫秒，时钟回拨时沿用上一次的时间戳继续递增，保证不重复
+ */
 public final class IdWorkerUtils {
 
-    private final long twepoch = 1288834974657L;
-    private final long workerIdBits = 5L;
-    private final long datacenterIdBits = 5L;
-    private final long maxWorkerId = -1L ^ (-1L << workerIdBits);
-    private final long maxDatacenterId = -1L ^ (-1L << datacenterIdBits);
-    private final long sequenceBits = 12L;
-    private final long workerIdShift = sequenceBits;
-    private final long datacenterIdShift = sequenceBits + workerIdBits;
-    private final long timestampLeftShift = sequenceBits + workerIdBits + datacenterIdBits;
-    private final long sequenceMask = -1L ^ (-1L << sequenceBits);
-
-    private long workerId = 0;
-    private long datacenterId = 0;
-    private long sequence = 0L;
-    private long lastTimestamp = -1L;
+    private static final long TWEPOCH = 1288834974657L;
+
+    private static final long WORKER_ID_BITS = 10L;
+
+    private static final long SEQUENCE_BITS = 12L;
+
+    public static final long MAX_WORKER_ID = ~(-1L << WORKER_ID_BITS);
+
+    /**
+     * TxManager拒绝注册心跳时回复的result标志位：workerId已被另一个在线实例占用
+     */
+    public static final int WORKER_ID_CONFLICT = 1 << 30;
+
+    private static final long SEQUENCE_MASK = ~(-1L << SEQUENCE_BITS);
+
+    private static final long WORKER_ID_SHIFT = SEQUENCE_BITS;
+
+    private static final long TIMESTAMP_LEFT_SHIFT = SEQUENCE_BITS + WORKER_ID_BITS;
+
+    /**
+     * 高位为相对TWEPOCH的毫秒数，低12位为毫秒内的序列
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    private volatile long workerId = defaultWorkerId();
 
     private static final IdWorkerUtils ID_WORKER_UTILS = new IdWorkerUtils();
 
@@ -30,42 +46,44 @@ public final class IdWorkerUtils {
 
     }
 
-    private IdWorkerUtils(long workerId, long datacenterId) {
-        if (workerId > maxWorkerId || workerId < 0) {
-            throw new IllegalArgumentException(String.format("worker Id can't be greater than %d or less than 0", maxWorkerId));
-        }
-        if (datacenterId > maxDatacenterId || datacenterId < 0) {
-            throw new IllegalArgumentException(String.format("datacenter Id can't be greater than %d or less than 0", maxDatacenterId));
-        }
-        this.workerId = workerId;
-        this.datacenterId = datacenterId;
+    public long getWorkerId() {
+        return workerId;
     }
 
-    private synchronized long nextId() {
-        long timestamp = timeGen();
-        if (timestamp < lastTimestamp) {
-            throw new RuntimeException(String.format("Clock    moved backwards.  Refusing to generate id for %d milliseconds", lastTimestamp - timestamp));
-        }
-        if (lastTimestamp == timestamp) {
-            sequence = (sequence + 1) & sequenceMask;
-            if (sequence == 0) {
-                timestamp = tilNextMillis(lastTimestamp);
-            }
-        } else {
-            sequence = 0L;
+    public void setWorkerId(long workerId) {
+        if (workerId > MAX_WORKER_ID || workerId < 0) {
+            throw new IllegalArgumentException(String.format("worker Id can't be greater than %d or less than 0", MAX_WORKER_ID));
         }
+        this.workerId = workerId;
+    }
 
-        lastTimestamp = timestamp;
+    /**
+     * 根据实例id（如服务发现的instance-id）计算workerId，不同实例可能得到相同的值，
+     * 注册时由TxManager检测冲突，冲突时需要配置 tx.core.workerId
+     *
+     * @param instanceId 实例id
+     * @return workerId
+     */
+    public static long workerIdOf(String instanceId) {
+        return (instanceId.hashCode() & Integer.MAX_VALUE) % (MAX_WORKER_ID + 1);
+    }
 
-        return ((timestamp - twepoch) << timestampLeftShift) | (datacenterId << datacenterIdShift) | (workerId << workerIdShift) | sequence;
+    /**
+     * 没有配置时按照 pid@hostname 计算
+     */
+    private static long defaultWorkerId() {
+        return workerIdOf(ManagementFactory.getRuntimeMXBean().getName());
     }
 
-    private long tilNextMillis(long lastTimestamp) {
-        long timestamp = timeGen();
-        while (timestamp <= lastTimestamp) {
-            timestamp = timeGen();
+    public long nextId() {
+        for (; ; ) {
+            final long last = state.get();
+            final long now = timeGen() - TWEPOCH;
+            final long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if (state.compareAndSet(last, next)) {
+                return ((next >>> SEQUENCE_BITS) << TIMESTAMP_LEFT_SHIFT) | (workerId << WORKER_ID_SHIFT) | (next & SEQUENCE_MASK);
+            }
         }
-        return timestamp;
     }
 
     private long timeGen() {
@@ -73,33 +91,28 @@ public final class IdWorkerUtils {
     }
 
     public String buildPartNumber() {
-        return "P" + ID_WORKER_UTILS.nextId();
+        return "P" + nextId();
     }
 
     public String buildSkuCode() {
-        return "S" + ID_WORKER_UTILS.nextId();
+        return "S" + nextId();
     }
 
     public String createTaskKey() {
-        return String.valueOf(UUID.randomUUID().hashCode() & 0x7fffffff);
+        return String.valueOf(nextId());
     }
 
 
     public String createUUID() {
-        return String.valueOf(UUID.randomUUID().hashCode() & 0x7fffffff);
+        return String.valueOf(nextId());
     }
 
 
     public String createGroupId() {
-        return String.valueOf(UUID.randomUUID().hashCode() & 0x7fffffff);
+        return String.valueOf(nextId());
     }
 
     public long randomUUID() {
-        return ID_WORKER_UTILS.nextId();
-    }
-
-
-    public static void main(String[] args) {
-
+        return nextId();
     }
 }
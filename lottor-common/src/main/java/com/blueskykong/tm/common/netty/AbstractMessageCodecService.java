@@ -0,0 +1,33 @@
+package com.blueskykong.tm.common.netty;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+
+/**
+ * 预留长度字段、序列化消息体、回填长度，消息体直接写入出站的ByteBuf
+ */
+public abstract class AbstractMessageCodecService implements MessageCodecService {
+
+    @Override
+    public void encode(final ByteBuf out, final Object message) throws IOException {
+        final int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        try {
+            serialize(out, message);
+        } catch (IOException | RuntimeException e) {
+            out.writerIndex(lengthIndex);
+            throw e;
+        }
+        out.setInt(lengthIndex, out.writerIndex() - lengthIndex - MESSAGE_LENGTH);
+    }
+
+    /**
+     * 序列化消息体
+     *
+     * @param out     出站ByteBuf
+     * @param message 消息
+     * @throws IOException 序列化异常
+     */
+    protected abstract void serialize(ByteBuf out, Object message) throws IOException;
+}
@@ -1,6 +1,7 @@
 package com.blueskykong.tm.common.netty;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 
 import java.io.IOException;
 
@@ -9,7 +10,25 @@ public interface MessageCodecService {
 
     int MESSAGE_LENGTH = 4;
 
+    /**
+     * 直接序列化到出站的ByteBuf，先预留长度字段，写完消息体后回填
+     *
+     * @param out     出站ByteBuf
+     * @param message 消息
+     * @throws IOException 序列化异常
+     */
     void encode(final ByteBuf out, final Object message) throws IOException;
 
-    Object decode(byte[] body) throws IOException;
+    /**
+     * 直接从入站的消息体切片反序列化，不拷贝到byte[]
+     *
+     * @param body 消息体，不包含长度字段
+     * @return 消息
+     * @throws IOException 反序列化异常
+     */
+    Object decode(final ByteBuf body) throws IOException;
+
+    default Object decode(byte[] body) throws IOException {
+        return decode(Unpooled.wrappedBuffer(body));
+    }
 }
@@ -2,6 +2,10 @@
 package com.blueskykong.tm.common.netty;
 
 import com.blueskykong.tm.common.enums.SerializeProtocolEnum;
+import com.blueskykong.tm.common.netty.serizlize.AbstractMessageDecoder;
+import com.blueskykong.tm.common.netty.serizlize.compact.CompactCodecServiceImpl;
+import com.blueskykong.tm.common.netty.serizlize.compact.CompactDecoder;
+import com.blueskykong.tm.common.netty.serizlize.compact.CompactEncoder;
 import com.blueskykong.tm.common.netty.serizlize.hessian.HessianCodecServiceImpl;
 import com.blueskykong.tm.common.netty.serizlize.hessian.HessianDecoder;
 import com.blueskykong.tm.common.netty.serizlize.hessian.HessianEncoder;
@@ -12,32 +16,68 @@ import com.blueskykong.tm.common.netty.serizlize.kryo.KryoPoolFactory;
 import com.blueskykong.tm.common.netty.serizlize.protostuff.ProtostuffCodecServiceImpl;
 import com.blueskykong.tm.common.netty.serizlize.protostuff.ProtostuffDecoder;
 import com.blueskykong.tm.common.netty.serizlize.protostuff.ProtostuffEncoder;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelPipeline;
+import io.netty.handler.flush.FlushConsolidationHandler;
 
 
 public class NettyPipelineInit {
     public static void serializePipeline(SerializeProtocolEnum serializeProtocol, ChannelPipeline pipeline) {
+        serializePipeline(serializeProtocol, pipeline, AbstractMessageDecoder.DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    public static void serializePipeline(SerializeProtocolEnum serializeProtocol, ChannelPipeline pipeline, int maxFrameLength) {
+        serializePipeline(serializeProtocol, pipeline, maxFrameLength, false);
+    }
+
+    public static void serializePipeline(SerializeProtocolEnum serializeProtocol, ChannelPipeline pipeline, int maxFrameLength, boolean kryoRegistry) {
+        pipeline.addLast(codecHandlers(serializeProtocol, maxFrameLength, kryoRegistry));
+    }
+
+    /**
+     * 序列化方式对应的编码器和解码器
+     *
+     * @param serializeProtocol 序列化方式
+     * @param maxFrameLength    最大帧长度 单位：byte
+     * @return 编码器, 解码器
+     */
+    public static ChannelHandler[] codecHandlers(SerializeProtocolEnum serializeProtocol, int maxFrameLength) {
+        return codecHandlers(serializeProtocol, maxFrameLength, false);
+    }
+
+    /**
+     * @param kryoRegistry Kryo是否使用完整的注册表，只有握手确认对端注册表一致时才能为true
+     */
+    public static ChannelHandler[] codecHandlers(SerializeProtocolEnum serializeProtocol, int maxFrameLength, boolean kryoRegistry) {
         switch (serializeProtocol) {
             case KRYO:
-                KryoCodecServiceImpl kryoCodecServiceImpl = new KryoCodecServiceImpl(KryoPoolFactory.getKryoPoolInstance());
-                pipeline.addLast(new KryoEncoder(kryoCodecServiceImpl));
-                pipeline.addLast(new KryoDecoder(kryoCodecServiceImpl));
-                break;
+                KryoCodecServiceImpl kryoCodecServiceImpl = new KryoCodecServiceImpl(kryoRegistry
+                        ? KryoPoolFactory.getRegistryPoolInstance() : KryoPoolFactory.getKryoPoolInstance());
+                return new ChannelHandler[]{new KryoEncoder(kryoCodecServiceImpl), new KryoDecoder(kryoCodecServiceImpl, maxFrameLength)};
             case HESSIAN:
                 HessianCodecServiceImpl hessianCodecServiceImpl = new HessianCodecServiceImpl();
-                pipeline.addLast(new HessianEncoder(hessianCodecServiceImpl));
-                pipeline.addLast(new HessianDecoder(hessianCodecServiceImpl));
-                break;
+                return new ChannelHandler[]{new HessianEncoder(hessianCodecServiceImpl), new HessianDecoder(hessianCodecServiceImpl, maxFrameLength)};
             case PROTOSTUFF:
                 ProtostuffCodecServiceImpl protostuffCodecServiceImpl = new ProtostuffCodecServiceImpl();
-                pipeline.addLast(new ProtostuffEncoder(protostuffCodecServiceImpl));
-                pipeline.addLast(new ProtostuffDecoder(protostuffCodecServiceImpl));
-                break;
+                return new ChannelHandler[]{new ProtostuffEncoder(protostuffCodecServiceImpl), new ProtostuffDecoder(protostuffCodecServiceImpl, maxFrameLength)};
+            case COMPACT:
+                CompactCodecServiceImpl compactCodecServiceImpl = new CompactCodecServiceImpl();
+                return new ChannelHandler[]{new CompactEncoder(compactCodecServiceImpl), new CompactDecoder(compactCodecServiceImpl, maxFrameLength)};
             default:
                 KryoCodecServiceImpl defaultCodec = new KryoCodecServiceImpl(KryoPoolFactory.getKryoPoolInstance());
-                pipeline.addLast(new KryoEncoder(defaultCodec));
-                pipeline.addLast(new KryoDecoder(defaultCodec));
-                break;
+                return new ChannelHandler[]{new KryoEncoder(defaultCodec), new KryoDecoder(defaultCodec, maxFrameLength)};
         }
     }
+
+    /**
+     * 合并flush，减少系统调用，需要放在pipeline的最前面
+     *
+     * @param pipeline                 pipeline
+     * @param explicitFlushAfterFlushes 累计多少次flush后强制flush
+     * @param writeBatching            非读事件中的写（业务线程、心跳）是否也合并到下一次事件循环flush
+     */
+    public static void flushPipeline(ChannelPipeline pipeline, int explicitFlushAfterFlushes, boolean writeBatching) {
+        pipeline.addFirst("flushConsolidation",
+                new FlushConsolidationHandler(Math.max(1, explicitFlushAfterFlushes), writeBatching));
+    }
 }
@@ -0,0 +1,155 @@
+package com.blueskykong.tm.common.netty;
+
+import com.blueskykong.tm.common.enums.TransportTypeEnum;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 网络传输层的选择，屏蔽NIO、epoll、io_uring之间的差异
+ * <pre>
+ * epoll使用边缘触发，服务端可以开启SO_REUSEPORT由多个acceptor监听同一端口
+ * io_uring来自netty-incubator-transport-io_uring，通过反射加载，不在classpath或者内核不支持时降级为epoll，再降级为NIO
+ * </pre>
+ */
+public final class NettyTransport {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NettyTransport.class);
+
+    private static final String IO_URING_PACKAGE = "io.netty.incubator.channel.uring.";
+
+    private final TransportTypeEnum type;
+
+    private NettyTransport(TransportTypeEnum type) {
+        this.type = type;
+    }
+
+    /**
+     * 选择传输层，不可用时降级
+     *
+     * @param requested 配置的传输层
+     * @return 实际使用的传输层
+     */
+    public static NettyTransport of(TransportTypeEnum requested) {
+        TransportTypeEnum type = requested;
+        if (type == TransportTypeEnum.IO_URING && !isIoUringAvailable()) {
+            LOGGER.warn("io_uring transport is unavailable, falling back to epoll");
+            type = TransportTypeEnum.EPOLL;
+        }
+        if (type == TransportTypeEnum.EPOLL && !Epoll.isAvailable()) {
+            LOGGER.warn("epoll transport is unavailable, falling back to nio", Epoll.unavailabilityCause());
+            type = TransportTypeEnum.NIO;
+        }
+        return new NettyTransport(type);
+    }
+
+    public TransportTypeEnum getType() {
+        return type;
+    }
+
+    /**
+     * @return 是否可以通过SO_REUSEPORT让多个acceptor绑定同一端口
+     */
+    public boolean isReusePortSupported() {
+        return type == TransportTypeEnum.EPOLL;
+    }
+
+    public EventLoopGroup newEventLoopGroup(int threads) {
+        switch (type) {
+            case EPOLL:
+                return new EpollEventLoopGroup(threads);
+            case IO_URING:
+                return newInstance(IO_URING_PACKAGE + "IOUringEventLoopGroup", threads);
+            default:
+                return new NioEventLoopGroup(threads);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public Class<? extends Channel> socketChannelClass() {
+        switch (type) {
+            case EPOLL:
+                return EpollSocketChannel.class;
+            case IO_URING:
+                return (Class<? extends Channel>) loadClass(IO_URING_PACKAGE + "IOUringSocketChannel");
+            default:
+                return NioSocketChannel.class;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public Class<? extends ServerChannel> serverChannelClass() {
+        switch (type) {
+            case EPOLL:
+                return EpollServerSocketChannel.class;
+            case IO_URING:
+                return (Class<? extends ServerChannel>) loadClass(IO_URING_PACKAGE + "IOUringServerSocketChannel");
+            default:
+                return NioServerSocketChannel.class;
+        }
+    }
+
+    /**
+     * 客户端连接上与传输层相关的参数
+     */
+    public void clientOptions(Bootstrap bootstrap) {
+        if (type == TransportTypeEnum.EPOLL) {
+            bootstrap.option(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED);
+        }
+    }
+
+    /**
+     * 服务端监听和接入连接上与传输层相关的参数
+     *
+     * @param reusePort 是否开启SO_REUSEPORT
+     */
+    public void serverOptions(ServerBootstrap bootstrap, boolean reusePort) {
+        if (type == TransportTypeEnum.EPOLL) {
+            bootstrap.option(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED)
+                    .option(EpollChannelOption.SO_REUSEPORT, reusePort)
+                    .childOption(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED);
+        }
+    }
+
+    private static boolean isIoUringAvailable() {
+        try {
+            return (Boolean) loadClass(IO_URING_PACKAGE + "IOUring").getMethod("isAvailable").invoke(null);
+        } catch (ReflectiveOperationException | IllegalStateException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static Class<?> loadClass(String name) {
+        try {
+            return Class.forName(name, true, NettyTransport.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("transport class not found: " + name, e);
+        }
+    }
+
+    private static EventLoopGroup newInstance(String name, int threads) {
+        try {
+            return (EventLoopGroup) loadClass(name).getConstructor(int.class).newInstance(threads);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("can not create event loop group: " + name, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return type.getValue();
+    }
+}
@@ -0,0 +1,40 @@
+package com.blueskykong.tm.common.netty.bean;
+
+import java.util.List;
+
+/**
+ * 批量帧，把多个 LottorRequest 放在一帧中发送
+ * <pre>
+ * 长度字段的第29位为批量标志，消息体为 int个数 + 若干个普通帧（int长度 + 序列化的LottorRequest）
+ * 只有TxManager在注册时确认过 {@link #CAPABILITY} 的连接才会发送批量帧，确认的回复必须带有 {@link HeartbeatFrame#ACK}，
+ * 旧版本TxManager原样写回的注册消息不会开启批量
+ * </pre>
+ */
+public final class BatchFrame {
+
+    /**
+     * 协商时使用的能力位，放在注册消息的result中
+     */
+    public static final int CAPABILITY = 1 << 1;
+
+    public static final int BATCH_FLAG = 1 << 29;
+
+    private final List<LottorRequest> requests;
+
+    public BatchFrame(List<LottorRequest> requests) {
+        this.requests = requests;
+    }
+
+    public List<LottorRequest> getRequests() {
+        return requests;
+    }
+
+    public int size() {
+        return requests.size();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchFrame{size=" + requests.size() + "}";
+    }
+}
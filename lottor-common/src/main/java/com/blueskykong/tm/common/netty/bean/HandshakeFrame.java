@@ -0,0 +1,69 @@
+package com.blueskykong.tm.common.netty.bean;
+
+import com.blueskykong.tm.common.enums.SerializeProtocolEnum;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * 握手帧，客户端建立连接后发送的第一帧，不经过序列化
+ * <pre>
+ * +-----------+---------+---------+
+ * | int magic | version | codecId |
+ * +-----------+---------+---------+
+ * magic为负数，旧版本的解码器会把它当作非法长度，不会与普通帧混淆
+ * </pre>
+ * version 1：只声明序列化方式；version 2：Kryo使用完整的 {@code KryoRegistry} 注册表
+ * 客户端只在TxManager返回的注册表指纹与本地一致时才发送version 2，旧版本TxManager会拒绝大于1的版本
+ */
+public final class HandshakeFrame {
+
+    public static final int MAGIC = 0xC0DEC0DE;
+
+    public static final byte VERSION = 2;
+
+    /**
+     * 不带Kryo注册表的版本
+     */
+    public static final byte LEGACY_VERSION = 1;
+
+    /**
+     * 从这个版本开始Kryo使用完整的注册表
+     */
+    public static final byte REGISTRY_VERSION = 2;
+
+    /**
+     * 握手帧的总长度
+     */
+    public static final int LENGTH = 4 + 1 + 1;
+
+    private final int version;
+
+    private final SerializeProtocolEnum serializeProtocol;
+
+    public HandshakeFrame(SerializeProtocolEnum serializeProtocol) {
+        this(VERSION, serializeProtocol);
+    }
+
+    public HandshakeFrame(int version, SerializeProtocolEnum serializeProtocol) {
+        this.version = version;
+        this.serializeProtocol = serializeProtocol;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public SerializeProtocolEnum getSerializeProtocol() {
+        return serializeProtocol;
+    }
+
+    public void writeTo(ByteBuf out) {
+        out.writeInt(MAGIC);
+        out.writeByte(version);
+        out.writeByte(serializeProtocol.getCodecId());
+    }
+
+    @Override
+    public String toString() {
+        return "HandshakeFrame{version=" + version + ", serializeProtocol=" + serializeProtocol.getSerializeProtocol() + "}";
+    }
+}
@@ -0,0 +1,30 @@
+package com.blueskykong.tm.common.netty.bean;
+
+/**
+ * 心跳帧，编码后只有4个字节的长度头（长度为0），不经过序列化
+ * 客户端注册信息只在建立连接时通过 HEART 类型的 LottorRequest 发送一次
+ */
+public final class HeartbeatFrame {
+
+    public static final HeartbeatFrame INSTANCE = new HeartbeatFrame();
+
+    /**
+     * 心跳帧的消息体长度
+     */
+    public static final int LENGTH = 0;
+
+    /**
+     * TxManager回复注册消息时在result中设置的确认位，客户端从不设置
+     * 旧版本TxManager原样写回的注册消息不带该位，客户端只在收到该位时开启协商的能力
+     */
+    public static final int ACK = 1 << 28;
+
+    private HeartbeatFrame() {
+
+    }
+
+    @Override
+    public String toString() {
+        return "HeartbeatFrame";
+    }
+}
@@ -1,11 +1,18 @@
 package com.blueskykong.tm.common.netty.bean;
 
 import com.blueskykong.tm.common.entity.TransactionMsg;
+import io.netty.util.Recycler;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 @Data
+@ToString(exclude = "handle")
 public class LottorRequest implements Serializable {
 
     private static final long serialVersionUID = 4183978848464761529L;
@@ -27,4 +34,55 @@ public class LottorRequest implements Serializable {
      */
     private TransactionMsg transactionMsg;
 
+    private static final Recycler<LottorRequest> RECYCLER = new Recycler<LottorRequest>() {
+        @Override
+        protected LottorRequest newObject(Handle<LottorRequest> handle) {
+            return new LottorRequest(handle);
+        }
+    };
+
+    /**
+     * 对象池中的对象才有，不参与序列化
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient Recycler.Handle<LottorRequest> handle;
+
+    public LottorRequest() {
+
+    }
+
+    private LottorRequest(Recycler.Handle<LottorRequest> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * 开启对象池时从池中获取，否则直接创建
+     *
+     * @see MessageRecycler
+     */
+    public static LottorRequest newInstance() {
+        return MessageRecycler.isEnabled() ? RECYCLER.get() : new LottorRequest();
+    }
+
+    /**
+     * 清空后放回对象池，并级联回收事务组，不是从池中获取的对象不做处理
+     */
+    public void recycle() {
+        if (Objects.isNull(handle)) {
+            return;
+        }
+        if (Objects.nonNull(txTransactionGroup)) {
+            txTransactionGroup.recycle();
+        }
+        action = 0;
+        key = null;
+        result = 0;
+        metaInfo = null;
+        serialProtocol = null;
+        txTransactionGroup = null;
+        transactionMsg = null;
+        handle.recycle(this);
+    }
+
 }
@@ -0,0 +1,31 @@
+package com.blueskykong.tm.common.netty.bean;
+
+/**
+ * {@link LottorRequest}、{@link TxTransactionGroup}、{@link TxTransactionItem} 的对象池开关，默认关闭
+ * <pre>
+ * 开启后通过 newInstance() 获取的对象来自netty的Recycler，归属规则：
+ * 1. 出站：写出后归编码器所有，编码完成后回收，调用方写出后不能再访问该对象
+ * 2. 入站：解码得到的LottorRequest由最后一个handler处理完成后回收，被写回对端的对象交给编码器回收
+ * 3. 通过构造函数创建的对象（包括业务方传入、从存储中读取的对象）不会被回收，recycle() 为空操作
+ * 回收时级联回收引用的对象池对象
+ * </pre>
+ */
+public final class MessageRecycler {
+
+    private static volatile boolean enabled = false;
+
+    private MessageRecycler() {
+
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 启动时设置，运行中关闭不影响已经取出的对象正常回收
+     */
+    public static void setEnabled(boolean enabled) {
+        MessageRecycler.enabled = enabled;
+    }
+}
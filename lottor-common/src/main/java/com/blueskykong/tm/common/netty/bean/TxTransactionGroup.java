@@ -1,11 +1,18 @@
 package com.blueskykong.tm.common.netty.bean;
 
+import io.netty.util.Recycler;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 
 @Data
+@ToString(exclude = "handle")
 public class TxTransactionGroup implements Serializable {
 
 
@@ -29,4 +36,49 @@ public class TxTransactionGroup implements Serializable {
 
     private TxTransactionItem item;
 
+    private static final Recycler<TxTransactionGroup> RECYCLER = new Recycler<TxTransactionGroup>() {
+        @Override
+        protected TxTransactionGroup newObject(Handle<TxTransactionGroup> handle) {
+            return new TxTransactionGroup(handle);
+        }
+    };
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient Recycler.Handle<TxTransactionGroup> handle;
+
+    public TxTransactionGroup() {
+
+    }
+
+    private TxTransactionGroup(Recycler.Handle<TxTransactionGroup> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * @see MessageRecycler
+     */
+    public static TxTransactionGroup newInstance() {
+        return MessageRecycler.isEnabled() ? RECYCLER.get() : new TxTransactionGroup();
+    }
+
+    /**
+     * 清空后放回对象池，并级联回收事务，不是从池中获取的对象不做处理
+     */
+    public void recycle() {
+        if (Objects.isNull(handle)) {
+            return;
+        }
+        if (Objects.nonNull(item)) {
+            item.recycle();
+        }
+        id = null;
+        waitTime = 0;
+        source = null;
+        target = null;
+        status = 0;
+        item = null;
+        handle.recycle(this);
+    }
+
 }
@@ -2,13 +2,21 @@ package com.blueskykong.tm.common.netty.bean;
 
 import com.blueskykong.tm.common.entity.TransactionMsgAdapter;
 import com.blueskykong.tm.common.enums.TransactionStatusEnum;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+import io.netty.util.Recycler;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Objects;
 
 
 @Data
+@ToString(exclude = "handle")
 public class TxTransactionItem implements Serializable {
 
     private static final long serialVersionUID = -983809184773470584L;
@@ -63,5 +71,58 @@ public class TxTransactionItem implements Serializable {
      */
     private Object message;
 
+    /**
+     * 发起该事务项的客户端实例id，由TxManager在收到时记录，提交、回滚指令只发送给该实例
+     * Kryo不写入该字段，与旧版本的字段布局保持一致
+     */
+    @FieldSerializer.Optional("lottor.instanceId")
+    private String instanceId;
+
+    private static final Recycler<TxTransactionItem> RECYCLER = new Recycler<TxTransactionItem>() {
+        @Override
+        protected TxTransactionItem newObject(Handle<TxTransactionItem> handle) {
+            return new TxTransactionItem(handle);
+        }
+    };
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient Recycler.Handle<TxTransactionItem> handle;
+
+    public TxTransactionItem() {
+
+    }
+
+    private TxTransactionItem(Recycler.Handle<TxTransactionItem> handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * @see MessageRecycler
+     */
+    public static TxTransactionItem newInstance() {
+        return MessageRecycler.isEnabled() ? RECYCLER.get() : new TxTransactionItem();
+    }
+
+    /**
+     * 清空后放回对象池，不是从池中获取的对象不做处理
+     */
+    public void recycle() {
+        if (Objects.isNull(handle)) {
+            return;
+        }
+        taskKey = null;
+        status = 0;
+        modelName = null;
+        tmDomain = null;
+        txGroupId = null;
+        createDate = null;
+        waitMaxTime = null;
+        consumeTime = null;
+        msgs = null;
+        message = null;
+        instanceId = null;
+        handle.recycle(this);
+    }
 
 }
@@ -0,0 +1,99 @@
+package com.blueskykong.tm.common.netty.compress;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 帧压缩的统计：压缩率以及压缩、解压消耗的CPU时间
+ */
+public final class CompressionMetrics {
+
+    private static final CompressionMetrics COMPRESSION_METRICS = new CompressionMetrics();
+
+    private final LongAdder compressedFrames = new LongAdder();
+
+    /**
+     * 超过阈值但压缩后没有变小，按原文发送的帧数
+     */
+    private final LongAdder skippedFrames = new LongAdder();
+
+    private final LongAdder rawBytes = new LongAdder();
+
+    private final LongAdder compressedBytes = new LongAdder();
+
+    private final LongAdder compressNanos = new LongAdder();
+
+    private final LongAdder decompressedFrames = new LongAdder();
+
+    private final LongAdder decompressedBytes = new LongAdder();
+
+    private final LongAdder decompressNanos = new LongAdder();
+
+    public static CompressionMetrics getInstance() {
+        return COMPRESSION_METRICS;
+    }
+
+    private CompressionMetrics() {
+
+    }
+
+    void compressed(int raw, int compressed, long nanos) {
+        compressedFrames.increment();
+        rawBytes.add(raw);
+        compressedBytes.add(compressed);
+        compressNanos.add(nanos);
+    }
+
+    void skipped(int raw, long nanos) {
+        skippedFrames.increment();
+        rawBytes.add(raw);
+        compressedBytes.add(raw);
+        compressNanos.add(nanos);
+    }
+
+    void decompressed(int raw, long nanos) {
+        decompressedFrames.increment();
+        decompressedBytes.add(raw);
+        decompressNanos.add(nanos);
+    }
+
+    public long getCompressedFrames() {
+        return compressedFrames.sum();
+    }
+
+    public long getSkippedFrames() {
+        return skippedFrames.sum();
+    }
+
+    public long getRawBytes() {
+        return rawBytes.sum();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    /**
+     * @return 发送字节数/原文字节数，没有数据时为1
+     */
+    public double getCompressionRatio() {
+        final long raw = rawBytes.sum();
+        return raw == 0 ? 1D : (double) compressedBytes.sum() / raw;
+    }
+
+    public long getCompressMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(compressNanos.sum());
+    }
+
+    public long getDecompressedFrames() {
+        return decompressedFrames.sum();
+    }
+
+    public long getDecompressedBytes() {
+        return decompressedBytes.sum();
+    }
+
+    public long getDecompressMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(decompressNanos.sum());
+    }
+}
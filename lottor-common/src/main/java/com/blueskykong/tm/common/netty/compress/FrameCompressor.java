@@ -0,0 +1,141 @@
+package com.blueskykong.tm.common.netty.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.compression.Snappy;
+import io.netty.util.AttributeKey;
+
+import java.util.Objects;
+
+/**
+ * 帧压缩，使用netty自带的纯java Snappy实现
+ * <pre>
+ * 长度字段的第30位为压缩标志，压缩后的消息体为若干个 int长度 + Snappy块，每块最多 {@link #CHUNK_SIZE} 字节原文
+ * 只有双方在注册时协商过的连接才会发送压缩帧：客户端只在TxManager的回复带有 HeartbeatFrame.ACK 时开启，
+ * 旧版本TxManager原样写回的注册消息不会开启压缩
+ * </pre>
+ */
+public final class FrameCompressor {
+
+    /**
+     * 协商时使用的能力位，放在注册消息的result中
+     */
+    public static final int CAPABILITY = 1;
+
+    public static final int COMPRESSED_FLAG = 1 << 30;
+
+    private static final int CHUNK_SIZE = 32 * 1024;
+
+    private static final AttributeKey<Integer> THRESHOLD = AttributeKey.valueOf("lottor.compressThreshold");
+
+    private FrameCompressor() {
+
+    }
+
+    /**
+     * 协商成功后开启连接的压缩
+     *
+     * @param channel   连接
+     * @param threshold 消息体超过该大小时压缩 单位：byte
+     */
+    public static void enable(Channel channel, int threshold) {
+        channel.attr(THRESHOLD).set(Math.max(0, threshold));
+    }
+
+    public static boolean isEnabled(Channel channel) {
+        return Objects.nonNull(channel.attr(THRESHOLD).get());
+    }
+
+    /**
+     * 消息体超过阈值时原地替换为压缩后的内容，压缩后没有变小则保持原样
+     *
+     * @param channel     连接
+     * @param out         出站ByteBuf
+     * @param lengthIndex 长度字段的位置
+     */
+    public static void compress(Channel channel, ByteBuf out, int lengthIndex) {
+        final Integer threshold = channel.attr(THRESHOLD).get();
+        final int bodyIndex = lengthIndex + 4;
+        final int length = out.writerIndex() - bodyIndex;
+        if (Objects.isNull(threshold) || length <= threshold || length == 0) {
+            return;
+        }
+        final CompressionMetrics metrics = CompressionMetrics.getInstance();
+        final long start = System.nanoTime();
+        final ByteBuf compressed = channel.alloc().buffer(length);
+        try {
+            final Snappy snappy = new Snappy();
+            for (int offset = 0; offset < length; offset += CHUNK_SIZE) {
+                final int chunk = Math.min(CHUNK_SIZE, length - offset);
+                final int chunkLengthIndex = compressed.writerIndex();
+                compressed.writeInt(0);
+                snappy.reset();
+                snappy.encode(out.slice(bodyIndex + offset, chunk), compressed, chunk);
+                compressed.setInt(chunkLengthIndex, compressed.writerIndex() - chunkLengthIndex - 4);
+            }
+            if (compressed.readableBytes() >= length) {
+                metrics.skipped(length, System.nanoTime() - start);
+                return;
+            }
+            out.writerIndex(bodyIndex);
+            out.writeBytes(compressed);
+            out.setInt(lengthIndex, compressed.readableBytes() | COMPRESSED_FLAG);
+            metrics.compressed(length, compressed.readableBytes(), System.nanoTime() - start);
+        } finally {
+            compressed.release();
+        }
+    }
+
+    /**
+     * 解压消息体，返回的ByteBuf由调用方释放
+     *
+     * @param alloc     分配器
+     * @param body      压缩的消息体
+     * @param maxLength 解压后的最大长度
+     * @return 原文
+     */
+    public static ByteBuf decompress(ByteBufAllocator alloc, ByteBuf body, int maxLength) {
+        final long start = System.nanoTime();
+        final ByteBuf out = alloc.buffer(body.readableBytes() << 1);
+        try {
+            final Snappy snappy = new Snappy();
+            while (body.isReadable()) {
+                final int chunk = body.readInt();
+                if (chunk < 0 || chunk > body.readableBytes()) {
+                    throw new CorruptedFrameException("invalid compressed chunk length: " + chunk);
+                }
+                final ByteBuf block = body.readSlice(chunk);
+                //Snappy按照块头声明的原文长度分配内存，先校验，避免伪造的长度
+                final int rawLength = rawLengthOf(block);
+                if (rawLength < 0 || rawLength > CHUNK_SIZE || out.readableBytes() + rawLength > maxLength) {
+                    throw new TooLongFrameException("decompressed frame exceeds " + maxLength + " bytes");
+                }
+                snappy.reset();
+                snappy.decode(block, out);
+            }
+        } catch (RuntimeException e) {
+            out.release();
+            throw e;
+        }
+        CompressionMetrics.getInstance().decompressed(out.readableBytes(), System.nanoTime() - start);
+        return out;
+    }
+
+    /**
+     * 读取Snappy块头的原文长度（varint），不移动readerIndex
+     */
+    private static int rawLengthOf(ByteBuf block) {
+        int result = 0;
+        for (int i = 0; i < 5 && block.readerIndex() + i < block.writerIndex(); i++) {
+            final byte b = block.getByte(block.readerIndex() + i);
+            result |= (b & 0x7F) << (7 * i);
+            if (b >= 0) {
+                return result;
+            }
+        }
+        return -1;
+    }
+}
@@ -1,50 +1,114 @@
 package com.blueskykong.tm.common.netty.serizlize;
 
 import com.blueskykong.tm.common.netty.MessageCodecService;
+import com.blueskykong.tm.common.netty.bean.BatchFrame;
+import com.blueskykong.tm.common.netty.bean.HeartbeatFrame;
+import com.blueskykong.tm.common.netty.bean.LottorRequest;
+import com.blueskykong.tm.common.netty.compress.FrameCompressor;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 
 import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-public abstract class AbstractMessageDecoder extends ByteToMessageDecoder {
+/**
+ * 基于长度字段的拆帧，所有序列化方式共用
+ * <pre>
+ * 帧格式为 int长度 + 消息体，长度字段的高位为标志位（压缩、批量），其余位为消息体长度
+ * 长度为负数时抛出 CorruptedFrameException，超过maxFrameLength时读到长度字段即抛出 TooLongFrameException 并丢弃该帧
+ * 拆出的帧为共享内存的切片，不拷贝
+ * </pre>
+ */
+public abstract class AbstractMessageDecoder extends LengthFieldBasedFrameDecoder {
+
+    /**
+     * 默认的最大帧长度 单位：byte
+     */
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 8 * 1024 * 1024;
 
     final private static int MESSAGE_LENGTH = MessageCodecService.MESSAGE_LENGTH;
+
+    private static final int FLAGS = FrameCompressor.COMPRESSED_FLAG | BatchFrame.BATCH_FLAG;
+
     private MessageCodecService util;
 
+    private final int maxFrameLength;
+
     public AbstractMessageDecoder(final MessageCodecService service) {
+        this(service, DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    public AbstractMessageDecoder(final MessageCodecService service, final int maxFrameLength) {
+        super(Math.min(maxFrameLength, ~FLAGS & Integer.MAX_VALUE), 0, MESSAGE_LENGTH, 0, 0, true);
         this.util = service;
+        this.maxFrameLength = maxFrameLength;
     }
 
+    /**
+     * 长度字段去掉标志位后才是消息体的长度，负数保持不变
+     */
     @Override
-    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
-        if (in.readableBytes() < AbstractMessageDecoder.MESSAGE_LENGTH) {
-            return;
-        }
+    protected long getUnadjustedFrameLength(ByteBuf buf, int offset, int length, ByteOrder order) {
+        final int header = buf.getInt(offset);
+        return header < 0 ? header : header & ~FLAGS;
+    }
 
-        in.markReaderIndex();
-        int messageLength = in.readInt();
+    @Override
+    protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+        final ByteBuf frame = (ByteBuf) super.decode(ctx, in);
+        if (frame == null) {
+            return null;
+        }
+        try {
+            final int header = frame.readInt();
+            if ((header & ~FLAGS) == HeartbeatFrame.LENGTH) {
+                return HeartbeatFrame.INSTANCE;
+            }
+            if ((header & BatchFrame.BATCH_FLAG) != 0) {
+                return decodeBatch(ctx, frame);
+            }
+            return decodeBody(ctx, frame, (header & FrameCompressor.COMPRESSED_FLAG) != 0);
+        } catch (IOException ex) {
+            Logger.getLogger(AbstractMessageDecoder.class.getName()).log(Level.SEVERE, null, ex);
+            return null;
+        } finally {
+            frame.release();
+        }
+    }
 
-        if (messageLength < 0) {
-            ctx.close();
+    private Object decodeBody(ChannelHandlerContext ctx, ByteBuf body, boolean compressed) throws IOException {
+        if (!compressed) {
+            return util.decode(body);
         }
+        final ByteBuf raw = FrameCompressor.decompress(ctx.alloc(), body, maxFrameLength);
+        try {
+            return util.decode(raw);
+        } finally {
+            raw.release();
+        }
+    }
 
-        if (in.readableBytes() < messageLength) {
-            in.resetReaderIndex();
-        } else {
-            byte[] messageBody = new byte[messageLength];
-            in.readBytes(messageBody);
-
-            try {
-                Object obj = util.decode(messageBody);
-                out.add(obj);
-            } catch (IOException ex) {
-                Logger.getLogger(AbstractMessageDecoder.class.getName()).log(Level.SEVERE, null, ex);
+    private BatchFrame decodeBatch(ChannelHandlerContext ctx, ByteBuf body) throws IOException {
+        final int size = body.readInt();
+        if (size < 0) {
+            throw new CorruptedFrameException("invalid batch size: " + size);
+        }
+        final List<LottorRequest> requests = new ArrayList<>(Math.min(size, body.readableBytes() / MESSAGE_LENGTH));
+        for (int i = 0; i < size; i++) {
+            final int length = body.readInt();
+            final int bodyLength = length & ~FrameCompressor.COMPRESSED_FLAG;
+            if (bodyLength < 0 || bodyLength > body.readableBytes()) {
+                throw new CorruptedFrameException("invalid batch member length: " + length);
             }
+            requests.add((LottorRequest) decodeBody(ctx, body.readSlice(bodyLength),
+                    (length & FrameCompressor.COMPRESSED_FLAG) != 0));
         }
+        return new BatchFrame(requests);
     }
 }
-
@@ -2,11 +2,19 @@
 package com.blueskykong.tm.common.netty.serizlize;
 
 import com.blueskykong.tm.common.netty.MessageCodecService;
+import com.blueskykong.tm.common.netty.bean.BatchFrame;
+import com.blueskykong.tm.common.netty.bean.HandshakeFrame;
+import com.blueskykong.tm.common.netty.bean.HeartbeatFrame;
+import com.blueskykong.tm.common.netty.bean.LottorRequest;
+import com.blueskykong.tm.common.netty.compress.FrameCompressor;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 
 
+/**
+ * 编码完成后回收对象池中的 {@link LottorRequest}，见 {@link com.blueskykong.tm.common.netty.bean.MessageRecycler}
+ */
 public abstract class AbstractMessageEncoder extends MessageToByteEncoder<Object> {
 
     private MessageCodecService util;
@@ -17,7 +25,43 @@ public abstract class AbstractMessageEncoder extends MessageToByteEncoder<Object
 
     @Override
     protected void encode(final ChannelHandlerContext ctx, final Object msg, final ByteBuf out) throws Exception {
-        util.encode(out, msg);
+        if (msg == HeartbeatFrame.INSTANCE) {
+            out.writeInt(HeartbeatFrame.LENGTH);
+            return;
+        }
+        if (msg instanceof HandshakeFrame) {
+            ((HandshakeFrame) msg).writeTo(out);
+            return;
+        }
+        if (msg instanceof BatchFrame) {
+            encodeBatch(ctx, (BatchFrame) msg, out);
+            return;
+        }
+        final int lengthIndex = out.writerIndex();
+        try {
+            util.encode(out, msg);
+            FrameCompressor.compress(ctx.channel(), out, lengthIndex);
+        } finally {
+            if (msg instanceof LottorRequest) {
+                ((LottorRequest) msg).recycle();
+            }
+        }
+    }
+
+    private void encodeBatch(final ChannelHandlerContext ctx, final BatchFrame batch, final ByteBuf out) throws Exception {
+        final int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        out.writeInt(batch.size());
+        try {
+            for (LottorRequest request : batch.getRequests()) {
+                final int requestIndex = out.writerIndex();
+                util.encode(out, request);
+                FrameCompressor.compress(ctx.channel(), out, requestIndex);
+            }
+        } finally {
+            batch.getRequests().forEach(LottorRequest::recycle);
+        }
+        out.setInt(lengthIndex, (out.writerIndex() - lengthIndex - MessageCodecService.MESSAGE_LENGTH) | BatchFrame.BATCH_FLAG);
     }
 }
 
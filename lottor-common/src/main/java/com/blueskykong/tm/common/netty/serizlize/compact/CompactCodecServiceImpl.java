@@ -0,0 +1,25 @@
+package com.blueskykong.tm.common.netty.serizlize.compact;
+
+import com.blueskykong.tm.common.netty.AbstractMessageCodecService;
+import com.blueskykong.tm.common.netty.bean.LottorRequest;
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+
+public class CompactCodecServiceImpl extends AbstractMessageCodecService {
+
+    private final CompactSerialize compactSerialize = new CompactSerialize();
+
+    @Override
+    protected void serialize(ByteBuf out, Object message) throws IOException {
+        if (!(message instanceof LottorRequest)) {
+            throw new IOException("compact codec only supports LottorRequest, but got " + message.getClass().getName());
+        }
+        compactSerialize.serialize(out, (LottorRequest) message);
+    }
+
+    @Override
+    public Object decode(ByteBuf body) {
+        return compactSerialize.deserialize(body);
+    }
+}
@@ -0,0 +1,16 @@
+package com.blueskykong.tm.common.netty.serizlize.compact;
+
+
+import com.blueskykong.tm.common.netty.MessageCodecService;
+import com.blueskykong.tm.common.netty.serizlize.AbstractMessageDecoder;
+
+public class CompactDecoder extends AbstractMessageDecoder {
+
+    public CompactDecoder(MessageCodecService service) {
+        super(service);
+    }
+
+    public CompactDecoder(MessageCodecService service, int maxFrameLength) {
+        super(service, maxFrameLength);
+    }
+}
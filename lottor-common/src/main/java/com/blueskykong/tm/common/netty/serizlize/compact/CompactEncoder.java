@@ -0,0 +1,12 @@
+package com.blueskykong.tm.common.netty.serizlize.compact;
+
+
+import com.blueskykong.tm.common.netty.MessageCodecService;
+import com.blueskykong.tm.common.netty.serizlize.AbstractMessageEncoder;
+
+public class CompactEncoder extends AbstractMessageEncoder {
+
+    public CompactEncoder(MessageCodecService util) {
+        super(util);
+    }
+}
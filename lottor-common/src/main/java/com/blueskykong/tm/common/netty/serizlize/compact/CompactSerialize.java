@@ -0,0 +1,483 @@
+package com.blueskykong.tm.common.netty.serizlize.compact;
+
+import com.blueskykong.tm.common.entity.TransactionMsg;
+import com.blueskykong.tm.common.entity.TransactionMsgAdapter;
+import com.blueskykong.tm.common.netty.bean.LottorRequest;
+import com.blueskykong.tm.common.netty.bean.TxTransactionGroup;
+import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
+import com.blueskykong.tm.common.netty.serizlize.kryo.KryoPoolFactory;
+import com.blueskykong.tm.common.netty.serizlize.kryo.KryoSerialize;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 按照 LottorRequest 的固定结构手写的紧凑二进制格式
+ * <pre>
+ * 整数使用varint，字符串为 varint长度 + UTF-8，byte[] 为 varint长度 + 原始字节
+ * 每个对象先写一个varint位图标记哪些可空字段存在，不存在的字段不占空间
+ * 类型为Object的字段（TransactionMsg.args、TxTransactionItem.message）交给Kryo，写为 int长度 + Kryo字节
+ * </pre>
+ */
+public class CompactSerialize {
+
+    private static final int REQUEST_KEY = 1;
+    private static final int REQUEST_NUMERIC_KEY = 1 << 1;
+    private static final int REQUEST_META_INFO = 1 << 2;
+    private static final int REQUEST_SERIAL_PROTOCOL = 1 << 3;
+    private static final int REQUEST_GROUP = 1 << 4;
+    private static final int REQUEST_MSG = 1 << 5;
+
+    private static final int GROUP_ID = 1;
+    private static final int GROUP_SOURCE = 1 << 1;
+    private static final int GROUP_TARGET = 1 << 2;
+    private static final int GROUP_ITEM = 1 << 3;
+
+    private static final int ITEM_TASK_KEY = 1;
+    private static final int ITEM_MODEL_NAME = 1 << 1;
+    private static final int ITEM_TM_DOMAIN = 1 << 2;
+    private static final int ITEM_TX_GROUP_ID = 1 << 3;
+    private static final int ITEM_CREATE_DATE = 1 << 4;
+    private static final int ITEM_WAIT_MAX_TIME = 1 << 5;
+    private static final int ITEM_CONSUME_TIME = 1 << 6;
+    private static final int ITEM_MSGS = 1 << 7;
+    private static final int ITEM_MESSAGE = 1 << 8;
+
+    private static final int MSG_GROUP_ID = 1;
+    private static final int MSG_SUB_TASK_ID = 1 << 1;
+    private static final int MSG_SOURCE = 1 << 2;
+    private static final int MSG_TARGET = 1 << 3;
+    private static final int MSG_METHOD = 1 << 4;
+    private static final int MSG_ARGS = 1 << 5;
+    private static final int MSG_ARGS_TYPE = 1 << 6;
+    private static final int MSG_CREATE_TIME = 1 << 7;
+    private static final int MSG_MESSAGE = 1 << 8;
+    private static final int MSG_UPDATE_TIME = 1 << 9;
+
+    private static final String MAX_LONG = String.valueOf(Long.MAX_VALUE);
+
+    private final KryoSerialize kryoSerialize = new KryoSerialize(KryoPoolFactory.getKryoPoolInstance());
+
+    public void serialize(ByteBuf out, LottorRequest request) {
+        final String key = request.getKey();
+        final boolean numericKey = isNumeric(key);
+        final int flags = flag(!numericKey && Objects.nonNull(key), REQUEST_KEY)
+                | flag(numericKey, REQUEST_NUMERIC_KEY)
+                | flag(Objects.nonNull(request.getMetaInfo()), REQUEST_META_INFO)
+                | flag(Objects.nonNull(request.getSerialProtocol()), REQUEST_SERIAL_PROTOCOL)
+                | flag(Objects.nonNull(request.getTxTransactionGroup()), REQUEST_GROUP)
+                | flag(Objects.nonNull(request.getTransactionMsg()), REQUEST_MSG);
+        writeVarInt(out, flags);
+        writeVarInt(out, request.getAction());
+        writeVarInt(out, request.getResult());
+        if ((flags & REQUEST_NUMERIC_KEY) != 0) {
+            writeVarLong(out, Long.parseLong(key));
+        } else if ((flags & REQUEST_KEY) != 0) {
+            writeString(out, key);
+        }
+        if ((flags & REQUEST_META_INFO) != 0) {
+            writeString(out, request.getMetaInfo());
+        }
+        if ((flags & REQUEST_SERIAL_PROTOCOL) != 0) {
+            writeString(out, request.getSerialProtocol());
+        }
+        if ((flags & REQUEST_GROUP) != 0) {
+            writeGroup(out, request.getTxTransactionGroup());
+        }
+        if ((flags & REQUEST_MSG) != 0) {
+            writeMsg(out, request.getTransactionMsg());
+        }
+    }
+
+    /**
+     * 只有外层的LottorRequest来自对象池，事务组和事务可能被TxManager保存，直接创建
+     */
+    public LottorRequest deserialize(ByteBuf in) {
+        final LottorRequest request = LottorRequest.newInstance();
+        final int flags = readVarInt(in);
+        request.setAction(readVarInt(in));
+        request.setResult(readVarInt(in));
+        if ((flags & REQUEST_NUMERIC_KEY) != 0) {
+            request.setKey(String.valueOf(readVarLong(in)));
+        } else if ((flags & REQUEST_KEY) != 0) {
+            request.setKey(readString(in));
+        }
+        if ((flags & REQUEST_META_INFO) != 0) {
+            request.setMetaInfo(readString(in));
+        }
+        if ((flags & REQUEST_SERIAL_PROTOCOL) != 0) {
+            request.setSerialProtocol(readString(in));
+        }
+        if ((flags & REQUEST_GROUP) != 0) {
+            request.setTxTransactionGroup(readGroup(in));
+        }
+        if ((flags & REQUEST_MSG) != 0) {
+            request.setTransactionMsg(readMsg(in));
+        }
+        return request;
+    }
+
+    private void writeGroup(ByteBuf out, TxTransactionGroup group) {
+        final int flags = flag(Objects.nonNull(group.getId()), GROUP_ID)
+                | flag(Objects.nonNull(group.getSource()), GROUP_SOURCE)
+                | flag(Objects.nonNull(group.getTarget()), GROUP_TARGET)
+                | flag(Objects.nonNull(group.getItem()), GROUP_ITEM);
+        writeVarInt(out, flags);
+        writeVarInt(out, group.getWaitTime());
+        writeVarInt(out, group.getStatus());
+        if ((flags & GROUP_ID) != 0) {
+            writeString(out, group.getId());
+        }
+        if ((flags & GROUP_SOURCE) != 0) {
+            writeString(out, group.getSource());
+        }
+        if ((flags & GROUP_TARGET) != 0) {
+            writeString(out, group.getTarget());
+        }
+        if ((flags & GROUP_ITEM) != 0) {
+            writeItem(out, group.getItem());
+        }
+    }
+
+    private TxTransactionGroup readGroup(ByteBuf in) {
+        final TxTransactionGroup group = new TxTransactionGroup();
+        final int flags = readVarInt(in);
+        group.setWaitTime(readVarInt(in));
+        group.setStatus(readVarInt(in));
+        if ((flags & GROUP_ID) != 0) {
+            group.setId(readString(in));
+        }
+        if ((flags & GROUP_SOURCE) != 0) {
+            group.setSource(readString(in));
+        }
+        if ((flags & GROUP_TARGET) != 0) {
+            group.setTarget(readString(in));
+        }
+        if ((flags & GROUP_ITEM) != 0) {
+            group.setItem(readItem(in));
+        }
+        return group;
+    }
+
+    private void writeItem(ByteBuf out, TxTransactionItem item) {
+        final int flags = flag(Objects.nonNull(item.getTaskKey()), ITEM_TASK_KEY)
+                | flag(Objects.nonNull(item.getModelName()), ITEM_MODEL_NAME)
+                | flag(Objects.nonNull(item.getTmDomain()), ITEM_TM_DOMAIN)
+                | flag(Objects.nonNull(item.getTxGroupId()), ITEM_TX_GROUP_ID)
+                | flag(Objects.nonNull(item.getCreateDate()), ITEM_CREATE_DATE)
+                | flag(Objects.nonNull(item.getWaitMaxTime()), ITEM_WAIT_MAX_TIME)
+                | flag(Objects.nonNull(item.getConsumeTime()), ITEM_CONSUME_TIME)
+                | flag(Objects.nonNull(item.getMsgs()), ITEM_MSGS)
+                | flag(Objects.nonNull(item.getMessage()), ITEM_MESSAGE);
+        writeVarInt(out, flags);
+        writeVarInt(out, item.getStatus());
+        if ((flags & ITEM_TASK_KEY) != 0) {
+            writeString(out, item.getTaskKey());
+        }
+        if ((flags & ITEM_MODEL_NAME) != 0) {
+            writeString(out, item.getModelName());
+        }
+        if ((flags & ITEM_TM_DOMAIN) != 0) {
+            writeString(out, item.getTmDomain());
+        }
+        if ((flags & ITEM_TX_GROUP_ID) != 0) {
+            writeString(out, item.getTxGroupId());
+        }
+        if ((flags & ITEM_CREATE_DATE) != 0) {
+            writeString(out, item.getCreateDate());
+        }
+        if ((flags & ITEM_WAIT_MAX_TIME) != 0) {
+            writeVarInt(out, item.getWaitMaxTime());
+        }
+        if ((flags & ITEM_CONSUME_TIME) != 0) {
+            writeVarLong(out, item.getConsumeTime());
+        }
+        if ((flags & ITEM_MSGS) != 0) {
+            final List<TransactionMsgAdapter> msgs = item.getMsgs();
+            writeVarInt(out, msgs.size());
+            for (TransactionMsgAdapter msg : msgs) {
+                writeMsgAdapter(out, msg);
+            }
+        }
+        if ((flags & ITEM_MESSAGE) != 0) {
+            writeObject(out, item.getMessage());
+        }
+    }
+
+    private TxTransactionItem readItem(ByteBuf in) {
+        final TxTransactionItem item = new TxTransactionItem();
+        final int flags = readVarInt(in);
+        item.setStatus(readVarInt(in));
+        if ((flags & ITEM_TASK_KEY) != 0) {
+            item.setTaskKey(readString(in));
+        }
+        if ((flags & ITEM_MODEL_NAME) != 0) {
+            item.setModelName(readString(in));
+        }
+        if ((flags & ITEM_TM_DOMAIN) != 0) {
+            item.setTmDomain(readString(in));
+        }
+        if ((flags & ITEM_TX_GROUP_ID) != 0) {
+            item.setTxGroupId(readString(in));
+        }
+        if ((flags & ITEM_CREATE_DATE) != 0) {
+            item.setCreateDate(readString(in));
+        }
+        if ((flags & ITEM_WAIT_MAX_TIME) != 0) {
+            item.setWaitMaxTime(readVarInt(in));
+        }
+        if ((flags & ITEM_CONSUME_TIME) != 0) {
+            item.setConsumeTime(readVarLong(in));
+        }
+        if ((flags & ITEM_MSGS) != 0) {
+            final int size = readLength(in);
+            final List<TransactionMsgAdapter> msgs = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                msgs.add(readMsgAdapter(in));
+            }
+            item.setMsgs(msgs);
+        }
+        if ((flags & ITEM_MESSAGE) != 0) {
+            item.setMessage(readObject(in));
+        }
+        return item;
+    }
+
+    private void writeMsgAdapter(ByteBuf out, TransactionMsgAdapter msg) {
+        final int flags = flag(Objects.nonNull(msg.getGroupId()), MSG_GROUP_ID)
+                | flag(Objects.nonNull(msg.getSubTaskId()), MSG_SUB_TASK_ID)
+                | flag(Objects.nonNull(msg.getSource()), MSG_SOURCE)
+                | flag(Objects.nonNull(msg.getTarget()), MSG_TARGET)
+                | flag(Objects.nonNull(msg.getMethod()), MSG_METHOD)
+                | flag(Objects.nonNull(msg.getArgs()), MSG_ARGS)
+                | flag(Objects.nonNull(msg.getArgsType()), MSG_ARGS_TYPE)
+                | flag(Objects.nonNull(msg.getCreateTime()), MSG_CREATE_TIME)
+                | flag(Objects.nonNull(msg.getMessage()), MSG_MESSAGE)
+                | flag(Objects.nonNull(msg.getUpdateTime()), MSG_UPDATE_TIME);
+        writeVarInt(out, flags);
+        writeVarInt(out, msg.getConsumed());
+        writeMsgHeader(out, flags, msg.getGroupId(), msg.getSubTaskId(), msg.getSource(), msg.getTarget(), msg.getMethod());
+        if ((flags & MSG_ARGS) != 0) {
+            writeBytes(out, msg.getArgs());
+        }
+        if ((flags & MSG_ARGS_TYPE) != 0) {
+            writeString(out, msg.getArgsType());
+        }
+        writeMsgTrailer(out, flags, msg.getCreateTime(), msg.getMessage(), msg.getUpdateTime());
+    }
+
+    private TransactionMsgAdapter readMsgAdapter(ByteBuf in) {
+        final TransactionMsgAdapter msg = new TransactionMsgAdapter();
+        final int flags = readVarInt(in);
+        msg.setConsumed(readVarInt(in));
+        msg.setGroupId(readString(in, flags, MSG_GROUP_ID));
+        if ((flags & MSG_SUB_TASK_ID) != 0) {
+            msg.setSubTaskId(readString(in));
+        }
+        msg.setSource(readString(in, flags, MSG_SOURCE));
+        msg.setTarget(readString(in, flags, MSG_TARGET));
+        msg.setMethod(readString(in, flags, MSG_METHOD));
+        if ((flags & MSG_ARGS) != 0) {
+            msg.setArgs(readBytes(in));
+        }
+        msg.setArgsType(readString(in, flags, MSG_ARGS_TYPE));
+        msg.setCreateTime(readVarLong(in, flags, MSG_CREATE_TIME));
+        msg.setMessage(readString(in, flags, MSG_MESSAGE));
+        msg.setUpdateTime(readVarLong(in, flags, MSG_UPDATE_TIME));
+        return msg;
+    }
+
+    private void writeMsg(ByteBuf out, TransactionMsg msg) {
+        final int flags = flag(Objects.nonNull(msg.getGroupId()), MSG_GROUP_ID)
+                | flag(Objects.nonNull(msg.getSubTaskId()), MSG_SUB_TASK_ID)
+                | flag(Objects.nonNull(msg.getSource()), MSG_SOURCE)
+                | flag(Objects.nonNull(msg.getTarget()), MSG_TARGET)
+                | flag(Objects.nonNull(msg.getMethod()), MSG_METHOD)
+                | flag(Objects.nonNull(msg.getArgs()), MSG_ARGS)
+                | flag(Objects.nonNull(msg.getCreateTime()), MSG_CREATE_TIME)
+                | flag(Objects.nonNull(msg.getMessage()), MSG_MESSAGE)
+                | flag(Objects.nonNull(msg.getUpdateTime()), MSG_UPDATE_TIME);
+        writeVarInt(out, flags);
+        writeVarInt(out, msg.getConsumed());
+        writeMsgHeader(out, flags, msg.getGroupId(), msg.getSubTaskId(), msg.getSource(), msg.getTarget(), msg.getMethod());
+        if ((flags & MSG_ARGS) != 0) {
+            writeObject(out, msg.getArgs());
+        }
+        writeMsgTrailer(out, flags, msg.getCreateTime(), msg.getMessage(), msg.getUpdateTime());
+    }
+
+    private TransactionMsg readMsg(ByteBuf in) {
+        final TransactionMsg msg = new TransactionMsg();
+        final int flags = readVarInt(in);
+        msg.setConsumed(readVarInt(in));
+        msg.setGroupId(readString(in, flags, MSG_GROUP_ID));
+        if ((flags & MSG_SUB_TASK_ID) != 0) {
+            msg.setSubTaskId(readString(in));
+        }
+        msg.setSource(readString(in, flags, MSG_SOURCE));
+        msg.setTarget(readString(in, flags, MSG_TARGET));
+        msg.setMethod(readString(in, flags, MSG_METHOD));
+        if ((flags & MSG_ARGS) != 0) {
+            msg.setArgs(readObject(in));
+        }
+        msg.setCreateTime(readVarLong(in, flags, MSG_CREATE_TIME));
+        msg.setMessage(readString(in, flags, MSG_MESSAGE));
+        msg.setUpdateTime(readVarLong(in, flags, MSG_UPDATE_TIME));
+        return msg;
+    }
+
+    private void writeMsgHeader(ByteBuf out, int flags, String groupId, String subTaskId,
+                                String source, String target, String method) {
+        if ((flags & MSG_GROUP_ID) != 0) {
+            writeString(out, groupId);
+        }
+        if ((flags & MSG_SUB_TASK_ID) != 0) {
+            writeString(out, subTaskId);
+        }
+        if ((flags & MSG_SOURCE) != 0) {
+            writeString(out, source);
+        }
+        if ((flags & MSG_TARGET) != 0) {
+            writeString(out, target);
+        }
+        if ((flags & MSG_METHOD) != 0) {
+            writeString(out, method);
+        }
+    }
+
+    private void writeMsgTrailer(ByteBuf out, int flags, Long createTime, String message, Long updateTime) {
+        if ((flags & MSG_CREATE_TIME) != 0) {
+            writeVarLong(out, createTime);
+        }
+        if ((flags & MSG_MESSAGE) != 0) {
+            writeString(out, message);
+        }
+        if ((flags & MSG_UPDATE_TIME) != 0) {
+            writeVarLong(out, updateTime);
+        }
+    }
+
+    /**
+     * Object类型的字段没有固定结构，交给Kryo，int长度写完后回填
+     */
+    private void writeObject(ByteBuf out, Object value) {
+        final int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        kryoSerialize.serialize(out, value);
+        out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+    }
+
+    private Object readObject(ByteBuf in) {
+        final int length = in.readInt();
+        if (length < 0 || length > in.readableBytes()) {
+            throw new CorruptedFrameException("invalid object length: " + length);
+        }
+        return kryoSerialize.deserialize(in.readSlice(length));
+    }
+
+    private static int flag(boolean present, int bit) {
+        return present ? bit : 0;
+    }
+
+    /**
+     * 由 IdWorkerUtils 生成的数字key按varint写，其他（如事务组id）按字符串写
+     * 只接受没有前导0、不超过Long.MAX_VALUE的非负整数，保证解码后的字符串与原来相同
+     */
+    static boolean isNumeric(String key) {
+        if (Objects.isNull(key) || key.isEmpty() || key.length() > MAX_LONG.length()) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            final char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        if (key.length() == MAX_LONG.length() && key.compareTo(MAX_LONG) > 0) {
+            return false;
+        }
+        return key.length() == 1 || key.charAt(0) != '0';
+    }
+
+    private static void writeString(ByteBuf out, String value) {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(ByteBuf in) {
+        final int length = readLength(in);
+        final String value = in.toString(in.readerIndex(), length, StandardCharsets.UTF_8);
+        in.skipBytes(length);
+        return value;
+    }
+
+    private static String readString(ByteBuf in, int flags, int bit) {
+        return (flags & bit) != 0 ? readString(in) : null;
+    }
+
+    private static void writeBytes(ByteBuf out, byte[] value) {
+        writeVarInt(out, value.length);
+        out.writeBytes(value);
+    }
+
+    private static byte[] readBytes(ByteBuf in) {
+        final byte[] value = new byte[readLength(in)];
+        in.readBytes(value);
+        return value;
+    }
+
+    private static int readLength(ByteBuf in) {
+        final int length = readVarInt(in);
+        if (length < 0 || length > in.readableBytes()) {
+            throw new CorruptedFrameException("invalid length: " + length);
+        }
+        return length;
+    }
+
+    static void writeVarInt(ByteBuf out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(ByteBuf in) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final byte b = in.readByte();
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new CorruptedFrameException("malformed varint");
+    }
+
+    static void writeVarLong(ByteBuf out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(ByteBuf in) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = in.readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new CorruptedFrameException("malformed varlong");
+    }
+
+    private static Long readVarLong(ByteBuf in, int flags, int bit) {
+        return (flags & bit) != 0 ? readVarLong(in) : null;
+    }
+}
@@ -1,48 +1,31 @@
-
 package com.blueskykong.tm.common.netty.serizlize.hessian;
 
-import com.blueskykong.tm.common.netty.MessageCodecService;
-import com.google.common.io.Closer;
+import com.blueskykong.tm.common.netty.AbstractMessageCodecService;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-
-public class HessianCodecServiceImpl implements MessageCodecService {
+public class HessianCodecServiceImpl extends AbstractMessageCodecService {
 
     private HessianSerializePool pool = HessianSerializePool.getHessianPoolInstance();
-    private static Closer closer = Closer.create();
-
 
     @Override
-    public void encode(final ByteBuf out, final Object message) throws IOException {
+    protected void serialize(final ByteBuf out, final Object message) {
+        HessianSerialize hessianSerialization = pool.borrow();
         try {
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            closer.register(byteArrayOutputStream);
-            HessianSerialize hessianSerialization = pool.borrow();
-            hessianSerialization.serialize(byteArrayOutputStream, message);
-            byte[] body = byteArrayOutputStream.toByteArray();
-            int dataLength = body.length;
-            out.writeInt(dataLength);
-            out.writeBytes(body);
-            pool.restore(hessianSerialization);
+            hessianSerialization.serialize(new ByteBufOutputStream(out), message);
         } finally {
-            closer.close();
+            pool.restore(hessianSerialization);
         }
     }
 
     @Override
-    public Object decode(byte[] body) throws IOException {
+    public Object decode(final ByteBuf body) {
+        HessianSerialize hessianSerialization = pool.borrow();
         try {
-            ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(body);
-            closer.register(byteArrayInputStream);
-            HessianSerialize hessianSerialization = pool.borrow();
-            Object object = hessianSerialization.deserialize(byteArrayInputStream);
-            pool.restore(hessianSerialization);
-            return object;
+            return hessianSerialization.deserialize(new ByteBufInputStream(body));
         } finally {
-            closer.close();
+            pool.restore(hessianSerialization);
         }
     }
 }
@@ -10,5 +10,9 @@ public class HessianDecoder extends AbstractMessageDecoder {
     public HessianDecoder(MessageCodecService util) {
         super(util);
     }
+
+    public HessianDecoder(MessageCodecService util, int maxFrameLength) {
+        super(util, maxFrameLength);
+    }
 }
 
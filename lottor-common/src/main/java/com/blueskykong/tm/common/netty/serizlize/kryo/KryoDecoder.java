@@ -10,4 +10,8 @@ public class KryoDecoder extends AbstractMessageDecoder {
     public KryoDecoder(MessageCodecService service) {
         super(service);
     }
+
+    public KryoDecoder(MessageCodecService service, int maxFrameLength) {
+        super(service, maxFrameLength);
+    }
 }
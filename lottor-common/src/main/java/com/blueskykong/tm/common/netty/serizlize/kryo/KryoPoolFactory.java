@@ -3,30 +3,45 @@ package com.blueskykong.tm.common.netty.serizlize.kryo;
 
 
 import com.blueskykong.tm.common.netty.bean.LottorRequest;
+import com.blueskykong.tm.common.serializer.KryoRegistry;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.pool.KryoFactory;
 import com.esotericsoftware.kryo.pool.KryoPool;
-import org.objenesis.strategy.StdInstantiatorStrategy;
 
 
 public class KryoPoolFactory {
 
     private static volatile KryoPoolFactory poolFactory = null;
 
-    private KryoFactory factory = () -> {
-        Kryo kryo = new Kryo();
-        kryo.setReferences(false);
-        kryo.register(LottorRequest.class);
-        kryo.setInstantiatorStrategy(new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
-        return kryo;
-    };
+    /**
+     * 解码的LottorRequest通过 {@link LottorRequest#newInstance()} 创建，开启对象池时来自Recycler
+     */
+    private KryoFactory factory = () -> withInstantiator(KryoRegistry.newLegacyKryo());
+
+    private KryoFactory registryFactory = () -> withInstantiator(KryoRegistry.newKryo(false));
 
     private KryoPool pool = new KryoPool.Builder(factory).build();
 
+    private KryoPool registryPool = new KryoPool.Builder(registryFactory).build();
+
     private KryoPoolFactory() {
     }
 
+    /**
+     * 与旧版本兼容的线上格式，只注册LottorRequest
+     */
     public static KryoPool getKryoPoolInstance() {
+        return factory().getPool();
+    }
+
+    /**
+     * 使用完整的 {@link KryoRegistry}，只能用于握手确认对端注册表一致的连接
+     */
+    public static KryoPool getRegistryPoolInstance() {
+        return factory().getRegistryPool();
+    }
+
+    private static KryoPoolFactory factory() {
         if (poolFactory == null) {
             synchronized (KryoPoolFactory.class) {
                 if (poolFactory == null) {
@@ -34,11 +49,20 @@ public class KryoPoolFactory {
                 }
             }
         }
-        return poolFactory.getPool();
+        return poolFactory;
+    }
+
+    private static Kryo withInstantiator(Kryo kryo) {
+        kryo.getRegistration(LottorRequest.class).setInstantiator(LottorRequest::newInstance);
+        return kryo;
     }
 
     public KryoPool getPool() {
         return pool;
     }
+
+    public KryoPool getRegistryPool() {
+        return registryPool;
+    }
 }
 
@@ -1,4 +1,3 @@
-
 package com.blueskykong.tm.common.netty.serizlize.kryo;
 
 import com.blueskykong.tm.common.netty.NettyTransferSerialize;
@@ -6,6 +5,9 @@ import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.pool.KryoPool;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -13,6 +15,20 @@ import java.io.OutputStream;
 
 public class KryoSerialize implements NettyTransferSerialize {
 
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * 每个线程复用Output的缓冲区，序列化结果直接flush到ByteBuf
+     */
+    private static final ThreadLocal<Output> BUF_OUTPUT = ThreadLocal.withInitial(() -> new Output(BUFFER_SIZE, -1));
+
+    /**
+     * 堆内存ByteBuf直接以其底层数组作为Input的缓冲区
+     */
+    private static final ThreadLocal<Input> ARRAY_INPUT = ThreadLocal.withInitial(Input::new);
+
+    private static final ThreadLocal<Input> STREAM_INPUT = ThreadLocal.withInitial(() -> new Input(BUFFER_SIZE));
+
     private KryoPool pool = null;
 
     public KryoSerialize(final KryoPool pool) {
@@ -39,4 +55,37 @@ public class KryoSerialize implements NettyTransferSerialize {
         pool.release(kryo);
         return result;
     }
+
+    public void serialize(ByteBuf out, Object object) {
+        final Kryo kryo = pool.borrow();
+        final Output output = BUF_OUTPUT.get();
+        output.setOutputStream(new ByteBufOutputStream(out));
+        try {
+            kryo.writeClassAndObject(output, object);
+            output.flush();
+        } finally {
+            output.setOutputStream(null);
+            pool.release(kryo);
+        }
+    }
+
+    public Object deserialize(ByteBuf in) {
+        final Kryo kryo = pool.borrow();
+        try {
+            if (in.hasArray()) {
+                final Input input = ARRAY_INPUT.get();
+                input.setBuffer(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes());
+                return kryo.readClassAndObject(input);
+            }
+            final Input input = STREAM_INPUT.get();
+            input.setInputStream(new ByteBufInputStream(in));
+            try {
+                return kryo.readClassAndObject(input);
+            } finally {
+                input.setInputStream(null);
+            }
+        } finally {
+            pool.release(kryo);
+        }
+    }
 }
@@ -2,16 +2,16 @@ package com.blueskykong.tm.common.netty.serizlize.lottor;
 
 import com.blueskykong.tm.common.constant.CommonConstant;
 import com.blueskykong.tm.common.netty.bean.LottorBean;
+import com.blueskykong.tm.common.netty.serizlize.AbstractMessageDecoder;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ByteToMessageDecoder;
-
-import java.util.List;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 
 /**
  * @data 2018/6/9.
  */
-public class LottorDecoder extends ByteToMessageDecoder {
+public class LottorDecoder extends LengthFieldBasedFrameDecoder {
 
     /**
      * <pre>
@@ -21,59 +21,36 @@ public class LottorDecoder extends ByteToMessageDecoder {
      */
     public final int BASE_LENGTH = 4 + 4;
 
-    @Override
-    protected void decode(ChannelHandlerContext ctx, ByteBuf buffer,
-                          List<Object> out) {
-        // 可读长度必须大于基本长度
-        if (buffer.readableBytes() >= BASE_LENGTH) {
-            // 防止socket字节流攻击
-            // 防止，客户端传来的数据过大
-            // 因为，太大的数据，是不合理的
-            if (buffer.readableBytes() > 2048) {
-                buffer.skipBytes(buffer.readableBytes());
-            }
-
-            // 记录包头开始的index
-            int beginReader;
-
-            while (true) {
-                // 获取包头开始的index
-                beginReader = buffer.readerIndex();
-                // 标记包头开始的index
-                buffer.markReaderIndex();
-                // 读到了协议的开始标志，结束while循环
-                if (buffer.readInt() == CommonConstant.HEAD_DATA) {
-                    break;
-                }
-
-                // 未读到包头，略过一个字节
-                // 每次略过，一个字节，去读取，包头信息的开始标记
-                buffer.resetReaderIndex();
-                buffer.readByte();
-
-                // 当略过，一个字节之后，
-                // 数据包的长度，又变得不满足
-                // 此时，应该结束。等待后面的数据到达
-                if (buffer.readableBytes() < BASE_LENGTH) {
-                    return;
-                }
-            }
-
-            // 消息的长度
-            int length = buffer.readInt();
-            // 判断请求数据包数据是否到齐
-            if (buffer.readableBytes() < length) {
-                // 还原读指针
-                buffer.readerIndex(beginReader);
-                return;
-            }
+    public LottorDecoder() {
+        this(AbstractMessageDecoder.DEFAULT_MAX_FRAME_LENGTH);
+    }
 
-            // 读取data数据
-            byte[] data = new byte[length];
-            buffer.readBytes(data);
+    /**
+     * 按照长度字段拆帧，包头不是head_data时不再逐字节查找，直接作为错误的数据流抛出异常
+     *
+     * @param maxFrameLength 最大帧长度，超过时读到长度字段即抛出 TooLongFrameException 并丢弃该帧
+     */
+    public LottorDecoder(int maxFrameLength) {
+        super(maxFrameLength, 4, 4, 0, 0, true);
+    }
 
-            LottorBean protocol = new LottorBean(data.length, data);
-            out.add(protocol);
+    @Override
+    protected Object decode(ChannelHandlerContext ctx, ByteBuf buffer) throws Exception {
+        if (buffer.readableBytes() >= 4 && buffer.getInt(buffer.readerIndex()) != CommonConstant.HEAD_DATA) {
+            buffer.skipBytes(buffer.readableBytes());
+            throw new CorruptedFrameException("invalid head data");
+        }
+        final ByteBuf frame = (ByteBuf) super.decode(ctx, buffer);
+        if (frame == null) {
+            return null;
+        }
+        try {
+            frame.skipBytes(BASE_LENGTH);
+            byte[] data = new byte[frame.readableBytes()];
+            frame.readBytes(data);
+            return new LottorBean(data.length, data);
+        } finally {
+            frame.release();
         }
     }
 
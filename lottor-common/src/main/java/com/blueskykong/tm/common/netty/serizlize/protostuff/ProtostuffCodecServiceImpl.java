@@ -1,46 +1,31 @@
-
 package com.blueskykong.tm.common.netty.serizlize.protostuff;
 
-import com.blueskykong.tm.common.netty.MessageCodecService;
-import com.google.common.io.Closer;
+import com.blueskykong.tm.common.netty.AbstractMessageCodecService;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 
+public class ProtostuffCodecServiceImpl extends AbstractMessageCodecService {
 
-public class ProtostuffCodecServiceImpl implements MessageCodecService {
-    private static Closer closer = Closer.create();
     private ProtostuffSerializePool pool = ProtostuffSerializePool.getProtostuffPoolInstance();
+
     @Override
-    public void encode(final ByteBuf out, final Object message) throws IOException {
+    protected void serialize(final ByteBuf out, final Object message) {
+        ProtostuffSerialize protostuffSerialization = pool.borrow();
         try {
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            closer.register(byteArrayOutputStream);
-            ProtostuffSerialize protostuffSerialization = pool.borrow();
-            protostuffSerialization.serialize(byteArrayOutputStream, message);
-            byte[] body = byteArrayOutputStream.toByteArray();
-            int dataLength = body.length;
-            out.writeInt(dataLength);
-            out.writeBytes(body);
-            pool.restore(protostuffSerialization);
+            protostuffSerialization.serialize(new ByteBufOutputStream(out), message);
         } finally {
-            closer.close();
+            pool.restore(protostuffSerialization);
         }
     }
 
     @Override
-    public Object decode(byte[] body) throws IOException {
+    public Object decode(final ByteBuf body) {
+        ProtostuffSerialize protostuffSerialization = pool.borrow();
         try {
-            ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(body);
-            closer.register(byteArrayInputStream);
-            ProtostuffSerialize protostuffSerialization = pool.borrow();
-            Object obj = protostuffSerialization.deserialize(byteArrayInputStream);
-            pool.restore(protostuffSerialization);
-            return obj;
+            return protostuffSerialization.deserialize(body);
         } finally {
-            //closer.close();
+            pool.restore(protostuffSerialization);
         }
     }
 }
@@ -10,5 +10,9 @@ public class ProtostuffDecoder extends AbstractMessageDecoder {
     public ProtostuffDecoder(MessageCodecService util) {
         super(util);
     }
+
+    public ProtostuffDecoder(MessageCodecService util, int maxFrameLength) {
+        super(util, maxFrameLength);
+    }
 }
 
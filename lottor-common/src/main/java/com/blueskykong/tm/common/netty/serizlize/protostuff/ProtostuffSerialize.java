@@ -6,6 +6,8 @@ import com.blueskykong.tm.common.netty.bean.LottorRequest;
 import com.dyuproject.protostuff.LinkedBuffer;
 import com.dyuproject.protostuff.ProtostuffIOUtil;
 import com.dyuproject.protostuff.Schema;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
 import org.objenesis.Objenesis;
 import org.objenesis.ObjenesisStd;
 
@@ -16,6 +18,12 @@ public class ProtostuffSerialize implements NettyTransferSerialize {
     private static SchemaCache cachedSchema = SchemaCache.getInstance();
     private static Objenesis objenesis = new ObjenesisStd(true);
 
+    /**
+     * 每个线程复用序列化缓冲区
+     */
+    private static final ThreadLocal<LinkedBuffer> BUFFER =
+            ThreadLocal.withInitial(() -> LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE));
+
     private static <T> Schema<T> getSchema(Class<T> cls) {
         return (Schema<T>) cachedSchema.get(cls);
     }
@@ -32,10 +40,31 @@ public class ProtostuffSerialize implements NettyTransferSerialize {
         }
     }
 
+    /**
+     * 堆内存ByteBuf直接从底层数组反序列化
+     *
+     * @param input 消息体
+     * @return LottorRequest
+     */
+    public Object deserialize(ByteBuf input) {
+        if (!input.hasArray()) {
+            return deserialize(new ByteBufInputStream(input));
+        }
+        try {
+            LottorRequest message = objenesis.newInstance(LottorRequest.class);
+            Schema<LottorRequest> schema = getSchema(LottorRequest.class);
+            ProtostuffIOUtil.mergeFrom(input.array(), input.arrayOffset() + input.readerIndex(),
+                    input.readableBytes(), message, schema);
+            return message;
+        } catch (Exception e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
     @Override
     public void serialize(OutputStream output, Object object) {
         Class cls = object.getClass();
-        LinkedBuffer buffer = LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
+        LinkedBuffer buffer = BUFFER.get();
         try {
             Schema schema = getSchema(cls);
             ProtostuffIOUtil.writeTo(output, object, schema, buffer);
@@ -0,0 +1,123 @@
+package com.blueskykong.tm.common.serializer;
+
+import com.blueskykong.tm.common.bean.TransactionRecover;
+import com.blueskykong.tm.common.bean.adapter.TransactionRecoverAdapter;
+import com.blueskykong.tm.common.entity.TransactionMsg;
+import com.blueskykong.tm.common.entity.TransactionMsgAdapter;
+import com.blueskykong.tm.common.netty.bean.LottorRequest;
+import com.blueskykong.tm.common.netty.bean.TxTransactionGroup;
+import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
+import com.esotericsoftware.kryo.Kryo;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Kryo的类注册表，网络传输（KryoPoolFactory）和存储（KryoSerializer）共用
+ * 注册过的类只写一个varint id，不再写全类名
+ * 注意：id按照列表顺序分配，只能在末尾追加，不能调整顺序或删除，否则新旧版本之间无法互相解析
+ * 网络传输默认只注册LottorRequest（{@link #newLegacyKryo()}），与旧版本一致；
+ * 完整的注册表只在握手确认对端也有这张表的连接上使用
+ */
+public final class KryoRegistry {
+
+    /**
+     * 旧版本的 {@code kryo.register(LottorRequest.class)} 分配的id，即Kryo默认注册的基本类型之后的第一个id
+     */
+    public static final int LEGACY_REQUEST_ID = 10;
+
+    /**
+     * 留出Kryo默认注册的基本类型
+     */
+    private static final int FIRST_ID = 100;
+
+    private static final List<Class<?>> CLASSES = Collections.unmodifiableList(Arrays.asList(
+            TxTransactionGroup.class,
+            TxTransactionItem.class,
+            TransactionMsg.class,
+            TransactionMsgAdapter.class,
+            TransactionRecover.class,
+            TransactionRecoverAdapter.class,
+            ArrayList.class,
+            LinkedList.class,
+            HashMap.class,
+            LinkedHashMap.class,
+            HashSet.class,
+            Date.class,
+            Timestamp.class,
+            BigDecimal.class,
+            byte[].class,
+            Object[].class
+    ));
+
+    private static final String FINGERPRINT = computeFingerprint();
+
+    private KryoRegistry() {
+
+    }
+
+    /**
+     * 创建注册好的Kryo实例
+     *
+     * @param references 是否记录引用，网络传输为false，存储沿用Kryo的默认值true，保持与已存储数据的格式一致
+     * @return Kryo
+     */
+    public static Kryo newKryo(boolean references) {
+        Kryo kryo = new Kryo();
+        kryo.setReferences(references);
+        kryo.setInstantiatorStrategy(new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        register(kryo);
+        return kryo;
+    }
+
+    /**
+     * 与旧版本网络传输一致的Kryo实例，只注册LottorRequest，其他类按全类名写入
+     *
+     * @return Kryo
+     */
+    public static Kryo newLegacyKryo() {
+        Kryo kryo = new Kryo();
+        kryo.setReferences(false);
+        kryo.setInstantiatorStrategy(new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        kryo.register(LottorRequest.class, LEGACY_REQUEST_ID);
+        return kryo;
+    }
+
+    public static void register(Kryo kryo) {
+        kryo.register(LottorRequest.class, LEGACY_REQUEST_ID);
+        for (int i = 0; i < CLASSES.size(); i++) {
+            kryo.register(CLASSES.get(i), FIRST_ID + i);
+        }
+    }
+
+    /**
+     * 注册表的指纹，TxManager与客户端不一致时双方无法解析对方的Kryo数据
+     *
+     * @return 指纹
+     */
+    public static String fingerprint() {
+        return FINGERPRINT;
+    }
+
+    private static String computeFingerprint() {
+        final Hasher hasher = Hashing.murmur3_32().newHasher();
+        hasher.putInt(LEGACY_REQUEST_ID).putString(LottorRequest.class.getName(), StandardCharsets.UTF_8);
+        for (int i = 0; i < CLASSES.size(); i++) {
+            hasher.putInt(FIRST_ID + i).putString(CLASSES.get(i).getName(), StandardCharsets.UTF_8);
+        }
+        return hasher.hash().toString();
+    }
+}
@@ -1,4 +1,3 @@
-
 package com.blueskykong.tm.common.serializer;
 
 import com.blueskykong.tm.common.enums.SerializeProtocolEnum;
@@ -7,12 +6,25 @@ import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-
 
 public class KryoSerializer implements ObjectSerializer {
+
+    /**
+     * Kryo实例创建开销很大且不是线程安全的，每个线程复用一个
+     */
+    private static final ThreadLocal<Kryo> KRYO = ThreadLocal.withInitial(() -> KryoRegistry.newKryo(true));
+
+    private static final ThreadLocal<Output> OUTPUT = ThreadLocal.withInitial(() -> new Output(4096, -1));
+
+    private static final ThreadLocal<Input> INPUT = ThreadLocal.withInitial(Input::new);
+
+    /**
+     * 超过该大小的Output缓冲区不再复用，避免线程长期持有大数组
+     */
+    private static final int MAX_RETAINED = 1024 * 1024;
+
+    private static final byte[] EMPTY = new byte[0];
+
     /**
      * 序列化
      *
@@ -22,26 +34,18 @@ public class KryoSerializer implements ObjectSerializer {
      */
     @Override
     public byte[] serialize(Object obj) throws TransactionException {
-        byte[] bytes;
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final Output output = OUTPUT.get();
         try {
-            //获取kryo对象
-            Kryo kryo = new Kryo();
-            Output output = new Output(outputStream);
-            kryo.writeObject(output, obj);
-            bytes = output.toBytes();
-            output.flush();
+            output.clear();
+            KRYO.get().writeObject(output, obj);
+            return output.toBytes();
         } catch (Exception ex) {
             throw new TransactionException("kryo serialize error" + ex.getMessage());
         } finally {
-            try {
-                outputStream.flush();
-                outputStream.close();
-            } catch (IOException e) {
-
+            if (output.getBuffer().length > MAX_RETAINED) {
+                OUTPUT.remove();
             }
         }
-        return bytes;
     }
 
     /**
@@ -53,16 +57,15 @@ public class KryoSerializer implements ObjectSerializer {
      */
     @Override
     public <T> T deSerialize(byte[] param, Class<T> clazz) throws TransactionException {
-        T object;
-        try(ByteArrayInputStream inputStream=new ByteArrayInputStream(param)) {
-            Kryo kryo = new Kryo();
-            Input input = new Input(inputStream);
-            object = kryo.readObject(input, clazz);
-            input.close();
+        final Input input = INPUT.get();
+        try {
+            input.setBuffer(param);
+            return KRYO.get().readObject(input, clazz);
         } catch (Exception e) {
             throw new TransactionException("kryo deSerialize error" + e.getMessage());
+        } finally {
+            input.setBuffer(EMPTY);
         }
-        return object;
     }
 
     /**
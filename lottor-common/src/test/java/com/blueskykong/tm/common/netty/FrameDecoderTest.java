@@ -0,0 +1,125 @@
+package com.blueskykong.tm.common.netty;
+
+import com.blueskykong.tm.common.enums.NettyMessageActionEnum;
+import com.blueskykong.tm.common.enums.SerializeProtocolEnum;
+import com.blueskykong.tm.common.holder.IdWorkerUtils;
+import com.blueskykong.tm.common.netty.bean.HeartbeatFrame;
+import com.blueskykong.tm.common.netty.bean.LottorRequest;
+import com.blueskykong.tm.common.netty.bean.TxTransactionGroup;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * 拆帧的压力和模糊测试
+ * 1. 多个帧拼在一起按照随机大小分片写入，检查全部解出且顺序正确
+ * 2. 随机篡改、截断、超长的数据流只能抛出 DecoderException，不能卡住或者解出错误的帧
+ */
+public class FrameDecoderTest {
+
+    private static final int FRAMES = 100000;
+
+    private static final int FUZZ_ROUNDS = 10000;
+
+    private static final int MAX_FRAME_LENGTH = 64 * 1024;
+
+    public static void main(String[] args) {
+        final Random random = new Random(42);
+        for (SerializeProtocolEnum protocol : SerializeProtocolEnum.values()) {
+            pipelined(protocol, random);
+            fuzz(protocol, random);
+        }
+    }
+
+    private static void pipelined(SerializeProtocolEnum protocol, Random random) {
+        final ByteBuf stream = encode(protocol, FRAMES);
+        final EmbeddedChannel decoder = new EmbeddedChannel(NettyPipelineInit.codecHandlers(protocol, MAX_FRAME_LENGTH)[1]);
+        final long start = System.nanoTime();
+        while (stream.isReadable()) {
+            decoder.writeInbound(stream.readRetainedSlice(Math.min(stream.readableBytes(), 1 + random.nextInt(8192))));
+        }
+        final long nanos = System.nanoTime() - start;
+        for (int i = 0; i < FRAMES; i++) {
+            final Object msg = decoder.readInbound();
+            if (i % 100 == 0) {
+                check(msg == HeartbeatFrame.INSTANCE, protocol + " frame " + i + " should be heartbeat");
+            } else {
+                check(msg instanceof LottorRequest && Objects.equals(((LottorRequest) msg).getMetaInfo(), String.valueOf(i)),
+                        protocol + " frame " + i + " out of order: " + msg);
+            }
+        }
+        check(decoder.readInbound() == null, protocol + " decoded extra frames");
+        stream.release();
+        decoder.finishAndReleaseAll();
+        System.out.printf("%s: %d frames in %d ms%n", protocol, FRAMES, nanos / 1000000);
+    }
+
+    private static void fuzz(SerializeProtocolEnum protocol, Random random) {
+        final ByteBuf valid = encode(protocol, 20);
+        final byte[] template = new byte[valid.readableBytes()];
+        valid.readBytes(template);
+        valid.release();
+        int rejected = 0;
+        for (int round = 0; round < FUZZ_ROUNDS; round++) {
+            final byte[] data = template.clone();
+            for (int i = 0, n = 1 + random.nextInt(8); i < n; i++) {
+                data[random.nextInt(data.length)] = (byte) random.nextInt();
+            }
+            final int length = random.nextInt(data.length + 1);
+            final EmbeddedChannel decoder = new EmbeddedChannel(NettyPipelineInit.codecHandlers(protocol, MAX_FRAME_LENGTH)[1]);
+            try {
+                decoder.writeInbound(Unpooled.wrappedBuffer(data, 0, length));
+                decoder.checkException();
+            } catch (DecoderException e) {
+                //序列化方式对篡改数据抛出的异常同样被包装为DecoderException，由handler的exceptionCaught关闭连接
+                rejected++;
+            } finally {
+                decoder.finishAndReleaseAll();
+            }
+        }
+        final EmbeddedChannel decoder = new EmbeddedChannel(NettyPipelineInit.codecHandlers(protocol, MAX_FRAME_LENGTH)[1]);
+        try {
+            decoder.writeInbound(Unpooled.buffer().writeInt(MAX_FRAME_LENGTH + 1));
+            throw new IllegalStateException(protocol + " oversized frame was not rejected");
+        } catch (DecoderException expected) {
+            decoder.finishAndReleaseAll();
+        }
+        System.out.printf("%s: %d/%d fuzzed streams rejected%n", protocol, rejected, FUZZ_ROUNDS);
+    }
+
+    private static ByteBuf encode(SerializeProtocolEnum protocol, int frames) {
+        final EmbeddedChannel encoder = new EmbeddedChannel(NettyPipelineInit.codecHandlers(protocol, MAX_FRAME_LENGTH)[0]);
+        final ByteBuf stream = Unpooled.buffer();
+        for (int i = 0; i < frames; i++) {
+            encoder.writeOutbound(i % 100 == 0 ? HeartbeatFrame.INSTANCE : request(i));
+            for (ByteBuf buf = encoder.readOutbound(); buf != null; buf = encoder.readOutbound()) {
+                stream.writeBytes(buf);
+                buf.release();
+            }
+        }
+        encoder.finishAndReleaseAll();
+        return stream;
+    }
+
+    private static LottorRequest request(int i) {
+        final LottorRequest request = new LottorRequest();
+        request.setAction(NettyMessageActionEnum.CREATE_GROUP.getCode());
+        request.setKey(String.valueOf(IdWorkerUtils.getInstance().nextId()));
+        request.setMetaInfo(String.valueOf(i));
+        final TxTransactionGroup group = new TxTransactionGroup();
+        group.setId(IdWorkerUtils.getInstance().createGroupId());
+        group.setSource("fuzz");
+        request.setTxTransactionGroup(group);
+        return request;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.blueskykong.tm.common.netty.serizlize.compact;
+
+import com.blueskykong.tm.common.entity.TransactionMsg;
+import com.blueskykong.tm.common.entity.TransactionMsgAdapter;
+import com.blueskykong.tm.common.enums.NettyMessageActionEnum;
+import com.blueskykong.tm.common.enums.NettyResultEnum;
+import com.blueskykong.tm.common.holder.IdWorkerUtils;
+import com.blueskykong.tm.common.netty.bean.LottorRequest;
+import com.blueskykong.tm.common.netty.bean.TxTransactionGroup;
+import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 手写紧凑格式的往返测试
+ * 1. 所有字段都有值、都为空、边界值的请求编码再解码后逐个字段比较，新增字段没有写入时在这里暴露
+ * 2. 数字key的边界：Long.MAX_VALUE、溢出、前导0、负数都要原样还原
+ */
+public class CompactSerializeTest {
+
+    /**
+     * 不在线上传输的字段：instanceId由TxManager收到后记录
+     */
+    private static final Set<String> NOT_TRANSMITTED = new HashSet<>(Collections.singletonList("TxTransactionItem.instanceId"));
+
+    private static final CompactSerialize SERIALIZE = new CompactSerialize();
+
+    public static void main(String[] args) {
+        numericKeys();
+        roundTrip("full", full(String.valueOf(IdWorkerUtils.getInstance().nextId())));
+        roundTrip("empty", new LottorRequest());
+        roundTrip("blank", blank());
+        for (String key : Arrays.asList("0", "7", "9223372036854775807", "9223372036854775808",
+                "9999999999999999999", "10000000000000000000", "0123", "-1", "", "12a", "事务")) {
+            roundTrip("key " + key, full(key));
+        }
+        System.out.println("compact round trip passed");
+    }
+
+    private static void numericKeys() {
+        check(CompactSerialize.isNumeric("0"), "0 is numeric");
+        check(CompactSerialize.isNumeric("9223372036854775807"), "Long.MAX_VALUE is numeric");
+        check(!CompactSerialize.isNumeric("9223372036854775808"), "Long.MAX_VALUE + 1 overflows");
+        check(!CompactSerialize.isNumeric("9999999999999999999"), "19 nines overflow");
+        check(!CompactSerialize.isNumeric("10000000000000000000"), "20 digits overflow");
+        check(!CompactSerialize.isNumeric("0123"), "leading zero is kept as a string");
+        check(!CompactSerialize.isNumeric("-1"), "negative is kept as a string");
+        check(!CompactSerialize.isNumeric(""), "empty is not numeric");
+        check(!CompactSerialize.isNumeric(null), "null is not numeric");
+    }
+
+    private static void roundTrip(String name, LottorRequest request) {
+        final ByteBuf buf = Unpooled.buffer();
+        try {
+            SERIALIZE.serialize(buf, request);
+            final LottorRequest decoded = SERIALIZE.deserialize(buf);
+            check(!buf.isReadable(), name + ": " + buf.readableBytes() + " bytes left after decode");
+            compare(name, LottorRequest.class.getSimpleName(), request, decoded);
+        } finally {
+            buf.release();
+        }
+    }
+
+    private static LottorRequest full(String key) {
+        final LottorRequest request = new LottorRequest();
+        request.setAction(NettyMessageActionEnum.CREATE_GROUP.getCode());
+        request.setResult(NettyResultEnum.TIME_OUT.getCode());
+        request.setKey(key);
+        request.setMetaInfo("order-service:192.168.1.10:8080");
+        request.setSerialProtocol("compact");
+
+        final TxTransactionItem item = new TxTransactionItem();
+        item.setTaskKey(String.valueOf(IdWorkerUtils.getInstance().nextId()));
+        item.setStatus(-1);
+        item.setModelName("订单服务");
+        item.setTmDomain("10.0.0.1:9998");
+        item.setTxGroupId(IdWorkerUtils.getInstance().createGroupId());
+        item.setCreateDate("2018-03-01 12:00:00");
+        item.setWaitMaxTime(Integer.MAX_VALUE);
+        item.setConsumeTime(Long.MIN_VALUE);
+        item.setMessage(new Object[]{"failed", 42, Long.MAX_VALUE});
+        final List<TransactionMsgAdapter> msgs = new ArrayList<>();
+        msgs.add(adapter(true));
+        msgs.add(adapter(false));
+        item.setMsgs(msgs);
+
+        final TxTransactionGroup group = new TxTransactionGroup();
+        group.setId(item.getTxGroupId());
+        group.setWaitTime(-5);
+        group.setSource("order-service");
+        group.setTarget("");
+        group.setStatus(Integer.MIN_VALUE);
+        group.setItem(item);
+        request.setTxTransactionGroup(group);
+
+        final TransactionMsg msg = new TransactionMsg();
+        msg.setGroupId(group.getId());
+        msg.setSubTaskId("sub-1");
+        msg.setSource("order-service");
+        msg.setTarget("stock-service");
+        msg.setMethod("reduce");
+        msg.setArgs(new Object[]{"sku-1", 3});
+        msg.setCreateTime(0L);
+        msg.setMessage("ok");
+        msg.setUpdateTime(Long.MAX_VALUE);
+        msg.setConsumed(2);
+        request.setTransactionMsg(msg);
+        return request;
+    }
+
+    /**
+     * 嵌套对象存在但所有可空字段为空
+     */
+    private static LottorRequest blank() {
+        final LottorRequest request = new LottorRequest();
+        final TxTransactionGroup group = new TxTransactionGroup();
+        final TxTransactionItem item = new TxTransactionItem();
+        item.setMsgs(new ArrayList<>());
+        group.setItem(item);
+        request.setTxTransactionGroup(group);
+        final TransactionMsg msg = new TransactionMsg();
+        msg.setCreateTime(null);
+        request.setTransactionMsg(msg);
+        return request;
+    }
+
+    private static TransactionMsgAdapter adapter(boolean full) {
+        final TransactionMsgAdapter adapter = new TransactionMsgAdapter();
+        if (full) {
+            adapter.setGroupId("group");
+            adapter.setSubTaskId("sub");
+            adapter.setSource("a");
+            adapter.setTarget("b");
+            adapter.setMethod("m");
+            adapter.setArgs(new byte[]{0, -1, 127, -128});
+            adapter.setArgsType("java.lang.Object[]");
+            adapter.setMessage("");
+            adapter.setUpdateTime(1L);
+            adapter.setConsumed(-3);
+        } else {
+            adapter.setCreateTime(null);
+        }
+        return adapter;
+    }
+
+    /**
+     * 逐个字段比较，项目内的bean递归比较，其他类型按值比较
+     */
+    private static void compare(String name, String path, Object expected, Object actual) {
+        if (Objects.isNull(expected) || Objects.isNull(actual)) {
+            check(expected == actual, name + ": " + path + " expected " + expected + " but was " + actual);
+            return;
+        }
+        final Class<?> type = expected.getClass();
+        check(type == actual.getClass(), name + ": " + path + " type " + type + " but was " + actual.getClass());
+        if (expected instanceof Collection) {
+            final List<?> expectedList = new ArrayList<>((Collection<?>) expected);
+            final List<?> actualList = new ArrayList<>((Collection<?>) actual);
+            check(expectedList.size() == actualList.size(), name + ": " + path + " size differs");
+            for (int i = 0; i < expectedList.size(); i++) {
+                compare(name, path + "[" + i + "]", expectedList.get(i), actualList.get(i));
+            }
+            return;
+        }
+        if (!type.getName().startsWith("com.blueskykong.tm.")) {
+            check(Objects.deepEquals(expected, actual), name + ": " + path + " expected "
+                    + Arrays.deepToString(new Object[]{expected}) + " but was " + Arrays.deepToString(new Object[]{actual}));
+            return;
+        }
+        for (Field field : type.getDeclaredFields()) {
+            final int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+                    || NOT_TRANSMITTED.contains(type.getSimpleName() + "." + field.getName())) {
+                continue;
+            }
+            field.setAccessible(true);
+            try {
+                compare(name, path + "." + field.getName(), field.get(expected), field.get(actual));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
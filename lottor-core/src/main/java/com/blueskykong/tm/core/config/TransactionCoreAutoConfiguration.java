@@ -118,21 +118,27 @@ public class TransactionCoreAutoConfiguration {
     @Configuration
     protected static class TransactionHandler {
         @Bean
-        public TxTransactionHandler consumedTransactionHandler(TxManagerMessageService txManagerMessageService, TxOperateService txOperateService) {
-            return new ConsumedTransactionHandler(txManagerMessageService, txOperateService);
+        public TxTransactionHandler consumedTransactionHandler(TxManagerMessageService txManagerMessageService, TxOperateService txOperateService,
+                                                               TransactionThreadPool transactionThreadPool) {
+            return new ConsumedTransactionHandler(txManagerMessageService, txOperateService,
+                    transactionThreadPool.getCompensationExecutor());
         }
 
         @Bean
-        public TxTransactionHandler confirmTxTransactionHandler(TxManagerMessageService txManagerMessageService, TxOperateCommand txOperateCommand) {
-            return new ConfirmTxTransactionHandler(txManagerMessageService, txOperateCommand);
+        public TxTransactionHandler confirmTxTransactionHandler(TxManagerMessageService txManagerMessageService, TxOperateCommand txOperateCommand,
+                                                                TransactionThreadPool transactionThreadPool) {
+            return new ConfirmTxTransactionHandler(txManagerMessageService, txOperateCommand,
+                    transactionThreadPool.getCompensationExecutor());
         }
 
         @Bean
         public TxTransactionHandler startTxTransactionHandler(TxManagerMessageService txManagerMessageService,
                                                               TxOperateCommand txOperateCommand,
                                                               ObjectSerializer objectSerializer,
-                                                              ModelNameService modelNameService) {
-            return new StartTxTransactionHandler(txManagerMessageService, txOperateCommand, objectSerializer, modelNameService);
+                                                              ModelNameService modelNameService,
+                                                              TransactionThreadPool transactionThreadPool) {
+            return new StartTxTransactionHandler(txManagerMessageService, txOperateCommand, objectSerializer, modelNameService,
+                    transactionThreadPool.getCompensationExecutor());
         }
     }
 
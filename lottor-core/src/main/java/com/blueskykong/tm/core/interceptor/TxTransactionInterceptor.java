@@ -4,6 +4,9 @@ package com.blueskykong.tm.core.interceptor;
 import com.blueskykong.tm.common.enums.OperationEnum;
 import org.aspectj.lang.ProceedingJoinPoint;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  *
  */
@@ -18,4 +21,14 @@ public interface TxTransactionInterceptor {
      * @ 异常
      */
     Object interceptor(Object[] pjp, OperationEnum operationEnum);
+
+    /**
+     * 事务切面的异步拦截方法
+     *
+     * @param pjp spring事务切点
+     * @return CompletionStage
+     */
+    default CompletionStage<Object> interceptorAsync(Object[] pjp, OperationEnum operationEnum) {
+        return CompletableFuture.completedFuture(interceptor(pjp, operationEnum));
+    }
 }
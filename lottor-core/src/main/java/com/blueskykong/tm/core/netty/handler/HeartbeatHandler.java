@@ -0,0 +1,54 @@
+package com.blueskykong.tm.core.netty.handler;
+
+import com.blueskykong.tm.common.netty.bean.HeartbeatFrame;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * 记录channel最近一次读写的时间，由共享的心跳调度判断是否需要发送心跳
+ * 有业务消息往来时不再发送心跳，收到的心跳帧在这里丢弃
+ * TxManager确认注册之前心跳仍然使用 HEART 类型的 LottorRequest，旧版本TxManager不能解析空的心跳帧
+ */
+public class HeartbeatHandler extends ChannelDuplexHandler {
+
+    private volatile long lastReadTime = System.currentTimeMillis();
+
+    private volatile long lastWriteTime = lastReadTime;
+
+    private volatile boolean heartbeatFrame;
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        lastReadTime = System.currentTimeMillis();
+        if (msg == HeartbeatFrame.INSTANCE) {
+            return;
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        lastWriteTime = System.currentTimeMillis();
+        ctx.write(msg, promise);
+    }
+
+    public long getLastReadTime() {
+        return lastReadTime;
+    }
+
+    public long getLastWriteTime() {
+        return lastWriteTime;
+    }
+
+    /**
+     * @return true TxManager确认过注册，可以发送 {@link HeartbeatFrame}
+     */
+    public boolean isHeartbeatFrame() {
+        return heartbeatFrame;
+    }
+
+    public void setHeartbeatFrame(boolean heartbeatFrame) {
+        this.heartbeatFrame = heartbeatFrame;
+    }
+}
@@ -3,19 +3,23 @@ package com.blueskykong.tm.core.netty.handler;
 import com.blueskykong.tm.common.config.TxConfig;
 import com.blueskykong.tm.common.enums.SerializeProtocolEnum;
 import com.blueskykong.tm.common.netty.NettyPipelineInit;
+import com.blueskykong.tm.core.netty.pool.TxManagerCluster;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AttributeKey;
 import io.netty.util.concurrent.DefaultEventExecutorGroup;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.TimeUnit;
-
 @Component
 public class NettyClientHandlerInitializer extends ChannelInitializer<SocketChannel> {
 
+    /**
+     * 连接的TxManager与本地的Kryo注册表一致，连接时通过 {@code Bootstrap#attr} 设置
+     */
+    public static final AttributeKey<Boolean> KRYO_REGISTRY = AttributeKey.valueOf("lottor.kryoRegistry");
 
     private final NettyClientMessageHandler nettyClientMessageHandler;
 
@@ -39,15 +43,30 @@ public class NettyClientHandlerInitializer extends ChannelInitializer<SocketChan
         this.nettyClientMessageHandler = nettyClientMessageHandler;
     }
 
+    public void setCluster(TxManagerCluster cluster) {
+        nettyClientMessageHandler.setCluster(cluster);
+    }
+
     public void setSerializeProtocolEnum(SerializeProtocolEnum serializeProtocolEnum) {
         this.serializeProtocolEnum = serializeProtocolEnum;
     }
 
+    public static boolean kryoRegistryOf(Channel channel) {
+        return Boolean.TRUE.equals(channel.attr(KRYO_REGISTRY).get());
+    }
+
     @Override
     protected void initChannel(SocketChannel socketChannel) throws Exception {
         final ChannelPipeline pipeline = socketChannel.pipeline();
-        NettyPipelineInit.serializePipeline(serializeProtocolEnum, pipeline);
-        pipeline.addLast("timeout", new IdleStateHandler(txConfig.getHeartTime(), txConfig.getHeartTime(), txConfig.getHeartTime(), TimeUnit.SECONDS));
+        if (txConfig.isFlushConsolidation()) {
+            NettyPipelineInit.flushPipeline(pipeline, txConfig.getExplicitFlushAfterFlushes(), txConfig.isWriteBatching());
+        }
+        NettyPipelineInit.serializePipeline(serializeProtocolEnum, pipeline, txConfig.getMaxFrameLength(),
+                kryoRegistryOf(socketChannel));
+        if (txConfig.getBatchLinger() > 0) {
+            pipeline.addLast("batch", new RequestBatchHandler(txConfig.getBatchLinger(), txConfig.getBatchMaxSize()));
+        }
+        pipeline.addLast("heartbeat", new HeartbeatHandler());
         pipeline.addLast(nettyClientMessageHandler);
 
     }
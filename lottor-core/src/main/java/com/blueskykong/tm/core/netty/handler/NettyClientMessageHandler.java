@@ -1,32 +1,40 @@
 package com.blueskykong.tm.core.netty.handler;
 
-import com.blueskykong.tm.common.concurrent.task.BlockTask;
-import com.blueskykong.tm.common.concurrent.task.BlockTaskHelper;
+import com.blueskykong.tm.common.concurrent.task.PendingRequestHelper;
 import com.blueskykong.tm.common.config.TxConfig;
 import com.blueskykong.tm.common.entity.TransactionMsg;
 import com.blueskykong.tm.common.enums.NettyMessageActionEnum;
 import com.blueskykong.tm.common.enums.NettyResultEnum;
+import com.blueskykong.tm.common.enums.SerializeProtocolEnum;
 import com.blueskykong.tm.common.helper.SpringBeanUtils;
 import com.blueskykong.tm.common.holder.IdWorkerUtils;
 import com.blueskykong.tm.common.holder.LogUtil;
+import com.blueskykong.tm.common.netty.bean.BatchFrame;
+import com.blueskykong.tm.common.netty.bean.HandshakeFrame;
+import com.blueskykong.tm.common.netty.bean.HeartbeatFrame;
 import com.blueskykong.tm.common.netty.bean.LottorRequest;
 import com.blueskykong.tm.common.netty.bean.TxTransactionGroup;
-import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
+import com.blueskykong.tm.common.netty.compress.FrameCompressor;
 import com.blueskykong.tm.core.compensation.command.TxOperateCommand;
 import com.blueskykong.tm.core.netty.NettyClientService;
+import com.blueskykong.tm.core.netty.pool.TxManagerChannelPool;
+import com.blueskykong.tm.core.netty.pool.TxManagerCluster;
 import com.blueskykong.tm.core.service.ModelNameService;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
-import io.netty.handler.timeout.IdleState;
-import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.ReferenceCountUtil;
-import io.netty.util.concurrent.ScheduledFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  *
@@ -36,18 +44,18 @@ public class NettyClientMessageHandler extends ChannelInboundHandlerAdapter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NettyClientMessageHandler.class);
 
-    public volatile static boolean net_state = false;
-
-    private static volatile ChannelHandlerContext ctx;
-
-    private static final LottorRequest HEART_BEAT = new LottorRequest();
-
     private TxConfig txConfig;
 
     public void setTxConfig(TxConfig txConfig) {
         this.txConfig = txConfig;
     }
 
+    private volatile TxManagerCluster cluster;
+
+    public void setCluster(TxManagerCluster cluster) {
+        this.cluster = cluster;
+    }
+
     private ModelNameService modelNameService;
 
     private TxOperateCommand txOperateCommand;
@@ -60,7 +68,10 @@ public class NettyClientMessageHandler extends ChannelInboundHandlerAdapter {
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, final Object msg) {
-        net_state = true;
+        if (msg instanceof BatchFrame) {
+            ((BatchFrame) msg).getRequests().forEach(request -> channelRead(ctx, request));
+            return;
+        }
         LottorRequest lottorRequest = (LottorRequest) msg;
         String server_ctx = ctx.channel().remoteAddress().toString();
         final NettyMessageActionEnum actionEnum = NettyMessageActionEnum.acquireByCode(lottorRequest.getAction());
@@ -68,9 +79,26 @@ public class NettyClientMessageHandler extends ChannelInboundHandlerAdapter {
         try {
             switch (actionEnum) {
                 case HEART:
+                    if ((lottorRequest.getResult() & IdWorkerUtils.WORKER_ID_CONFLICT) != 0) {
+                        LogUtil.error(LOGGER, "TxManager {} rejected registration, workerId {} is used by another instance, configure a unique tx.core.workerId",
+                                () -> server_ctx, IdWorkerUtils.getInstance()::getWorkerId);
+                        break;
+                    }
+                    //只认TxManager设置了确认位的回复，旧版本TxManager原样写回的注册消息带有客户端自己声明的能力位
+                    final boolean acknowledged = (lottorRequest.getResult() & HeartbeatFrame.ACK) != 0;
+                    final HeartbeatHandler heartbeatHandler = ctx.pipeline().get(HeartbeatHandler.class);
+                    if (acknowledged && Objects.nonNull(heartbeatHandler)) {
+                        heartbeatHandler.setHeartbeatFrame(true);
+                    }
+                    if (acknowledged && txConfig.isCompress() && (lottorRequest.getResult() & FrameCompressor.CAPABILITY) != 0) {
+                        FrameCompressor.enable(ctx.channel(), txConfig.getCompressThreshold());
+                    }
+                    if (acknowledged && txConfig.getBatchLinger() > 0 && (lottorRequest.getResult() & BatchFrame.CAPABILITY) != 0) {
+                        RequestBatchHandler.enable(ctx.channel());
+                    }
                     break;
                 case RECEIVE:
-                    receivedCommand(lottorRequest.getKey(), lottorRequest.getResult());
+                    PendingRequestHelper.getInstance().complete(lottorRequest.getKey(), lottorRequest);
                     break;
                 case ROLLBACK:
                     notify(lottorRequest);
@@ -82,7 +110,7 @@ public class NettyClientMessageHandler extends ChannelInboundHandlerAdapter {
                     LottorRequest replyTxGroup = txOperateCommand.getTxGroupStatus(lottorRequest.getKey());
                     if (Objects.nonNull(replyTxGroup)) {
                         replyTxGroup.setAction(NettyMessageActionEnum.SYNC_TX_STATUS.getCode());
-                        ctx.writeAndFlush(replyTxGroup);
+                        ctx.write(replyTxGroup);
                     }
                     break;
                 case GET_TRANSACTION_MSG_STATUS:
@@ -93,12 +121,10 @@ public class NettyClientMessageHandler extends ChannelInboundHandlerAdapter {
                     }
                     replyTxMsg.setKey(lottorRequest.getKey());
                     replyTxMsg.setAction(NettyMessageActionEnum.GET_TRANSACTION_MSG_STATUS.getCode());
-                    ctx.writeAndFlush(replyTxMsg);
+                    ctx.write(replyTxMsg);
                     break;
                 case FIND_TRANSACTION_GROUP_INFO:
-                    final BlockTask task = BlockTaskHelper.getInstance().getTask(lottorRequest.getKey());
-                    task.setAsyncCall(objects -> lottorRequest.getTxTransactionGroup());
-                    task.signal();
+                    PendingRequestHelper.getInstance().complete(lottorRequest.getKey(), lottorRequest);
                     break;
                 default:
                     break;
@@ -110,22 +136,15 @@ public class NettyClientMessageHandler extends ChannelInboundHandlerAdapter {
     }
 
     private void notify(LottorRequest lottorRequest) {
-        final TxTransactionItem item = lottorRequest.getTxTransactionGroup()
-                .getItem();
-        if (Objects.nonNull(item)) {
-            final BlockTask task = BlockTaskHelper.getInstance().getTask(item.getTaskKey());
-            task.setAsyncCall(objects -> item.getStatus());
-            task.signal();
+        final TxTransactionGroup txTransactionGroup = lottorRequest.getTxTransactionGroup();
+        if (Objects.nonNull(txTransactionGroup) && Objects.nonNull(txTransactionGroup.getItem())) {
+            PendingRequestHelper.getInstance().complete(txTransactionGroup.getItem().getTaskKey(), lottorRequest);
         }
     }
 
-    private void receivedCommand(String key, int result) {
-        final BlockTask blockTask = BlockTaskHelper.getInstance().getTask(key);
-        if (Objects.nonNull(blockTask)) {
-            blockTask.setAsyncCall(objects -> result == NettyResultEnum.SUCCESS.getCode());
-            blockTask.signal();
-        }
-//        LogUtil.debug(LOGGER, () -> "create tx-group successful!");
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        ctx.flush();
     }
 
     @Override
@@ -144,6 +163,9 @@ public class NettyClientMessageHandler extends ChannelInboundHandlerAdapter {
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         LogUtil.info(LOGGER, "与服务器断开连接服务器");
         super.channelInactive(ctx);
+        if (Objects.nonNull(cluster)) {
+            cluster.detach(ctx.channel());
+        }
         SpringBeanUtils.getInstance().getBean(NettyClientService.class).doConnect();
 
     }
@@ -151,34 +173,32 @@ public class NettyClientMessageHandler extends ChannelInboundHandlerAdapter {
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
         super.channelActive(ctx);
-        this.ctx = ctx;
         LogUtil.info(LOGGER, "建立链接-->" + ctx);
-        net_state = true;
+        if (txConfig.isCodecHandshake()) {
+            final int version = NettyClientHandlerInitializer.kryoRegistryOf(ctx.channel())
+                    ? HandshakeFrame.REGISTRY_VERSION : HandshakeFrame.LEGACY_VERSION;
+            ctx.write(new HandshakeFrame(version, SerializeProtocolEnum.acquireSerializeProtocol(txConfig.getNettySerializer())));
+        }
+        ctx.writeAndFlush(buildRegister());
     }
 
-
-    @Override
-    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
-        //心跳配置
-        if (IdleStateEvent.class.isAssignableFrom(evt.getClass())) {
-            IdleStateEvent event = (IdleStateEvent) evt;
-            if (event.state() == IdleState.READER_IDLE) {
-                SpringBeanUtils.getInstance().getBean(NettyClientService.class).doConnect();
-            } else if (event.state() == IdleState.WRITER_IDLE) {
-                //表示已经多久没有发送数据了
-                HEART_BEAT.setAction(NettyMessageActionEnum.HEART.getCode());
-                HEART_BEAT.setMetaInfo(modelNameService.findClientMetaInfo());
-                HEART_BEAT.setSerialProtocol(this.txConfig.getNettySerializer());
-                TxTransactionGroup group = new TxTransactionGroup();
-                group.setSource(modelNameService.findModelName());
-                HEART_BEAT.setTxTransactionGroup(group);
-                ctx.writeAndFlush(HEART_BEAT);
-                LogUtil.debug(LOGGER, () -> "向服务端发送的心跳");
-            } else if (event.state() == IdleState.ALL_IDLE) {
-                //表示已经多久既没有收到也没有发送数据了
-                SpringBeanUtils.getInstance().getBean(NettyClientService.class).doConnect();
-            }
-        }
+    /**
+     * 客户端注册信息，只在建立连接时发送一次，TxManager确认后心跳只发送 {@link HeartbeatFrame}
+     */
+    private LottorRequest buildRegister() {
+        LottorRequest register = new LottorRequest();
+        register.setAction(NettyMessageActionEnum.HEART.getCode());
+        register.setMetaInfo(modelNameService.findClientMetaInfo());
+        register.setSerialProtocol(this.txConfig.getNettySerializer());
+        //注册心跳不需要请求key，用来携带workerId，TxManager检查是否与其他实例冲突
+        register.setKey(String.valueOf(IdWorkerUtils.getInstance().getWorkerId()));
+        //声明支持的能力，TxManager确认后才开启
+        register.setResult((txConfig.isCompress() ? FrameCompressor.CAPABILITY : 0)
+                | (txConfig.getBatchLinger() > 0 ? BatchFrame.CAPABILITY : 0));
+        TxTransactionGroup group = new TxTransactionGroup();
+        group.setSource(modelNameService.findModelName());
+        register.setTxTransactionGroup(group);
+        return register;
     }
 
 
@@ -189,45 +209,134 @@ public class NettyClientMessageHandler extends ChannelInboundHandlerAdapter {
      * @return Object
      */
     public Object sendTxManagerMessage(LottorRequest lottorRequest) {
-        if (ctx != null && ctx.channel() != null && ctx.channel().isActive()) {
-            final String sendKey = IdWorkerUtils.getInstance().createTaskKey();
-            BlockTask sendTask = BlockTaskHelper.getInstance().getTask(sendKey);
-            lottorRequest.setKey(sendKey);
-            ctx.writeAndFlush(lottorRequest);
-            final ScheduledFuture<?> schedule = ctx.executor()
-                    .schedule(() -> {
-                        if (!sendTask.isNotify()) {
-                            if (NettyMessageActionEnum.GET_TRANSACTION_GROUP_STATUS.getCode()
-                                    == lottorRequest.getAction()) {
-                                sendTask.setAsyncCall(objects -> NettyResultEnum.TIME_OUT.getCode());
-                            } else if (NettyMessageActionEnum.FIND_TRANSACTION_GROUP_INFO.getCode() == lottorRequest.getAction()) {
-                                sendTask.setAsyncCall(objects -> null);
-                            } else {
-                                sendTask.setAsyncCall(objects -> false);
-                            }
-                            sendTask.signal();
-                        }
-                    }, txConfig.getDelayTime(), TimeUnit.SECONDS);
-            //发送线程在此等待，等tm是否 正确返回（正确返回唤醒） 返回错误或者无返回通过上面的调度线程唤醒
-            sendTask.await();
-
-            //如果已经被唤醒，就不需要去执行调度线程了 ，关闭上面的调度线程池中的任务
-            if (!schedule.isDone()) {
-                schedule.cancel(false);
-            }
-            try {
-                return sendTask.getAsyncCall().callBack();
-            } catch (Throwable throwable) {
-                throwable.printStackTrace();
-                return null;
-            } finally {
-                BlockTaskHelper.getInstance().removeByKey(sendKey);
-            }
+        //写出后请求可能已被编码器回收，先取出需要的字段
+        final int action = lottorRequest.getAction();
+        final long pendingKey = IdWorkerUtils.getInstance().nextId();
+        final CompletableFuture<LottorRequest> future = send(lottorRequest, pendingKey);
+        if (Objects.isNull(future)) {
+            return null;
+        }
+        //发送线程在此等待配置的超时时间，等tm是否 正确返回（正确返回唤醒） 返回错误或者无返回由时间轮或者等待超时唤醒
+        try {
+            return resolveReply(action, future.get(timeoutMillis(action), TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            return timeoutReply(action);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return timeoutReply(action);
+        } catch (ExecutionException e) {
+            LogUtil.error(LOGGER, "send message to TxManager failed for {}", () -> e.getCause().getMessage());
+            return null;
+        } finally {
+            PendingRequestHelper.getInstance().removeByKey(pendingKey);
+        }
+    }
 
-        } else {
+    /**
+     * 向TxManager 发消息，不阻塞调用线程
+     * 超时或者发送失败时，返回值与 {@link #sendTxManagerMessage(LottorRequest)} 一致
+     *
+     * @param lottorRequest 定义的数据传输对象
+     * @return CompletionStage
+     */
+    public CompletionStage<Object> sendTxManagerMessageAsync(LottorRequest lottorRequest) {
+        final int action = lottorRequest.getAction();
+        final CompletableFuture<LottorRequest> future = send(lottorRequest, IdWorkerUtils.getInstance().nextId());
+        if (Objects.isNull(future)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return future.thenApply(reply -> resolveReply(action, reply));
+    }
+
+    /**
+     * 注册等待的请求并写出，连接不可用时返回null
+     * 写出失败时立即以空响应唤醒等待方
+     */
+    private CompletableFuture<LottorRequest> send(LottorRequest lottorRequest, long pendingKey) {
+        final Channel channel = acquireChannel(lottorRequest);
+        if (Objects.isNull(channel)) {
             return null;
         }
+        final CompletableFuture<LottorRequest> future = PendingRequestHelper.getInstance()
+                .register(pendingKey, timeoutMillis(lottorRequest.getAction()));
+        lottorRequest.setKey(String.valueOf(pendingKey));
+        TxManagerChannelPool.increment(channel);
+        future.whenComplete((reply, e) -> TxManagerChannelPool.decrement(channel));
+        channel.writeAndFlush(lottorRequest).addListener((ChannelFutureListener) writeFuture -> {
+            if (!writeFuture.isSuccess()) {
+                PendingRequestHelper.getInstance().complete(pendingKey, null);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 同一事务组的消息发送到hash环上的同一个TxManager
+     */
+    private Channel acquireChannel(LottorRequest lottorRequest) {
+        final TxManagerCluster current = cluster;
+        return Objects.isNull(current) ? null : current.acquire(routeKey(lottorRequest));
+    }
+
+    private String routeKey(LottorRequest lottorRequest) {
+        final TxTransactionGroup txTransactionGroup = lottorRequest.getTxTransactionGroup();
+        if (Objects.nonNull(txTransactionGroup)) {
+            return txTransactionGroup.getId();
+        }
+        final TransactionMsg transactionMsg = lottorRequest.getTransactionMsg();
+        if (Objects.nonNull(transactionMsg)) {
+            return transactionMsg.getGroupId();
+        }
+        return null;
+    }
 
+    /**
+     * 按请求类型区分等待响应的超时时间，未配置时使用delayTime
+     */
+    private long timeoutMillis(int action) {
+        final NettyMessageActionEnum actionEnum = NettyMessageActionEnum.acquireByCode(action);
+        int timeout;
+        switch (actionEnum) {
+            case GET_TRANSACTION_GROUP_STATUS:
+            case FIND_TRANSACTION_GROUP_INFO:
+                timeout = txConfig.getQueryTimeout();
+                break;
+            case CREATE_GROUP:
+            case ADD_TRANSACTION:
+                timeout = txConfig.getCreateTimeout();
+                break;
+            default:
+                timeout = txConfig.getCommitTimeout();
+                break;
+        }
+        return timeout > 0 ? timeout : TimeUnit.SECONDS.toMillis(txConfig.getDelayTime());
+    }
+
+    private Object resolveReply(int action, LottorRequest reply) {
+        if (Objects.isNull(reply)) {
+            return timeoutReply(action);
+        }
+        final NettyMessageActionEnum replyAction = NettyMessageActionEnum.acquireByCode(reply.getAction());
+        switch (replyAction) {
+            case FIND_TRANSACTION_GROUP_INFO:
+                return reply.getTxTransactionGroup();
+            case ROLLBACK:
+            case COMPLETE_COMMIT:
+                return reply.getTxTransactionGroup().getItem().getStatus();
+            case RECEIVE:
+                return reply.getResult() == NettyResultEnum.SUCCESS.getCode();
+            default:
+                return timeoutReply(action);
+        }
+    }
+
+    private Object timeoutReply(int action) {
+        if (NettyMessageActionEnum.GET_TRANSACTION_GROUP_STATUS.getCode() == action) {
+            return NettyResultEnum.TIME_OUT.getCode();
+        } else if (NettyMessageActionEnum.FIND_TRANSACTION_GROUP_INFO.getCode() == action) {
+            return null;
+        }
+        return false;
     }
 
 
@@ -237,8 +346,9 @@ public class NettyClientMessageHandler extends ChannelInboundHandlerAdapter {
      * @param lottorRequest 定义的数据传输对象
      */
     public void asyncSendTxManagerMessage(LottorRequest lottorRequest) {
-        if (ctx != null && ctx.channel() != null && ctx.channel().isActive()) {
-            ctx.writeAndFlush(lottorRequest);
+        final Channel channel = acquireChannel(lottorRequest);
+        if (Objects.nonNull(channel)) {
+            channel.writeAndFlush(lottorRequest);
         }
 
     }
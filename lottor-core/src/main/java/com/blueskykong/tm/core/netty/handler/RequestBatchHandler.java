@@ -0,0 +1,125 @@
+package com.blueskykong.tm.core.netty.handler;
+
+import com.blueskykong.tm.common.netty.bean.BatchFrame;
+import com.blueskykong.tm.common.netty.bean.LottorRequest;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端请求自动合并
+ * TxManager确认支持批量帧后，linger时间内写出的请求合并为一个 {@link BatchFrame}，达到batchMaxSize时立即发送
+ * 每个channel一个实例，只在event loop中访问
+ */
+public class RequestBatchHandler extends ChannelDuplexHandler {
+
+    private static final AttributeKey<Boolean> ENABLED = AttributeKey.valueOf("lottor.batch");
+
+    private final long lingerMillis;
+
+    private final int maxSize;
+
+    private final List<LottorRequest> requests = new ArrayList<>();
+
+    private final List<ChannelPromise> promises = new ArrayList<>();
+
+    private ScheduledFuture<?> lingerFuture;
+
+    public RequestBatchHandler(long lingerMillis, int maxSize) {
+        this.lingerMillis = lingerMillis;
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    /**
+     * TxManager确认支持批量帧后开启
+     */
+    public static void enable(Channel channel) {
+        channel.attr(ENABLED).set(Boolean.TRUE);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (!(msg instanceof LottorRequest) || !Boolean.TRUE.equals(ctx.channel().attr(ENABLED).get())) {
+            //心跳、握手等保持与之前的请求有序
+            writeBatch(ctx);
+            ctx.write(msg, promise);
+            return;
+        }
+        requests.add((LottorRequest) msg);
+        promises.add(promise);
+        if (requests.size() >= maxSize) {
+            writeBatch(ctx);
+            ctx.flush();
+        } else if (Objects.isNull(lingerFuture)) {
+            lingerFuture = ctx.executor().schedule(() -> {
+                lingerFuture = null;
+                writeBatch(ctx);
+                ctx.flush();
+            }, lingerMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        writeBatch(ctx);
+        ctx.flush();
+        ctx.close(promise);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        failPending(new ClosedChannelException());
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        failPending(new ClosedChannelException());
+    }
+
+    private void writeBatch(ChannelHandlerContext ctx) {
+        if (Objects.nonNull(lingerFuture)) {
+            lingerFuture.cancel(false);
+            lingerFuture = null;
+        }
+        if (requests.isEmpty()) {
+            return;
+        }
+        if (requests.size() == 1) {
+            ctx.write(requests.get(0), promises.get(0));
+        } else {
+            final List<ChannelPromise> members = new ArrayList<>(promises);
+            ctx.write(new BatchFrame(new ArrayList<>(requests))).addListener((ChannelFutureListener) future -> {
+                for (ChannelPromise member : members) {
+                    if (future.isSuccess()) {
+                        member.trySuccess();
+                    } else {
+                        member.tryFailure(future.cause());
+                    }
+                }
+            });
+        }
+        requests.clear();
+        promises.clear();
+    }
+
+    private void failPending(Throwable cause) {
+        if (Objects.nonNull(lingerFuture)) {
+            lingerFuture.cancel(false);
+            lingerFuture = null;
+        }
+        promises.forEach(promise -> promise.tryFailure(cause));
+        requests.clear();
+        promises.clear();
+    }
+}
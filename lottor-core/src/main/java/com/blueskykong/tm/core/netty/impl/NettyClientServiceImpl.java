@@ -1,14 +1,26 @@
 package com.blueskykong.tm.core.netty.impl;
 
+import com.blueskykong.tm.common.concurrent.task.PendingRequestHelper;
 import com.blueskykong.tm.common.config.TxConfig;
 import com.blueskykong.tm.common.entity.TxManagerServer;
+import com.blueskykong.tm.common.enums.ChannelSelectTypeEnum;
+import com.blueskykong.tm.common.enums.NettyMessageActionEnum;
 import com.blueskykong.tm.common.enums.SerializeProtocolEnum;
+import com.blueskykong.tm.common.enums.TransportTypeEnum;
 import com.blueskykong.tm.common.exception.TransactionException;
 import com.blueskykong.tm.common.exception.TransactionRuntimeException;
+import com.blueskykong.tm.common.concurrent.threadpool.TxTransactionThreadFactory;
 import com.blueskykong.tm.common.holder.LogUtil;
+import com.blueskykong.tm.common.netty.NettyTransport;
+import com.blueskykong.tm.common.netty.bean.HeartbeatFrame;
+import com.blueskykong.tm.common.netty.bean.LottorRequest;
+import com.blueskykong.tm.common.netty.bean.MessageRecycler;
+import com.blueskykong.tm.common.serializer.KryoRegistry;
 import com.blueskykong.tm.core.netty.NettyClientService;
+import com.blueskykong.tm.core.netty.handler.HeartbeatHandler;
 import com.blueskykong.tm.core.netty.handler.NettyClientHandlerInitializer;
-import com.blueskykong.tm.core.netty.handler.NettyClientMessageHandler;
+import com.blueskykong.tm.core.netty.pool.TxManagerChannelPool;
+import com.blueskykong.tm.core.netty.pool.TxManagerCluster;
 import com.blueskykong.tm.core.service.impl.TxManagerLocator;
 import com.google.common.base.StandardSystemProperty;
 import io.netty.bootstrap.Bootstrap;
@@ -18,23 +30,28 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.epoll.Epoll;
-import io.netty.channel.epoll.EpollChannelOption;
-import io.netty.channel.epoll.EpollEventLoopGroup;
-import io.netty.channel.epoll.EpollSocketChannel;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.handler.logging.LogLevel;
-import io.netty.handler.logging.LoggingHandler;
 import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class NettyClientServiceImpl implements NettyClientService {
 
@@ -50,13 +67,35 @@ public class NettyClientServiceImpl implements NettyClientService {
 
     private Integer port = 8888;
 
-    private Channel channel;
+    private TxManagerCluster cluster;
 
     private Bootstrap bootstrap;
 
-    private int retryMax;
+    /**
+     * 所有连接共享的心跳调度
+     */
+    private ScheduledExecutorService heartbeatExecutor;
+
+    /**
+     * 定位TxManager、建立连接和退避重连都在这里执行，不占用业务线程和netty io线程
+     */
+    private ScheduledExecutorService connectExecutor;
+
+    private final AtomicBoolean connectScheduled = new AtomicBoolean();
+
+    /**
+     * 已经告警过Kryo注册表不一致的TxManager
+     */
+    private final Set<String> registrationMismatches = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 上一次输出时的超时请求数和迟到响应数，只在连接线程中访问
+     */
+    private long reportedExpired;
+
+    private long reportedLate;
 
-    private int retryCount = 0;
+    private int retryMax;
 
     private int retryInterval;
 
@@ -84,56 +123,127 @@ public class NettyClientServiceImpl implements NettyClientService {
         SerializeProtocolEnum serializeProtocol =
                 SerializeProtocolEnum.acquireSerializeProtocol(txConfig.getNettySerializer());
         nettyClientHandlerInitializer.setSerializeProtocolEnum(serializeProtocol);
+        MessageRecycler.setEnabled(txConfig.isRecycle());
         servletExecutor = new DefaultEventExecutorGroup(txConfig.getNettyThreadMax());
         nettyClientHandlerInitializer.setServletExecutor(servletExecutor);
         nettyClientHandlerInitializer.setTxConfig(txConfig);
+        cluster = new TxManagerCluster(txConfig.getChannelPoolSize(),
+                ChannelSelectTypeEnum.fromString(txConfig.getChannelSelectType()));
+        nettyClientHandlerInitializer.setCluster(cluster);
         TxManagerLocator.getInstance().setTxConfig(txConfig);
         TxManagerLocator.getInstance().setDiscoveryClient(discoveryClient);
+        TxManagerLocator.getInstance().setRefreshListener(this::doConnect);
+        connectExecutor = new ScheduledThreadPoolExecutor(1,
+                TxTransactionThreadFactory.create("TxManagerConnector", true));
         TxManagerLocator.getInstance().schedulePeriodicRefresh();
         try {
             bootstrap = new Bootstrap();
             groups(bootstrap, txConfig);
             doConnect();
+            scheduleHeartbeat();
         } catch (Exception e) {
             LogUtil.error(LOGGER, "tx client start failed for {}", () -> e.getLocalizedMessage());
             throw new TransactionRuntimeException(e);
         }
     }
 
+    /**
+     * 客户端发送的都是小消息且等待响应，关闭Nagle算法，不使用TCP_CORK
+     */
     private void groups(Bootstrap bootstrap, TxConfig txConfig) {
-        int workThreads = txConfig.getNettyThreadMax();
-        //暂时不使用EpollEventLoopGroup，Ubuntu报错
-        if (Epoll.isAvailable() && txConfig.isOnEpoll()) {
-            workerGroup = new EpollEventLoopGroup(workThreads);
-            bootstrap.group(workerGroup);
-            bootstrap.channel(EpollSocketChannel.class);
-            bootstrap.option(EpollChannelOption.TCP_CORK, true)
-                    .option(EpollChannelOption.SO_KEEPALIVE, true)
-                    .option(EpollChannelOption.CONNECT_TIMEOUT_MILLIS, 5)
-                    .option(EpollChannelOption.SO_BACKLOG, 1024)
-                    .option(EpollChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
-                    .handler(new LoggingHandler(LogLevel.INFO))
-                    .handler(nettyClientHandlerInitializer);
-        } else {
-            workerGroup = new NioEventLoopGroup(workThreads);
-            bootstrap.group(workerGroup);
-            bootstrap.channel(NioSocketChannel.class);
-            bootstrap.option(ChannelOption.SO_BACKLOG, 1024)
-                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5)
-                    .option(ChannelOption.SO_KEEPALIVE, true)
-                    .option(ChannelOption.TCP_NODELAY, true)
-                    .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
-                    .handler(new LoggingHandler(LogLevel.INFO))
-                    .handler(nettyClientHandlerInitializer);
-        }
+        final TransportTypeEnum requested = txConfig.isOnEpoll()
+                ? TransportTypeEnum.EPOLL : TransportTypeEnum.fromString(txConfig.getTransport());
+        final NettyTransport transport = NettyTransport.of(requested);
+        workerGroup = transport.newEventLoopGroup(txConfig.getNettyThreadMax());
+        bootstrap.group(workerGroup)
+                .channel(transport.socketChannelClass())
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, txConfig.getConnectTimeout())
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .handler(nettyClientHandlerInitializer);
+        transport.clientOptions(bootstrap);
+        LogUtil.info(LOGGER, "tx client transport: {}", () -> transport);
     }
 
 
+    /**
+     * 异步连接所有的TxManager，节点变化时重建一致性hash环
+     * 多次调用在执行前合并为一次
+     */
     @Override
     public void doConnect() {
-        if (channel != null && channel.isActive()) {
+        if (Objects.isNull(bootstrap) || Objects.isNull(connectExecutor)
+                || !connectScheduled.compareAndSet(false, true)) {
             return;
         }
+        try {
+            connectExecutor.execute(this::connectAll);
+        } catch (RejectedExecutionException e) {
+            connectScheduled.set(false);
+        }
+    }
+
+    private void connectAll() {
+        connectScheduled.set(false);
+        reportPending();
+        try {
+            final List<TxManagerServer> servers = locateAll();
+            checkKryoRegistration(servers);
+            cluster.update(servers);
+            if (cluster.isFull()) {
+                return;
+            }
+            cluster.getPools().forEach((node, pool) -> {
+                for (int slot = 0; slot < pool.size(); slot++) {
+                    if (pool.beginConnect(slot)) {
+                        connect(node, pool, slot);
+                    }
+                }
+            });
+        } catch (Throwable e) {
+            LogUtil.error(LOGGER, "connect txManager fail exception:{}", e::getMessage);
+        }
+    }
+
+    /**
+     * 随定时刷新输出上一个周期内等待TxManager响应超时的请求数和超时后才到达的响应数，没有变化时不输出
+     */
+    private void reportPending() {
+        final PendingRequestHelper helper = PendingRequestHelper.getInstance();
+        final long expired = helper.getExpiredCount();
+        final long late = helper.getLateResponseCount();
+        if (expired == reportedExpired && late == reportedLate) {
+            return;
+        }
+        final long expiredDelta = expired - reportedExpired;
+        final long lateDelta = late - reportedLate;
+        reportedExpired = expired;
+        reportedLate = late;
+        LogUtil.warn(LOGGER, "TxManager responses: {}", () -> String.format("expired %d (total %d), late %d (total %d), pending %d",
+                expiredDelta, expired, lateDelta, late, helper.size()));
+    }
+
+    /**
+     * Kryo注册表与TxManager不一致时该TxManager的连接使用旧版本格式（只注册LottorRequest），每个TxManager只提示一次
+     * 未返回指纹的旧版本TxManager不检查
+     */
+    private void checkKryoRegistration(List<TxManagerServer> servers) {
+        final String local = KryoRegistry.fingerprint();
+        servers.stream()
+                .filter(server -> StringUtils.isNotBlank(server.getKryoRegistration()))
+                .filter(server -> !Objects.equals(local, server.getKryoRegistration()))
+                .filter(server -> registrationMismatches.add(TxManagerCluster.nodeOf(server)))
+                .forEach(server -> LOGGER.warn("kryo registration of TxManager {} is {}, but local is {}, fall back to the legacy kryo layout",
+                        TxManagerCluster.nodeOf(server), server.getKryoRegistration(), local));
+    }
+
+    private List<TxManagerServer> locateAll() {
+        final List<TxManagerServer> servers = TxManagerLocator.getInstance().locateAll();
+        if (CollectionUtils.isNotEmpty(servers)) {
+            return servers;
+        }
+        //兼容未提供findLocalServer的TxManager
         final TxManagerServer txManagerServer = TxManagerLocator.getInstance().locator();
         if (Objects.nonNull(txManagerServer) &&
                 StringUtils.isNoneBlank(txManagerServer.getHost())
@@ -141,32 +251,144 @@ public class NettyClientServiceImpl implements NettyClientService {
             host = txManagerServer.getHost();
             port = txManagerServer.getPort();
         }
+        TxManagerServer server = new TxManagerServer();
+        server.setHost(host);
+        server.setPort(port);
+        return Collections.singletonList(server);
+    }
 
-        ChannelFuture future = bootstrap.connect(host, port);
-        LogUtil.info(LOGGER, "连接txManager-socket服务-> {}", () -> host + ":" + port);
+    /**
+     * 为TxManager连接池的某个slot建立连接，连接关闭后从池中移除，由doConnect补齐
+     * 连接失败时slot保持连接中状态，按照指数退避加随机抖动重试，期间请求由hash环上的其他TxManager处理
+     *
+     * @param node 节点 host:port
+     * @param pool 节点的连接池
+     * @param slot 连接位置
+     */
+    private void connect(String node, TxManagerChannelPool pool, int slot) {
+        final TxManagerServer server = cluster.getServer(node);
+        if (Objects.isNull(server) || !cluster.contains(node, pool)) {
+            pool.endConnect(slot);
+            return;
+        }
+        ChannelFuture future = bootstrapOf(server).connect(server.getHost(), server.getPort());
+        LogUtil.info(LOGGER, "连接txManager-socket服务-> {}, slot:{}", () -> node, () -> slot);
 
         future.addListener((ChannelFutureListener) futureListener -> {
             if (futureListener.isSuccess()) {
-                channel = futureListener.channel();
-                LogUtil.info(LOGGER, "Connect to -> {} server successfully!", () -> host + ":" + port);
+                pool.endConnect(slot);
+                final Channel channel = futureListener.channel();
+                if (!cluster.contains(node, pool)) {
+                    //节点已经下线
+                    channel.close();
+                    return;
+                }
+                pool.attach(slot, channel);
+                pool.resetFailures();
+                channel.closeFuture().addListener((ChannelFutureListener) closeFuture -> cluster.detach(channel));
+                cluster.markReady();
+                LogUtil.info(LOGGER, "Connect to -> {} server successfully!", () -> node);
             } else {
-                if (retryCount++ >= retryMax) {
-                    LogUtil.error(LOGGER, "Failed to connect to server {}, after {} times", () -> host + ":" + port, () -> --retryCount);
-                    System.exit(1);
+                final int failures = pool.recordFailure();
+                final long delay = backoff(failures);
+                if (failures == retryMax) {
+                    LogUtil.error(LOGGER, "Failed to connect to server {}, after {} times, keep retrying", () -> node, () -> failures);
+                }
+                LogUtil.error(LOGGER, "Failed to connect to server, retry for {} times, try connect after {}ms-> {}", () -> failures, () -> delay, () -> node);
+                try {
+                    connectExecutor.schedule(() -> connect(node, pool, slot), delay, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    pool.endConnect(slot);
                 }
-                LogUtil.error(LOGGER, "Failed to connect to server, retry for {} times, try connect after {}s-> {}", () -> retryCount, () -> this.retryInterval, () -> host + ":" + port);
-                futureListener.channel().eventLoop().schedule(this::doConnect, retryInterval, TimeUnit.SECONDS);
             }
         });
 
     }
 
+    /**
+     * 握手时才能告诉TxManager使用完整的Kryo注册表，旧版本TxManager不认识新的握手版本，所以只有指纹一致时才启用
+     */
+    private Bootstrap bootstrapOf(TxManagerServer server) {
+        if (txConfig.isCodecHandshake() && Objects.equals(KryoRegistry.fingerprint(), server.getKryoRegistration())) {
+            return bootstrap.clone().attr(NettyClientHandlerInitializer.KRYO_REGISTRY, Boolean.TRUE);
+        }
+        return bootstrap;
+    }
+
+    /**
+     * 指数退避，上限为retryInterval，在上限的一半到上限之间随机抖动，避免TxManager重启后客户端同时重连
+     *
+     * @param failures 连续失败次数
+     * @return 退避时间 单位：ms
+     */
+    private long backoff(int failures) {
+        final long max = Math.max(1L, TimeUnit.SECONDS.toMillis(retryInterval));
+        final long min = Math.max(1L, txConfig.getRetryBackoffMin());
+        final long exp = min << Math.min(failures - 1, 20);
+        final long cap = Math.min(max, exp);
+        return (cap >> 1) + ThreadLocalRandom.current().nextLong((cap >> 1) + 1);
+    }
+
+    private void scheduleHeartbeat() {
+        final long interval = heartbeatInterval();
+        heartbeatExecutor = new ScheduledThreadPoolExecutor(1,
+                TxTransactionThreadFactory.create("TxManagerHeartbeat", true));
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private long heartbeatInterval() {
+        return Math.max(1000L, TimeUnit.SECONDS.toMillis(txConfig.getHeartTime()) >> 1);
+    }
+
+    /**
+     * 最近一个心跳周期内有读写的连接不发送心跳，超过3个heartTime没有收到数据的连接关闭后重连
+     */
+    private void heartbeat() {
+        try {
+            final long now = System.currentTimeMillis();
+            final long interval = heartbeatInterval();
+            final long readerTimeout = TimeUnit.SECONDS.toMillis(txConfig.getHeartTime()) * 3;
+            cluster.getPools().values().forEach(pool -> pool.forEach(channel -> {
+                final HeartbeatHandler handler = channel.pipeline().get(HeartbeatHandler.class);
+                if (Objects.isNull(handler)) {
+                    return;
+                }
+                if (now - handler.getLastReadTime() > readerTimeout) {
+                    LogUtil.error(LOGGER, "no data from txManager {} for {}ms, close it", channel::remoteAddress, () -> readerTimeout);
+                    channel.close();
+                } else if (now - handler.getLastWriteTime() >= interval || now - handler.getLastReadTime() >= interval) {
+                    channel.writeAndFlush(handler.isHeartbeatFrame() ? HeartbeatFrame.INSTANCE : buildHeartbeat());
+                }
+            }));
+        } catch (Throwable e) {
+            LogUtil.error(LOGGER, "heartbeat fail exception:{}", e::getMessage);
+        }
+    }
+
+    /**
+     * TxManager确认注册之前使用的心跳，不携带注册信息，旧版本TxManager原样写回
+     */
+    private static LottorRequest buildHeartbeat() {
+        final LottorRequest heartbeat = new LottorRequest();
+        heartbeat.setAction(NettyMessageActionEnum.HEART.getCode());
+        return heartbeat;
+    }
+
     /**
      * 停止服务
      */
     @Override
     public void stop() {
-        if (Objects.nonNull(servletExecutor)) {
+        if (Objects.nonNull(heartbeatExecutor)) {
+            heartbeatExecutor.shutdownNow();
+        }
+        if (Objects.nonNull(connectExecutor)) {
+            connectExecutor.shutdownNow();
+        }
+        if (Objects.nonNull(cluster)) {
+            cluster.closeAll();
+        }
+        if (Objects.nonNull(workerGroup)) {
             workerGroup.shutdownGracefully();
         }
         if (Objects.nonNull(servletExecutor)) {
@@ -192,19 +414,23 @@ public class NettyClientServiceImpl implements NettyClientService {
      */
     @Override
     public boolean checkState() {
-        if (!NettyClientMessageHandler.net_state) {
-            LogUtil.error(LOGGER, () -> "socket服务尚未建立连接成功,将在此等待2秒.");
-            try {
-                Thread.sleep(1000 * 2);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-            if (!NettyClientMessageHandler.net_state) {
-                LogUtil.error(LOGGER, () -> "TxManager还未连接成功,请检查TxManager服务后再试");
-                return false;
-            }
+        if (Objects.isNull(cluster)) {
+            return false;
+        }
+        final CompletableFuture<Void> ready = cluster.ready();
+        if (ready.isDone()) {
+            return true;
+        }
+        doConnect();
+        try {
+            ready.get(txConfig.getReadyTimeout(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException | ExecutionException e) {
+            LogUtil.error(LOGGER, () -> "TxManager还未连接成功,请检查TxManager服务后再试");
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
-
-        return true;
     }
 }
@@ -0,0 +1,182 @@
+package com.blueskykong.tm.core.netty.pool;
+
+import com.blueskykong.tm.common.enums.ChannelSelectTypeEnum;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 与一个TxManager之间的长连接池
+ * 每个slot对应一条连接，断开的连接由 NettyClientService 按slot重连替换
+ */
+public class TxManagerChannelPool {
+
+    private static final AttributeKey<AtomicInteger> PENDING = AttributeKey.valueOf("lottor.pending");
+
+    private static final AttributeKey<Integer> SLOT = AttributeKey.valueOf("lottor.slot");
+
+    private final AtomicReferenceArray<Channel> channels;
+
+    /**
+     * slot是否正在建立连接 0 否 1 是
+     */
+    private final AtomicIntegerArray connecting;
+
+    private final ChannelSelectTypeEnum selectType;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * 连续连接失败的次数，用于计算重连的退避时间
+     */
+    private final AtomicInteger failures = new AtomicInteger();
+
+    public TxManagerChannelPool(int size, ChannelSelectTypeEnum selectType) {
+        final int poolSize = Math.max(1, size);
+        this.channels = new AtomicReferenceArray<>(poolSize);
+        this.connecting = new AtomicIntegerArray(poolSize);
+        this.selectType = selectType;
+    }
+
+    public int size() {
+        return channels.length();
+    }
+
+    /**
+     * 标记slot开始建立连接
+     *
+     * @param slot 连接位置
+     * @return false 已经连接或者正在连接
+     */
+    public boolean beginConnect(int slot) {
+        return !isActive(slot) && connecting.compareAndSet(slot, 0, 1);
+    }
+
+    public void endConnect(int slot) {
+        connecting.set(slot, 0);
+    }
+
+    public int recordFailure() {
+        return failures.incrementAndGet();
+    }
+
+    public void resetFailures() {
+        failures.set(0);
+    }
+
+    public void attach(int slot, Channel channel) {
+        channel.attr(SLOT).set(slot);
+        channel.attr(PENDING).set(new AtomicInteger());
+        channels.set(slot, channel);
+    }
+
+    public void detach(Channel channel) {
+        final Integer slot = channel.attr(SLOT).get();
+        if (Objects.nonNull(slot)) {
+            channels.compareAndSet(slot, channel, null);
+        }
+    }
+
+    public boolean isActive(int slot) {
+        final Channel channel = channels.get(slot);
+        return Objects.nonNull(channel) && channel.isActive();
+    }
+
+    /**
+     * @return true 所有slot的连接都可用
+     */
+    public boolean isFull() {
+        for (int i = 0; i < channels.length(); i++) {
+            if (!isActive(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean hasActiveChannel() {
+        for (int i = 0; i < channels.length(); i++) {
+            if (isActive(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按照策略选择一条连接，优先选择可写的连接
+     *
+     * @return 没有可用连接时返回null
+     */
+    public Channel acquire() {
+        final int length = channels.length();
+        final int start = (next.getAndIncrement() & Integer.MAX_VALUE) % length;
+        Channel selected = null;
+        Channel fallback = null;
+        int least = Integer.MAX_VALUE;
+        for (int i = 0; i < length; i++) {
+            final Channel channel = channels.get((start + i) % length);
+            if (Objects.isNull(channel) || !channel.isActive()) {
+                continue;
+            }
+            if (!channel.isWritable()) {
+                fallback = Objects.isNull(fallback) ? channel : fallback;
+                continue;
+            }
+            if (selectType == ChannelSelectTypeEnum.ROUND_ROBIN) {
+                return channel;
+            }
+            final int pending = pendingOf(channel);
+            if (pending < least) {
+                least = pending;
+                selected = channel;
+            }
+        }
+        return Objects.nonNull(selected) ? selected : fallback;
+    }
+
+    public void forEach(Consumer<Channel> action) {
+        for (int i = 0; i < channels.length(); i++) {
+            final Channel channel = channels.get(i);
+            if (Objects.nonNull(channel) && channel.isActive()) {
+                action.accept(channel);
+            }
+        }
+    }
+
+    public void closeAll() {
+        for (int i = 0; i < channels.length(); i++) {
+            final Channel channel = channels.getAndSet(i, null);
+            if (Objects.nonNull(channel)) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * 记录连接上等待响应的请求数
+     */
+    public static void increment(Channel channel) {
+        final AtomicInteger pending = channel.attr(PENDING).get();
+        if (Objects.nonNull(pending)) {
+            pending.incrementAndGet();
+        }
+    }
+
+    public static void decrement(Channel channel) {
+        final AtomicInteger pending = channel.attr(PENDING).get();
+        if (Objects.nonNull(pending)) {
+            pending.decrementAndGet();
+        }
+    }
+
+    public static int pendingOf(Channel channel) {
+        final AtomicInteger pending = channel.attr(PENDING).get();
+        return Objects.isNull(pending) ? 0 : pending.get();
+    }
+}
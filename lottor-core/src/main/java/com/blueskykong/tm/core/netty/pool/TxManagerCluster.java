@@ -0,0 +1,155 @@
+package com.blueskykong.tm.core.netty.pool;
+
+import com.blueskykong.tm.common.entity.TxManagerServer;
+import com.blueskykong.tm.common.enums.ChannelSelectTypeEnum;
+import io.netty.channel.Channel;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 客户端到所有TxManager的连接
+ * 每个TxManager一个连接池，事务组的消息按照groupId的一致性hash路由到固定的TxManager
+ */
+public class TxManagerCluster {
+
+    private final int poolSize;
+
+    private final ChannelSelectTypeEnum selectType;
+
+    private final ConcurrentMap<String, TxManagerChannelPool> pools = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, TxManagerServer> servers = new ConcurrentHashMap<>();
+
+    private volatile TxManagerHashRing ring = TxManagerHashRing.empty();
+
+    /**
+     * 至少有一条可用连接时完成，所有连接断开后替换为新的future
+     */
+    private volatile CompletableFuture<Void> ready = new CompletableFuture<>();
+
+    public TxManagerCluster(int poolSize, ChannelSelectTypeEnum selectType) {
+        this.poolSize = poolSize;
+        this.selectType = selectType;
+    }
+
+    /**
+     * 更新TxManager节点，新增的节点创建连接池，下线的节点关闭连接，并重建hash环
+     *
+     * @param txManagerServers 当前所有的TxManager
+     */
+    public synchronized void update(Collection<TxManagerServer> txManagerServers) {
+        final Map<String, TxManagerServer> latest = new LinkedHashMap<>();
+        for (TxManagerServer server : txManagerServers) {
+            latest.put(nodeOf(server), server);
+        }
+        if (latest.isEmpty() || latest.keySet().equals(servers.keySet())) {
+            return;
+        }
+        latest.forEach((node, server) -> {
+            servers.putIfAbsent(node, server);
+            pools.computeIfAbsent(node, key -> new TxManagerChannelPool(poolSize, selectType));
+        });
+        ring = TxManagerHashRing.of(latest.keySet());
+        servers.keySet().removeIf(node -> !latest.containsKey(node));
+        pools.entrySet().removeIf(entry -> {
+            if (latest.containsKey(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().closeAll();
+            return true;
+        });
+        resetReadyIfInactive();
+    }
+
+    public Map<String, TxManagerChannelPool> getPools() {
+        return pools;
+    }
+
+    public TxManagerServer getServer(String node) {
+        return servers.get(node);
+    }
+
+    public boolean contains(String node, TxManagerChannelPool pool) {
+        return pools.get(node) == pool;
+    }
+
+    public boolean isFull() {
+        return !pools.isEmpty() && pools.values().stream().allMatch(TxManagerChannelPool::isFull);
+    }
+
+    public boolean hasActiveChannel() {
+        return pools.values().stream().anyMatch(TxManagerChannelPool::hasActiveChannel);
+    }
+
+    /**
+     * 选择一条连接
+     *
+     * @param groupId 事务组id，为空时选择任意可用的TxManager
+     * @return 没有可用连接时返回null
+     */
+    public Channel acquire(String groupId) {
+        if (StringUtils.isNotBlank(groupId)) {
+            final String node = ring.locate(groupId, this::isAvailable);
+            if (Objects.nonNull(node)) {
+                final Channel channel = acquireFrom(node);
+                if (Objects.nonNull(channel)) {
+                    return channel;
+                }
+            }
+        }
+        for (TxManagerChannelPool pool : pools.values()) {
+            final Channel channel = pool.acquire();
+            if (Objects.nonNull(channel)) {
+                return channel;
+            }
+        }
+        return null;
+    }
+
+    public CompletableFuture<Void> ready() {
+        return ready;
+    }
+
+    /**
+     * 有连接建立成功
+     */
+    public synchronized void markReady() {
+        ready.complete(null);
+    }
+
+    public void detach(Channel channel) {
+        pools.values().forEach(pool -> pool.detach(channel));
+        resetReadyIfInactive();
+    }
+
+    private synchronized void resetReadyIfInactive() {
+        if (ready.isDone() && !hasActiveChannel()) {
+            ready = new CompletableFuture<>();
+        }
+    }
+
+    public void closeAll() {
+        pools.values().forEach(TxManagerChannelPool::closeAll);
+    }
+
+    private boolean isAvailable(String node) {
+        final TxManagerChannelPool pool = pools.get(node);
+        return Objects.nonNull(pool) && pool.hasActiveChannel();
+    }
+
+    private Channel acquireFrom(String node) {
+        final TxManagerChannelPool pool = pools.get(node);
+        return Objects.isNull(pool) ? null : pool.acquire();
+    }
+
+    public static String nodeOf(TxManagerServer server) {
+        return server.getHost() + ":" + server.getPort();
+    }
+}
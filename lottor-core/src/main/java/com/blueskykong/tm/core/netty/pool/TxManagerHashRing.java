@@ -0,0 +1,83 @@
+package com.blueskykong.tm.core.netty.pool;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * 一致性hash环，根据事务组id选择TxManager
+ * 环构建后不可变，节点变化时重新构建
+ */
+public class TxManagerHashRing {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    /**
+     * 每个TxManager在环上的虚拟节点数
+     */
+    private static final int VIRTUAL_NODES = 160;
+
+    private static final TxManagerHashRing EMPTY = new TxManagerHashRing(Collections.emptyList());
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    private TxManagerHashRing(Collection<String> nodes) {
+        for (String node : nodes) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    public static TxManagerHashRing empty() {
+        return EMPTY;
+    }
+
+    public static TxManagerHashRing of(Collection<String> nodes) {
+        return nodes.isEmpty() ? EMPTY : new TxManagerHashRing(nodes);
+    }
+
+    public boolean isEmpty() {
+        return ring.isEmpty();
+    }
+
+    /**
+     * 顺时针查找第一个满足条件的节点，owner不可用时落到环上的下一个节点
+     *
+     * @param key       事务组id
+     * @param available 节点是否可用
+     * @return 没有可用节点时返回null
+     */
+    public String locate(String key, Predicate<String> available) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        final long hash = hash(key);
+        final String node = find(ring.tailMap(hash), available);
+        if (Objects.nonNull(node)) {
+            return node;
+        }
+        return find(ring.headMap(hash), available);
+    }
+
+    private String find(SortedMap<Long, String> range, Predicate<String> available) {
+        for (Map.Entry<Long, String> entry : range.entrySet()) {
+            if (available.test(entry.getValue())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static long hash(String key) {
+        return HASH_FUNCTION.hashString(key, StandardCharsets.UTF_8).asLong();
+    }
+}
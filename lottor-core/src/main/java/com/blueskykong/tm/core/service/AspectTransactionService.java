@@ -3,6 +3,9 @@ package com.blueskykong.tm.core.service;
 import com.blueskykong.tm.common.enums.OperationEnum;
 import org.aspectj.lang.ProceedingJoinPoint;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 @FunctionalInterface
 public interface AspectTransactionService {
 
@@ -15,4 +18,15 @@ public interface AspectTransactionService {
      * @throws Throwable 异常信息
      */
     Object invoke(String transactionGroupId, Object[] point, OperationEnum operationEnum) ;
+
+    /**
+     * 切面方法异步调用
+     *
+     * @param transactionGroupId 事务组id
+     * @param point              切点
+     * @return CompletionStage
+     */
+    default CompletionStage<Object> invokeAsync(String transactionGroupId, Object[] point, OperationEnum operationEnum) {
+        return CompletableFuture.completedFuture(invoke(transactionGroupId, point, operationEnum));
+    }
 }
@@ -3,6 +3,7 @@ package com.blueskykong.tm.core.service;
 import com.blueskykong.tm.common.entity.TransactionMsg;
 
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 
 public interface ExternalNettyService {
 
@@ -13,6 +14,14 @@ public interface ExternalNettyService {
      */
     public Boolean preSend(List<TransactionMsg> preCommitMsgs);
 
+    /**
+     * pre-commit msgs without blocking the caller,
+     * the tx-group id is bound to the calling thread before returning
+     *
+     * @param preCommitMsgs
+     */
+    public CompletionStage<Boolean> preSendAsync(List<TransactionMsg> preCommitMsgs);
+
     /**
      * confirm msgs
      *
@@ -20,6 +29,13 @@ public interface ExternalNettyService {
      */
     public void postSend(Boolean success, Object message);
 
+    /**
+     * confirm msgs without blocking the caller
+     *
+     * @param success
+     */
+    public CompletionStage<Void> postSendAsync(Boolean success, Object message);
+
     /**
      * msgs after consuming
      *
@@ -27,4 +43,12 @@ public interface ExternalNettyService {
      * @param success
      */
     public void consumedSend(TransactionMsg msg, Boolean success);
+
+    /**
+     * msgs after consuming, without blocking the caller
+     *
+     * @param msg
+     * @param success
+     */
+    public CompletionStage<Void> consumedSendAsync(TransactionMsg msg, Boolean success);
 }
@@ -6,6 +6,8 @@ import com.blueskykong.tm.common.netty.bean.LottorRequest;
 import com.blueskykong.tm.common.netty.bean.TxTransactionGroup;
 import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
 
+import java.util.concurrent.CompletionStage;
+
 /**
  *
  */
@@ -19,6 +21,14 @@ public interface TxManagerMessageService {
      */
     Boolean saveTxTransactionGroup(TxTransactionGroup txTransactionGroup);
 
+    /**
+     * 异步保存事务组，不阻塞调用线程
+     *
+     * @param txTransactionGroup 事务组
+     * @return true 成功 false 失败
+     */
+    CompletionStage<Boolean> saveTxTransactionGroupAsync(TxTransactionGroup txTransactionGroup);
+
 
     /**
      * 往事务组添加事务
@@ -29,6 +39,15 @@ public interface TxManagerMessageService {
      */
     Boolean addTxTransaction(String txGroupId, TxTransactionItem txTransactionItem);
 
+    /**
+     * 异步往事务组添加事务
+     *
+     * @param txGroupId         事务组id
+     * @param txTransactionItem 子事务项
+     * @return true 成功 false 失败
+     */
+    CompletionStage<Boolean> addTxTransactionAsync(String txGroupId, TxTransactionItem txTransactionItem);
+
 
     /**
      * 获取事务组状态
@@ -38,6 +57,14 @@ public interface TxManagerMessageService {
      */
     int findTransactionGroupStatus(String txGroupId);
 
+    /**
+     * 异步获取事务组状态
+     *
+     * @param txGroupId 事务组id
+     * @return 事务组状态
+     */
+    CompletionStage<Integer> findTransactionGroupStatusAsync(String txGroupId);
+
 
     /**
      * 获取事务组信息
@@ -47,6 +74,14 @@ public interface TxManagerMessageService {
      */
     TxTransactionGroup findByTxGroupId(String txGroupId);
 
+    /**
+     * 异步获取事务组信息
+     *
+     * @param txGroupId 事务组id
+     * @return TxTransactionGroup
+     */
+    CompletionStage<TxTransactionGroup> findByTxGroupIdAsync(String txGroupId);
+
 
     /**
      * 通知tm 回滚整个事务组
@@ -56,6 +91,15 @@ public interface TxManagerMessageService {
      */
     Boolean rollBackTxTransaction(String txGroupId, String waitKey);
 
+    /**
+     * 异步通知tm 回滚整个事务组
+     *
+     * @param txGroupId 事务组id
+     * @param waitKey   子事务的taskKey
+     * @return true 成功 false 失败
+     */
+    CompletionStage<Boolean> rollBackTxTransactionAsync(String txGroupId, String waitKey);
+
 
     /**
      * 通知tm自身业务已经执行完成，等待提交事务
@@ -66,6 +110,14 @@ public interface TxManagerMessageService {
      */
     Boolean preCommitTxTransaction(String txGroupId);
 
+    /**
+     * 异步通知tm自身业务已经执行完成，等待提交事务
+     *
+     * @param txGroupId 事务组id
+     * @return true 成功 false 失败
+     */
+    CompletionStage<Boolean> preCommitTxTransactionAsync(String txGroupId);
+
 
     /**
      * 完成提交自身的事务
@@ -77,6 +129,16 @@ public interface TxManagerMessageService {
      */
     Boolean completeCommitTxTransaction(String txGroupId, String taskKey, int status);
 
+    /**
+     * 异步完成提交自身的事务，等待tm确认
+     *
+     * @param txGroupId 事务组id
+     * @param taskKey   子事务的taskKey
+     * @param status    状态
+     * @return true 成功 false 失败
+     */
+    CompletionStage<Boolean> completeCommitTxTransactionAsync(String txGroupId, String taskKey, int status);
+
 
     /**
      * 异步完成自身的提交
@@ -4,6 +4,9 @@ package com.blueskykong.tm.core.service;
 import com.blueskykong.tm.common.bean.TxTransactionInfo;
 import org.aspectj.lang.ProceedingJoinPoint;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 @FunctionalInterface
 public interface TxTransactionHandler {
 
@@ -15,4 +18,14 @@ public interface TxTransactionHandler {
      * @throws Throwable 异常
      */
     Object handler(TxTransactionInfo info);
+
+    /**
+     * 分布式事务异步处理接口，默认在调用线程同步执行
+     *
+     * @param info 信息
+     * @return CompletionStage
+     */
+    default CompletionStage<Object> handlerAsync(TxTransactionInfo info) {
+        return CompletableFuture.completedFuture(handler(info));
+    }
 }
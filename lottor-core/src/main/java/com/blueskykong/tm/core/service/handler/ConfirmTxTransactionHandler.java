@@ -15,6 +15,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 public class ConfirmTxTransactionHandler implements TxTransactionHandler {
 
@@ -24,46 +27,76 @@ public class ConfirmTxTransactionHandler implements TxTransactionHandler {
 
     private final TxOperateCommand txOperateCommand;
 
+    private final Executor compensationExecutor;
+
     @Autowired
-    public ConfirmTxTransactionHandler(TxManagerMessageService txManagerMessageService, TxOperateCommand txOperateCommand) {
+    public ConfirmTxTransactionHandler(TxManagerMessageService txManagerMessageService, TxOperateCommand txOperateCommand,
+                                       Executor compensationExecutor) {
 
         this.txManagerMessageService = txManagerMessageService;
         this.txOperateCommand = txOperateCommand;
+        this.compensationExecutor = compensationExecutor;
     }
 
     @Override
     public Object handler(TxTransactionInfo info) {
-        LogUtil.info(LOGGER, "tx-transaction confirm,  事务确认类：{}", () -> "");
-
         final String groupId = TxTransactionLocal.getInstance().getTxGroupId();
 
         final String waitKey = TxTransactionTaskLocal.getInstance().getTxTaskId();
 
+        try {
+            return confirm(info, groupId, waitKey);
+        } finally {
+            TxTransactionLocal.getInstance().removeTxGroupId();
+            TxTransactionTaskLocal.getInstance().removeTxTaskId();
+        }
+    }
+
+    /**
+     * 异步确认，事务组id与taskKey在调用线程中取出并清除；
+     * 更新本地补偿信息在补偿线程池中执行，完成后通知tm，通知本身不阻塞
+     */
+    @Override
+    public CompletionStage<Object> handlerAsync(TxTransactionInfo info) {
+        final String groupId = TxTransactionLocal.getInstance().getTxGroupId();
+        final String waitKey = TxTransactionTaskLocal.getInstance().getTxTaskId();
+        TxTransactionLocal.getInstance().removeTxGroupId();
+        TxTransactionTaskLocal.getInstance().removeTxTaskId();
+
+        LogUtil.info(LOGGER, "tx-transaction async confirm,  事务确认类：{}", () -> "");
+        final int status = statusOf(info);
+        if (status != TransactionStatusEnum.COMMIT.getCode()) {
+            completeCommit(info, groupId, waitKey, status);
+            return CompletableFuture.completedFuture("");
+        }
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        try {
+            CompletableFuture.runAsync(() ->
+                    txOperateCommand.updateTxCompensation(groupId, status), compensationExecutor)
+                    .whenComplete((v, throwable) -> {
+                        if (Objects.isNull(throwable)) {
+                            completeCommit(info, groupId, waitKey, status);
+                            result.complete("");
+                        } else {
+                            rollBack(groupId, waitKey, result, throwable);
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            rollBack(groupId, waitKey, result, e);
+        }
+        return result;
+    }
+
+    private Object confirm(TxTransactionInfo info, String groupId, String waitKey) {
+        LogUtil.info(LOGGER, "tx-transaction confirm,  事务确认类：{}", () -> "");
         try {
             //发起调用
-            int status;
-            if ((Boolean) info.getArgs()[0] == true) {
-                status = TransactionStatusEnum.COMMIT.getCode();
+            final int status = statusOf(info);
+            if (status == TransactionStatusEnum.COMMIT.getCode()) {
                 //确认本地的事务状态，当前措施为删除补偿信息
-                txOperateCommand.updateTxCompensation(groupId, TransactionStatusEnum.COMMIT.getCode());
-            } else {
-                status = TransactionStatusEnum.ROLLBACK.getCode();
+                txOperateCommand.updateTxCompensation(groupId, status);
             }
-            LogUtil.debug(LOGGER, "confirm status: {}", () -> status);
-
-            if (Objects.nonNull(info.getArgs()[1])) {
-                final Object exceptionMsg = info.getArgs()[1];
-                //通知tm完成事务
-                CompletableFuture.runAsync(() ->
-                        txManagerMessageService
-                                .asyncCompleteCommit(groupId, waitKey,
-                                        status, exceptionMsg));
-            } else {
-                CompletableFuture.runAsync(() ->
-                        txManagerMessageService.asyncCompleteCommit(groupId, waitKey, status, ""));
-            }
-
-            LogUtil.info(LOGGER, "tx-transaction end, 事务发起类：{}", () -> "");
+            completeCommit(info, groupId, waitKey, status);
             return "";
         } catch (final Throwable throwable) {
             //通知tm整个事务组失败，需要回滚标志状态
@@ -71,9 +104,29 @@ public class ConfirmTxTransactionHandler implements TxTransactionHandler {
             txManagerMessageService.rollBackTxTransaction(groupId, waitKey);
             LogUtil.error(LOGGER, throwable::getLocalizedMessage);
             throw throwable;
-        } finally {
-            TxTransactionLocal.getInstance().removeTxGroupId();
-            TxTransactionTaskLocal.getInstance().removeTxTaskId();
         }
     }
+
+    private int statusOf(TxTransactionInfo info) {
+        final int status = (Boolean) info.getArgs()[0] == true
+                ? TransactionStatusEnum.COMMIT.getCode() : TransactionStatusEnum.ROLLBACK.getCode();
+        LogUtil.debug(LOGGER, "confirm status: {}", () -> status);
+        return status;
+    }
+
+    /**
+     * 通知tm完成事务，只是写出消息，不等待响应
+     */
+    private void completeCommit(TxTransactionInfo info, String groupId, String waitKey, int status) {
+        final Object exceptionMsg = Objects.nonNull(info.getArgs()[1]) ? info.getArgs()[1] : "";
+        txManagerMessageService.asyncCompleteCommit(groupId, waitKey, status, exceptionMsg);
+        LogUtil.info(LOGGER, "tx-transaction end, 事务发起类：{}", () -> "");
+    }
+
+    private void rollBack(String groupId, String waitKey, CompletableFuture<Object> result, Throwable throwable) {
+        //通知tm整个事务组失败，需要回滚标志状态
+        txManagerMessageService.rollBackTxTransactionAsync(groupId, waitKey);
+        LogUtil.error(LOGGER, throwable::getLocalizedMessage);
+        result.completeExceptionally(throwable);
+    }
 }
@@ -12,7 +12,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 
 public class ConsumedTransactionHandler implements TxTransactionHandler {
 
@@ -22,31 +25,20 @@ public class ConsumedTransactionHandler implements TxTransactionHandler {
 
     private final TxOperateService txOperateService;
 
+    private final Executor compensationExecutor;
+
     @Autowired
-    public ConsumedTransactionHandler(TxManagerMessageService txManagerMessageService, TxOperateService txOperateService) {
+    public ConsumedTransactionHandler(TxManagerMessageService txManagerMessageService, TxOperateService txOperateService,
+                                      Executor compensationExecutor) {
         this.txManagerMessageService = txManagerMessageService;
         this.txOperateService = txOperateService;
+        this.compensationExecutor = compensationExecutor;
     }
 
     @Override
     public Object handler(TxTransactionInfo info) {
-        LogUtil.info(LOGGER, "tx-transaction confirm,  事务确认类：{}", () -> "");
         try {
-            int status;
-            if (info.getArgs().length != 2) {
-                throw new IllegalArgumentException("wrong arguments for consuming!");
-            }
-            if ((Boolean) info.getArgs()[1] == true) {
-                status = ConsumedStatus.CONSUMED_SUCCESS.getStatus();
-            } else {
-                status = ConsumedStatus.CONSUMED_FAILURE.getStatus();
-            }
-            LogUtil.debug(LOGGER, "consume status: {}", () -> status);
-            TransactionMsg transactionMsg = (TransactionMsg) info.getArgs()[0];
-            transactionMsg.setConsumed(status);
-            transactionMsg.setUpdateTime(System.currentTimeMillis());
-            // 通知tm完成事务消息消费
-            CompletableFuture.runAsync(() -> txManagerMessageService.asyncCompleteConsume(transactionMsg));
+            final TransactionMsg transactionMsg = consume(info);
             // 完成消费为异步，本地记录结果
             txOperateService.saveTransactionMsg(transactionMsg);
 
@@ -57,4 +49,51 @@ public class ConsumedTransactionHandler implements TxTransactionHandler {
             throw throwable;
         }
     }
+
+    /**
+     * 异步消费确认，通知tm后本地记录消费结果在补偿线程池中执行
+     */
+    @Override
+    public CompletionStage<Object> handlerAsync(TxTransactionInfo info) {
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        try {
+            final TransactionMsg transactionMsg = consume(info);
+            CompletableFuture.runAsync(() -> txOperateService.saveTransactionMsg(transactionMsg), compensationExecutor)
+                    .whenComplete((v, throwable) -> {
+                        if (Objects.isNull(throwable)) {
+                            LogUtil.info(LOGGER, "tx-transaction 消费完成, 事务发起类：{}", () -> "");
+                            result.complete("");
+                        } else {
+                            LogUtil.error(LOGGER, throwable::getLocalizedMessage);
+                            result.completeExceptionally(throwable);
+                        }
+                    });
+        } catch (final Throwable throwable) {
+            LogUtil.error(LOGGER, throwable::getLocalizedMessage);
+            result.completeExceptionally(throwable);
+        }
+        return result;
+    }
+
+    /**
+     * 标记消费状态并通知tm完成事务消息消费，通知只是写出消息，不等待响应
+     */
+    private TransactionMsg consume(TxTransactionInfo info) {
+        LogUtil.info(LOGGER, "tx-transaction confirm,  事务确认类：{}", () -> "");
+        int status;
+        if (info.getArgs().length != 2) {
+            throw new IllegalArgumentException("wrong arguments for consuming!");
+        }
+        if ((Boolean) info.getArgs()[1] == true) {
+            status = ConsumedStatus.CONSUMED_SUCCESS.getStatus();
+        } else {
+            status = ConsumedStatus.CONSUMED_FAILURE.getStatus();
+        }
+        LogUtil.debug(LOGGER, "consume status: {}", () -> status);
+        TransactionMsg transactionMsg = (TransactionMsg) info.getArgs()[0];
+        transactionMsg.setConsumed(status);
+        transactionMsg.setUpdateTime(System.currentTimeMillis());
+        txManagerMessageService.asyncCompleteConsume(transactionMsg);
+        return transactionMsg;
+    }
 }
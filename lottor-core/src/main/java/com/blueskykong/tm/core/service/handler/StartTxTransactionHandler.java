@@ -27,6 +27,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 public class StartTxTransactionHandler implements TxTransactionHandler {
@@ -44,12 +48,16 @@ public class StartTxTransactionHandler implements TxTransactionHandler {
 
     private ModelNameService modelNameService;
 
+    private final Executor compensationExecutor;
+
     public StartTxTransactionHandler(TxManagerMessageService txManagerMessageService, TxOperateCommand txOperateCommand,
-                                     ObjectSerializer objectSerializer, ModelNameService modelNameService) {
+                                     ObjectSerializer objectSerializer, ModelNameService modelNameService,
+                                     Executor compensationExecutor) {
         this.objectSerializer = objectSerializer;
         this.txManagerMessageService = txManagerMessageService;
         this.txOperateCommand = txOperateCommand;
         this.modelNameService = modelNameService;
+        this.compensationExecutor = compensationExecutor;
     }
 
 
@@ -68,6 +76,39 @@ public class StartTxTransactionHandler implements TxTransactionHandler {
 
         //创建事务组信息，预提交事务组
         final Boolean success = txManagerMessageService.saveTxTransactionGroup(newTxTransactionGroup(groupId, waitKey, info));
+        return afterSaveGroup(success, groupId, waitKey, info, false);
+    }
+
+    /**
+     * 异步发起事务，事务组id与taskKey在返回前绑定到调用线程，
+     * 创建事务组的响应到达后在补偿线程池中记录本地补偿信息，补偿线程池已满时事务组回滚
+     */
+    @Override
+    public CompletionStage<Object> handlerAsync(TxTransactionInfo info) {
+        LogUtil.info(LOGGER, "tx-transaction async start,  事务发起类：{}",
+                () -> "");
+
+        final String groupId = IdWorkerUtils.getInstance().createGroupId();
+        TxTransactionLocal.getInstance().setTxGroupId(groupId);
+
+        final String waitKey = IdWorkerUtils.getInstance().createTaskKey();
+        TxTransactionTaskLocal.getInstance().setTxTaskId(waitKey);
+
+        return txManagerMessageService.saveTxTransactionGroupAsync(newTxTransactionGroup(groupId, waitKey, info))
+                .thenApplyAsync(success -> afterSaveGroup(success, groupId, waitKey, info, true), compensationExecutor)
+                .whenComplete((result, throwable) -> {
+                    if (throwable instanceof CompletionException
+                            && throwable.getCause() instanceof RejectedExecutionException) {
+                        txManagerMessageService.rollBackTxTransactionAsync(groupId, waitKey);
+                        LogUtil.error(LOGGER, "failed to start TxTransaction for: {}", throwable::getLocalizedMessage);
+                    }
+                });
+    }
+
+    /**
+     * @param async 异步发起时回滚通知不等待响应，不占用补偿线程
+     */
+    private Object afterSaveGroup(Boolean success, String groupId, String waitKey, TxTransactionInfo info, boolean async) {
         if (success) {
             try {
                 //本地服务记录，用作补偿
@@ -76,7 +117,11 @@ public class StartTxTransactionHandler implements TxTransactionHandler {
             } catch (Throwable throwable) {
                 //通知tm整个事务组失败，需要回滚，标志事务组的状态
                 //TODO ROLLBACK待优化
-                txManagerMessageService.rollBackTxTransaction(groupId, waitKey);
+                if (async) {
+                    txManagerMessageService.rollBackTxTransactionAsync(groupId, waitKey);
+                } else {
+                    txManagerMessageService.rollBackTxTransaction(groupId, waitKey);
+                }
                 txOperateCommand.updateTxCompensation(groupId, TransactionStatusEnum.ROLLBACK.getCode());
                 LogUtil.error(LOGGER, "failed to start TxTransaction for: {}", throwable::getLocalizedMessage);
                 throw throwable;
@@ -9,6 +9,8 @@ import com.blueskykong.tm.core.service.TxTransactionFactoryService;
 import com.blueskykong.tm.core.service.TxTransactionHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.concurrent.CompletionStage;
+
 /**
  *
  */
@@ -23,13 +25,23 @@ public class AspectTransactionServiceImpl implements AspectTransactionService {
 
     @Override
     public Object invoke(String transactionGroupId, Object[] args, OperationEnum operationEnum){
+        final TxTransactionInfo info = buildInfo(transactionGroupId, args, operationEnum);
+        return findHandler(info).handler(info);
+    }
+
+    @Override
+    public CompletionStage<Object> invokeAsync(String transactionGroupId, Object[] args, OperationEnum operationEnum) {
+        final TxTransactionInfo info = buildInfo(transactionGroupId, args, operationEnum);
+        return findHandler(info).handlerAsync(info);
+    }
 
+    private TxTransactionInfo buildInfo(String transactionGroupId, Object[] args, OperationEnum operationEnum) {
         final String compensationId = CompensationLocal.getInstance().getCompensationId();
+        return new TxTransactionInfo(null, args, transactionGroupId, compensationId, 60, operationEnum);
+    }
 
-        TxTransactionInfo info = new TxTransactionInfo(null, args, transactionGroupId, compensationId, 60, operationEnum);
+    private TxTransactionHandler findHandler(TxTransactionInfo info) {
         final Class c = txTransactionFactoryService.factoryOf(info);
-        final TxTransactionHandler txTransactionHandler =
-                (TxTransactionHandler) SpringBeanUtils.getInstance().getBean(c);
-        return txTransactionHandler.handler(info);
+        return (TxTransactionHandler) SpringBeanUtils.getInstance().getBean(c);
     }
 }
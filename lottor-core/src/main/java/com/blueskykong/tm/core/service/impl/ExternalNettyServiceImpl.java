@@ -9,6 +9,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 
 
 public class ExternalNettyServiceImpl implements ExternalNettyService {
@@ -29,6 +30,13 @@ public class ExternalNettyServiceImpl implements ExternalNettyService {
         return true;
     }
 
+    @Override
+    public CompletionStage<Boolean> preSendAsync(List<TransactionMsg> preCommitMsgs) {
+        Object[] args = new Object[]{preCommitMsgs};
+        LogUtil.info(LOGGER, () -> "异步发送preCommit消息");
+        return txTransactionInterceptor.interceptorAsync(args, OperationEnum.TX_NEW).thenApply(result -> true);
+    }
+
     @Override
 //    @ReliableTransaction(OperationEnum.TX_COMPLETE)
     public void postSend(Boolean success, Object message) {
@@ -37,6 +45,14 @@ public class ExternalNettyServiceImpl implements ExternalNettyService {
         txTransactionInterceptor.interceptor(args, OperationEnum.TX_COMPLETE);
     }
 
+    @Override
+    public CompletionStage<Void> postSendAsync(Boolean success, Object message) {
+        Object[] args = new Object[]{success, message};
+        LogUtil.info(LOGGER, "异步发送confirm消息, {} ", () -> success);
+        return txTransactionInterceptor.interceptorAsync(args, OperationEnum.TX_COMPLETE).thenAccept(result -> {
+        });
+    }
+
     @Override
 //    @ReliableTransaction(OperationEnum.TX_CONSUMED)
     public void consumedSend(TransactionMsg msg, Boolean success) {
@@ -47,4 +63,15 @@ public class ExternalNettyServiceImpl implements ExternalNettyService {
 
         txTransactionInterceptor.interceptor(args, OperationEnum.TX_CONSUMED);
     }
+
+    @Override
+    public CompletionStage<Void> consumedSendAsync(TransactionMsg msg, Boolean success) {
+        Object[] args = new Object[]{msg, success};
+
+        LogUtil.info(LOGGER, "异步发送Consume消息，groupId {} and subTaskId {}，消费结果为：{}", () -> msg.getGroupId(),
+                () -> msg.getSubTaskId(), () -> success);
+
+        return txTransactionInterceptor.interceptorAsync(args, OperationEnum.TX_CONSUMED).thenAccept(result -> {
+        });
+    }
 }
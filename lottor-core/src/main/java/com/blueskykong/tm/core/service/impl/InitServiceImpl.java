@@ -5,13 +5,16 @@ import com.blueskykong.tm.common.enums.CompensationCacheTypeEnum;
 import com.blueskykong.tm.common.enums.SerializeProtocolEnum;
 import com.blueskykong.tm.common.exception.TransactionRuntimeException;
 import com.blueskykong.tm.common.helper.SpringBeanUtils;
+import com.blueskykong.tm.common.holder.IdWorkerUtils;
 import com.blueskykong.tm.common.holder.LogUtil;
 import com.blueskykong.tm.common.holder.ServiceBootstrap;
 import com.blueskykong.tm.common.serializer.ObjectSerializer;
 import com.blueskykong.tm.core.compensation.TxOperateService;
 import com.blueskykong.tm.core.netty.NettyClientService;
 import com.blueskykong.tm.core.service.InitService;
+import com.blueskykong.tm.core.service.ModelNameService;
 import com.blueskykong.tm.core.spi.TransactionOperateRepository;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,6 +43,7 @@ public class InitServiceImpl implements InitService {
     public void initialization(TxConfig txConfig) {
         try {
             loadSpi(txConfig);
+            initWorkerId(txConfig);
             nettyClientService.start(txConfig);
             txOperateService.start(txConfig);
         } catch (Exception e) {
@@ -48,6 +52,23 @@ public class InitServiceImpl implements InitService {
         LogUtil.info(LOGGER, () -> "分布式补偿事务初始化成功！");
     }
 
+    /**
+     * 初始化id生成器的workerId，未配置时根据实例id计算，避免不同实例生成相同的事务组id
+     *
+     * @param txConfig 配置信息
+     */
+    private void initWorkerId(TxConfig txConfig) {
+        if (txConfig.getWorkerId() >= 0) {
+            IdWorkerUtils.getInstance().setWorkerId(txConfig.getWorkerId());
+            return;
+        }
+        final ModelNameService modelNameService = SpringBeanUtils.getInstance().getBean(ModelNameService.class);
+        if (Objects.nonNull(modelNameService) && StringUtils.isNotBlank(modelNameService.findClientMetaInfo())) {
+            IdWorkerUtils.getInstance().setWorkerId(IdWorkerUtils.workerIdOf(modelNameService.findClientMetaInfo()));
+        }
+        LogUtil.info(LOGGER, "id worker initialized, workerId:{}", () -> IdWorkerUtils.getInstance().getWorkerId());
+    }
+
     /**
      * 根据配置文件初始化spi
      *
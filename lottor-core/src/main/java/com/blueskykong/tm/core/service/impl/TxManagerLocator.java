@@ -11,6 +11,7 @@ import com.google.common.collect.Lists;
 import com.google.gson.reflect.TypeToken;
 import lombok.Setter;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cloud.client.ServiceInstance;
@@ -46,10 +47,19 @@ public class TxManagerLocator {
 
     private Type mResponsetype;
 
+    /**
+     * TxManager服务列表刷新后的回调
+     */
+    private volatile Runnable refreshListener;
+
     public void setTxConfig(TxConfig txConfig) {
         this.txConfig = txConfig;
     }
 
+    public void setRefreshListener(Runnable refreshListener) {
+        this.refreshListener = refreshListener;
+    }
+
     private TxManagerLocator() {
         List<TxManagerServiceDTO> initial = Lists.newArrayList();
         mConfigservices = new AtomicReference<>(initial);
@@ -89,6 +99,31 @@ public class TxManagerLocator {
 
     }
 
+    /**
+     * 获取所有TxManager的netty服务信息
+     *
+     * @return 获取失败的TxManager不包含在内
+     */
+    public List<TxManagerServer> locateAll() {
+        final List<TxManagerServiceDTO> txManagerService = getTxManagerService();
+        if (CollectionUtils.isEmpty(txManagerService)) {
+            return Collections.emptyList();
+        }
+        List<TxManagerServer> servers = Lists.newArrayListWithCapacity(txManagerService.size());
+        for (TxManagerServiceDTO serviceDTO : txManagerService) {
+            String url = String.join("", serviceDTO.getHomepageUrl(), CommonConstant.TX_MANAGER_PRE, CommonConstant.FIND_LOCAL_SERVER);
+            try {
+                final TxManagerServer server = OkHttpTools.getInstance().get(url, null, TxManagerServer.class);
+                if (Objects.nonNull(server) && StringUtils.isNoneBlank(server.getHost()) && Objects.nonNull(server.getPort())) {
+                    servers.add(server);
+                }
+            } catch (Throwable ex) {
+                LogUtil.error(LOGGER, "locate TxManager {} fail exception:{}", () -> url, ex::getMessage);
+            }
+        }
+        return servers;
+    }
+
 
     private List<TxManagerServiceDTO> getTxManagerService() {
         if (mConfigservices.get().isEmpty()) {
@@ -103,6 +138,14 @@ public class TxManagerLocator {
                 () -> {
                     LogUtil.debug(LOGGER, "refresh updateTxManagerServices delayTime:{}", () -> txConfig.getRefreshInterval());
                     updateTxManagerServices();
+                    final Runnable listener = refreshListener;
+                    if (Objects.nonNull(listener)) {
+                        try {
+                            listener.run();
+                        } catch (Throwable e) {
+                            LogUtil.error(LOGGER, "refresh listener fail exception:{}", e::getMessage);
+                        }
+                    }
                 }, 0, txConfig.getRefreshInterval(),
                 TimeUnit.SECONDS);
     }
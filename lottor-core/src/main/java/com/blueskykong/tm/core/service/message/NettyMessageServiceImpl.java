@@ -6,15 +6,13 @@ import com.blueskykong.tm.common.enums.TransactionStatusEnum;
 import com.blueskykong.tm.common.netty.bean.LottorRequest;
 import com.blueskykong.tm.common.netty.bean.TxTransactionGroup;
 import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
-import com.blueskykong.tm.core.compensation.TxOperateService;
-import com.blueskykong.tm.core.compensation.command.TxOperateCommand;
 import com.blueskykong.tm.core.netty.handler.NettyClientMessageHandler;
 import com.blueskykong.tm.core.service.TxManagerMessageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collections;
 import java.util.Objects;
+import java.util.concurrent.CompletionStage;
 
 public class NettyMessageServiceImpl implements TxManagerMessageService {
     private static final Logger LOGGER = LoggerFactory.getLogger(NettyMessageServiceImpl.class);
@@ -27,45 +25,35 @@ public class NettyMessageServiceImpl implements TxManagerMessageService {
 
     @Override
     public Boolean saveTxTransactionGroup(TxTransactionGroup txTransactionGroup) {
-        LottorRequest lottorRequest = new LottorRequest();
-        lottorRequest.setAction(NettyMessageActionEnum.CREATE_GROUP.getCode());
-        lottorRequest.setTxTransactionGroup(txTransactionGroup);
-        final Object object = nettyClientMessageHandler.get().sendTxManagerMessage(lottorRequest);
-        if (Objects.nonNull(object)) {
-            return (Boolean) object;
-        }
-        return false;
+        return toBoolean(nettyClientMessageHandler.get().sendTxManagerMessage(buildCreateGroup(txTransactionGroup)));
+    }
 
+    @Override
+    public CompletionStage<Boolean> saveTxTransactionGroupAsync(TxTransactionGroup txTransactionGroup) {
+        return nettyClientMessageHandler.get().sendTxManagerMessageAsync(buildCreateGroup(txTransactionGroup))
+                .thenApply(this::toBoolean);
     }
 
     @Override
     public Boolean addTxTransaction(String txGroupId, TxTransactionItem txTransactionItem) {
-        LottorRequest lottorRequest = new LottorRequest();
-        lottorRequest.setAction(NettyMessageActionEnum.ADD_TRANSACTION.getCode());
-        TxTransactionGroup txTransactionGroup = new TxTransactionGroup();
-        txTransactionGroup.setId(txGroupId);
-        txTransactionGroup.setItem(txTransactionItem);
-        lottorRequest.setTxTransactionGroup(txTransactionGroup);
-        final Object object = nettyClientMessageHandler.get().sendTxManagerMessage(lottorRequest);
-        if (Objects.nonNull(object)) {
-            return (Boolean) object;
-        }
-        return false;
+        return toBoolean(nettyClientMessageHandler.get().sendTxManagerMessage(buildAddTransaction(txGroupId, txTransactionItem)));
     }
 
     @Override
-    public int findTransactionGroupStatus(String txGroupId) {
-        LottorRequest lottorRequest = new LottorRequest();
-        lottorRequest.setAction(NettyMessageActionEnum.GET_TRANSACTION_GROUP_STATUS.getCode());
-        TxTransactionGroup txTransactionGroup = new TxTransactionGroup();
-        txTransactionGroup.setId(txGroupId);
+    public CompletionStage<Boolean> addTxTransactionAsync(String txGroupId, TxTransactionItem txTransactionItem) {
+        return nettyClientMessageHandler.get().sendTxManagerMessageAsync(buildAddTransaction(txGroupId, txTransactionItem))
+                .thenApply(this::toBoolean);
+    }
 
-        final Object object = nettyClientMessageHandler.get().sendTxManagerMessage(lottorRequest);
-        if (Objects.nonNull(object)) {
-            return (Integer) object;
-        }
-        return TransactionStatusEnum.ROLLBACK.getCode();
+    @Override
+    public int findTransactionGroupStatus(String txGroupId) {
+        return toStatus(nettyClientMessageHandler.get().sendTxManagerMessage(buildFindGroupStatus(txGroupId)));
+    }
 
+    @Override
+    public CompletionStage<Integer> findTransactionGroupStatusAsync(String txGroupId) {
+        return nettyClientMessageHandler.get().sendTxManagerMessageAsync(buildFindGroupStatus(txGroupId))
+                .thenApply(this::toStatus);
     }
 
     /**
@@ -76,16 +64,13 @@ public class NettyMessageServiceImpl implements TxManagerMessageService {
      */
     @Override
     public TxTransactionGroup findByTxGroupId(String txGroupId) {
-        LottorRequest lottorRequest = new LottorRequest();
-        lottorRequest.setAction(NettyMessageActionEnum.FIND_TRANSACTION_GROUP_INFO.getCode());
-        TxTransactionGroup txTransactionGroup = new TxTransactionGroup();
-        txTransactionGroup.setId(txGroupId);
-        lottorRequest.setTxTransactionGroup(txTransactionGroup);
-        final Object object = nettyClientMessageHandler.get().sendTxManagerMessage(lottorRequest);
-        if (Objects.nonNull(object)) {
-            return (TxTransactionGroup) object;
-        }
-        return null;
+        return toGroup(nettyClientMessageHandler.get().sendTxManagerMessage(buildFindGroupInfo(txGroupId)));
+    }
+
+    @Override
+    public CompletionStage<TxTransactionGroup> findByTxGroupIdAsync(String txGroupId) {
+        return nettyClientMessageHandler.get().sendTxManagerMessageAsync(buildFindGroupInfo(txGroupId))
+                .thenApply(this::toGroup);
     }
 
     /**
@@ -96,21 +81,13 @@ public class NettyMessageServiceImpl implements TxManagerMessageService {
      */
     @Override
     public Boolean rollBackTxTransaction(String txGroupId, String taskKey) {
-        LottorRequest lottorRequest = new LottorRequest();
-        lottorRequest.setAction(NettyMessageActionEnum.ROLLBACK.getCode());
-        TxTransactionGroup txTransactionGroup = new TxTransactionGroup();
-        txTransactionGroup.setStatus(TransactionStatusEnum.ROLLBACK.getCode());
-        txTransactionGroup.setId(txGroupId);
-        TxTransactionItem item = new TxTransactionItem();
-        item.setTaskKey(taskKey);
-        item.setStatus(TransactionStatusEnum.ROLLBACK.getCode());
-        txTransactionGroup.setItem(item);
-        lottorRequest.setTxTransactionGroup(txTransactionGroup);
-        final Object object = nettyClientMessageHandler.get().sendTxManagerMessage(lottorRequest);
-        if (Objects.nonNull(object)) {
-            return (Boolean) object;
-        }
-        return false;
+        return toBoolean(nettyClientMessageHandler.get().sendTxManagerMessage(buildRollBack(txGroupId, taskKey)));
+    }
+
+    @Override
+    public CompletionStage<Boolean> rollBackTxTransactionAsync(String txGroupId, String taskKey) {
+        return nettyClientMessageHandler.get().sendTxManagerMessageAsync(buildRollBack(txGroupId, taskKey))
+                .thenApply(this::toBoolean);
     }
 
     /**
@@ -122,19 +99,13 @@ public class NettyMessageServiceImpl implements TxManagerMessageService {
      */
     @Override
     public Boolean preCommitTxTransaction(String txGroupId) {
-        LottorRequest lottorRequest = new LottorRequest();
-        lottorRequest.setAction(NettyMessageActionEnum.PRE_COMMIT.getCode());
-        TxTransactionGroup txTransactionGroup = new TxTransactionGroup();
-        txTransactionGroup.setStatus(TransactionStatusEnum.PRE_COMMIT.getCode());
-        txTransactionGroup.setId(txGroupId);
-//        TxTransactionItem
+        return toBoolean(nettyClientMessageHandler.get().sendTxManagerMessage(buildPreCommit(txGroupId)));
+    }
 
-        lottorRequest.setTxTransactionGroup(txTransactionGroup);
-        final Object object = nettyClientMessageHandler.get().sendTxManagerMessage(lottorRequest);
-        if (Objects.nonNull(object)) {
-            return (Boolean) object;
-        }
-        return false;
+    @Override
+    public CompletionStage<Boolean> preCommitTxTransactionAsync(String txGroupId) {
+        return nettyClientMessageHandler.get().sendTxManagerMessageAsync(buildPreCommit(txGroupId))
+                .thenApply(this::toBoolean);
     }
 
     /**
@@ -147,20 +118,13 @@ public class NettyMessageServiceImpl implements TxManagerMessageService {
      */
     @Override
     public Boolean completeCommitTxTransaction(String txGroupId, String taskKey, int status) {
-        LottorRequest lottorRequest = new LottorRequest();
-        lottorRequest.setAction(NettyMessageActionEnum.COMPLETE_COMMIT.getCode());
-        TxTransactionGroup txTransactionGroup = new TxTransactionGroup();
-        txTransactionGroup.setId(txGroupId);
-        TxTransactionItem item = new TxTransactionItem();
-        item.setTaskKey(taskKey);
-        item.setStatus(status);
-        txTransactionGroup.setItem(item);
-        lottorRequest.setTxTransactionGroup(txTransactionGroup);
-        final Object object = nettyClientMessageHandler.get().sendTxManagerMessage(lottorRequest);
-        if (Objects.nonNull(object)) {
-            return (Boolean) object;
-        }
-        return false;
+        return toBoolean(nettyClientMessageHandler.get().sendTxManagerMessage(buildCompleteCommit(txGroupId, taskKey, status, null)));
+    }
+
+    @Override
+    public CompletionStage<Boolean> completeCommitTxTransactionAsync(String txGroupId, String taskKey, int status) {
+        return nettyClientMessageHandler.get().sendTxManagerMessageAsync(buildCompleteCommit(txGroupId, taskKey, status, null))
+                .thenApply(this::toBoolean);
     }
 
     /**
@@ -173,20 +137,7 @@ public class NettyMessageServiceImpl implements TxManagerMessageService {
      */
     @Override
     public void asyncCompleteCommit(String txGroupId, String taskKey, int status, Object message) {
-        LottorRequest lottorRequest = new LottorRequest();
-        lottorRequest.setAction(NettyMessageActionEnum.COMPLETE_COMMIT.getCode());
-        TxTransactionGroup txTransactionGroup = new TxTransactionGroup();
-        txTransactionGroup.setId(txGroupId);
-
-        TxTransactionItem item = new TxTransactionItem();
-        item.setTaskKey(taskKey);
-        item.setStatus(status);
-        item.setMessage(message);
-
-        txTransactionGroup.setItem(item);
-
-        lottorRequest.setTxTransactionGroup(txTransactionGroup);
-        nettyClientMessageHandler.get().asyncSendTxManagerMessage(lottorRequest);
+        nettyClientMessageHandler.get().asyncSendTxManagerMessage(buildCompleteCommit(txGroupId, taskKey, status, message));
     }
 
     /**
@@ -196,7 +147,7 @@ public class NettyMessageServiceImpl implements TxManagerMessageService {
      */
     @Override
     public void asyncCompleteConsume(TransactionMsg message) {
-        LottorRequest lottorRequest = new LottorRequest();
+        LottorRequest lottorRequest = LottorRequest.newInstance();
 
         lottorRequest.setAction(NettyMessageActionEnum.CONSUMED.getCode());
         lottorRequest.setTransactionMsg(message);
@@ -204,5 +155,98 @@ public class NettyMessageServiceImpl implements TxManagerMessageService {
         nettyClientMessageHandler.get().asyncSendTxManagerMessage(lottorRequest);
     }
 
+    private LottorRequest buildCreateGroup(TxTransactionGroup txTransactionGroup) {
+        LottorRequest lottorRequest = LottorRequest.newInstance();
+        lottorRequest.setAction(NettyMessageActionEnum.CREATE_GROUP.getCode());
+        lottorRequest.setTxTransactionGroup(txTransactionGroup);
+        return lottorRequest;
+    }
+
+    private LottorRequest buildAddTransaction(String txGroupId, TxTransactionItem txTransactionItem) {
+        LottorRequest lottorRequest = LottorRequest.newInstance();
+        lottorRequest.setAction(NettyMessageActionEnum.ADD_TRANSACTION.getCode());
+        TxTransactionGroup txTransactionGroup = TxTransactionGroup.newInstance();
+        txTransactionGroup.setId(txGroupId);
+        txTransactionGroup.setItem(txTransactionItem);
+        lottorRequest.setTxTransactionGroup(txTransactionGroup);
+        return lottorRequest;
+    }
+
+    private LottorRequest buildFindGroupStatus(String txGroupId) {
+        LottorRequest lottorRequest = LottorRequest.newInstance();
+        lottorRequest.setAction(NettyMessageActionEnum.GET_TRANSACTION_GROUP_STATUS.getCode());
+        return lottorRequest;
+    }
+
+    private LottorRequest buildFindGroupInfo(String txGroupId) {
+        LottorRequest lottorRequest = LottorRequest.newInstance();
+        lottorRequest.setAction(NettyMessageActionEnum.FIND_TRANSACTION_GROUP_INFO.getCode());
+        TxTransactionGroup txTransactionGroup = TxTransactionGroup.newInstance();
+        txTransactionGroup.setId(txGroupId);
+        lottorRequest.setTxTransactionGroup(txTransactionGroup);
+        return lottorRequest;
+    }
+
+    private LottorRequest buildRollBack(String txGroupId, String taskKey) {
+        LottorRequest lottorRequest = LottorRequest.newInstance();
+        lottorRequest.setAction(NettyMessageActionEnum.ROLLBACK.getCode());
+        TxTransactionGroup txTransactionGroup = TxTransactionGroup.newInstance();
+        txTransactionGroup.setStatus(TransactionStatusEnum.ROLLBACK.getCode());
+        txTransactionGroup.setId(txGroupId);
+        TxTransactionItem item = TxTransactionItem.newInstance();
+        item.setTaskKey(taskKey);
+        item.setStatus(TransactionStatusEnum.ROLLBACK.getCode());
+        txTransactionGroup.setItem(item);
+        lottorRequest.setTxTransactionGroup(txTransactionGroup);
+        return lottorRequest;
+    }
+
+    private LottorRequest buildPreCommit(String txGroupId) {
+        LottorRequest lottorRequest = LottorRequest.newInstance();
+        lottorRequest.setAction(NettyMessageActionEnum.PRE_COMMIT.getCode());
+        TxTransactionGroup txTransactionGroup = TxTransactionGroup.newInstance();
+        txTransactionGroup.setStatus(TransactionStatusEnum.PRE_COMMIT.getCode());
+        txTransactionGroup.setId(txGroupId);
+        lottorRequest.setTxTransactionGroup(txTransactionGroup);
+        return lottorRequest;
+    }
+
+    private LottorRequest buildCompleteCommit(String txGroupId, String taskKey, int status, Object message) {
+        LottorRequest lottorRequest = LottorRequest.newInstance();
+        lottorRequest.setAction(NettyMessageActionEnum.COMPLETE_COMMIT.getCode());
+        TxTransactionGroup txTransactionGroup = TxTransactionGroup.newInstance();
+        txTransactionGroup.setId(txGroupId);
+
+        TxTransactionItem item = TxTransactionItem.newInstance();
+        item.setTaskKey(taskKey);
+        item.setStatus(status);
+        item.setMessage(message);
+
+        txTransactionGroup.setItem(item);
+
+        lottorRequest.setTxTransactionGroup(txTransactionGroup);
+        return lottorRequest;
+    }
+
+    private Boolean toBoolean(Object object) {
+        if (Objects.nonNull(object)) {
+            return (Boolean) object;
+        }
+        return false;
+    }
+
+    private Integer toStatus(Object object) {
+        if (Objects.nonNull(object)) {
+            return (Integer) object;
+        }
+        return TransactionStatusEnum.ROLLBACK.getCode();
+    }
+
+    private TxTransactionGroup toGroup(Object object) {
+        if (Objects.nonNull(object)) {
+            return (TxTransactionGroup) object;
+        }
+        return null;
+    }
 
 }
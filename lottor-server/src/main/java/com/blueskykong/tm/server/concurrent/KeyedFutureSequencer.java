@@ -0,0 +1,67 @@
+package com.blueskykong.tm.server.concurrent;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * 按key串行执行异步操作
+ * 同一个key的操作在前一个操作的future完成后才开始，不同key之间并发，不占用等待的线程
+ * 每个key只保存最后一个操作的future，完成后移除
+ */
+public class KeyedFutureSequencer {
+
+    private final ConcurrentMap<String, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+
+    /**
+     * @param key       保序的key，为空时直接执行
+     * @param operation 发起异步操作
+     * @return 操作的结果
+     */
+    public <T> CompletableFuture<T> submit(String key, Supplier<CompletableFuture<T>> operation) {
+        if (StringUtils.isBlank(key)) {
+            return invoke(operation);
+        }
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final CompletableFuture<?> previous = tails.put(key, result);
+        if (Objects.isNull(previous)) {
+            forward(invoke(operation), result);
+        } else {
+            //前一个操作失败不影响后续操作
+            previous.whenComplete((value, throwable) -> forward(invoke(operation), result));
+        }
+        result.whenComplete((value, throwable) -> tails.remove(key, result));
+        return result;
+    }
+
+    /**
+     * @return 有操作在执行或者排队的key的数量
+     */
+    public int size() {
+        return tails.size();
+    }
+
+    private static <T> CompletableFuture<T> invoke(Supplier<CompletableFuture<T>> operation) {
+        try {
+            return operation.get();
+        } catch (Throwable t) {
+            final CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(t);
+            return failed;
+        }
+    }
+
+    private static <T> void forward(CompletableFuture<T> source, CompletableFuture<T> target) {
+        source.whenComplete((value, throwable) -> {
+            if (Objects.nonNull(throwable)) {
+                target.completeExceptionally(throwable);
+            } else {
+                target.complete(value);
+            }
+        });
+    }
+}
@@ -0,0 +1,180 @@
+package com.blueskykong.tm.server.concurrent;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 按key保序的业务线程池
+ * 每个lane是一个单线程的EventExecutor，相同key（事务组id）的任务总是进入同一个lane，按提交顺序执行，不同key之间并行
+ * lane的任务队列有上限，由EventExecutorGroup创建时指定，队列满时拒绝
+ */
+public class KeyedOrderedExecutor {
+
+    private final EventExecutor[] lanes;
+
+    private final LaneMetrics[] metrics;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    public KeyedOrderedExecutor(EventExecutorGroup group) {
+        final List<EventExecutor> executors = new ArrayList<>();
+        group.forEach(executors::add);
+        this.lanes = executors.toArray(new EventExecutor[0]);
+        this.metrics = new LaneMetrics[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            metrics[i] = new LaneMetrics(i, lanes[i]);
+        }
+    }
+
+    /**
+     * 提交任务
+     *
+     * @param key  保序的key，为空时轮询选择lane
+     * @param task 任务
+     * @return false lane的队列已满，任务被拒绝
+     */
+    public boolean execute(String key, Runnable task) {
+        final int lane = laneOf(key);
+        final LaneMetrics laneMetrics = metrics[lane];
+        final long submitNanos = System.nanoTime();
+        try {
+            lanes[lane].execute(() -> {
+                final long startNanos = System.nanoTime();
+                try {
+                    task.run();
+                } finally {
+                    laneMetrics.completed(startNanos - submitNanos, System.nanoTime() - startNanos);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            laneMetrics.rejected.increment();
+            return false;
+        }
+        laneMetrics.submitted.increment();
+        return true;
+    }
+
+    public int size() {
+        return lanes.length;
+    }
+
+    public List<LaneMetrics> getMetrics() {
+        return Arrays.stream(metrics).collect(Collectors.toList());
+    }
+
+    private int laneOf(String key) {
+        if (StringUtils.isBlank(key)) {
+            return (next.getAndIncrement() & Integer.MAX_VALUE) % lanes.length;
+        }
+        final int h = key.hashCode();
+        return ((h ^ (h >>> 16)) & Integer.MAX_VALUE) % lanes.length;
+    }
+
+    /**
+     * 单个lane的统计：排队深度、排队等待时间、执行时间
+     */
+    public static final class LaneMetrics {
+
+        private final int lane;
+
+        private final EventExecutor executor;
+
+        private final LongAdder submitted = new LongAdder();
+
+        private final LongAdder rejected = new LongAdder();
+
+        private final LongAdder completed = new LongAdder();
+
+        private final LongAdder waitNanos = new LongAdder();
+
+        private final LongAdder runNanos = new LongAdder();
+
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        private final AtomicLong maxRunNanos = new AtomicLong();
+
+        private LaneMetrics(int lane, EventExecutor executor) {
+            this.lane = lane;
+            this.executor = executor;
+        }
+
+        private void completed(long wait, long run) {
+            completed.increment();
+            waitNanos.add(wait);
+            runNanos.add(run);
+            maxWaitNanos.accumulateAndGet(wait, Math::max);
+            maxRunNanos.accumulateAndGet(run, Math::max);
+        }
+
+        public int getLane() {
+            return lane;
+        }
+
+        /**
+         * @return 当前排队的任务数
+         */
+        public int getQueueDepth() {
+            if (executor instanceof SingleThreadEventExecutor) {
+                return ((SingleThreadEventExecutor) executor).pendingTasks();
+            }
+            return -1;
+        }
+
+        public long getSubmitted() {
+            return submitted.sum();
+        }
+
+        public long getRejected() {
+            return rejected.sum();
+        }
+
+        public long getCompleted() {
+            return completed.sum();
+        }
+
+        /**
+         * @return 平均排队时间 单位：微秒
+         */
+        public long getAvgWaitMicros() {
+            return average(waitNanos);
+        }
+
+        /**
+         * @return 平均执行时间 单位：微秒
+         */
+        public long getAvgRunMicros() {
+            return average(runNanos);
+        }
+
+        public long getMaxWaitMicros() {
+            return TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get());
+        }
+
+        public long getMaxRunMicros() {
+            return TimeUnit.NANOSECONDS.toMicros(maxRunNanos.get());
+        }
+
+        private long average(LongAdder nanos) {
+            final long count = completed.sum();
+            return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(nanos.sum() / count);
+        }
+
+        @Override
+        public String toString() {
+            return "lane-" + lane + " depth:" + getQueueDepth() + " completed:" + getCompleted()
+                    + " rejected:" + getRejected() + " avgWait:" + getAvgWaitMicros() + "us";
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.blueskykong.tm.server.config;
+
+import lombok.Data;
+
+@Data
+public class ActiveGroupCacheConfig {
+
+    /**
+     * 是否在内存中保存进行中的事务组，读请求直接返回，写操作异步持久化到Mongo
+     */
+    private Boolean enabled = false;
+
+    /**
+     * 内存中最多保存的事务组数，超过时新的事务组直接读写Mongo
+     */
+    private int maxGroups = 100000;
+
+    /**
+     * 没有待持久化的写操作且超过该时间未访问的事务组从内存中移除
+     * 单位：s
+     */
+    private int expireSeconds = 300;
+
+    /**
+     * 异步持久化的线程数
+     */
+    private int writers = 4;
+
+    /**
+     * 异步持久化失败后的重试次数，仍然失败的事务组保留在内存中，之后的写请求返回失败
+     */
+    private int writeRetries = 3;
+
+    /**
+     * 第一次重试的间隔，之后每次翻倍
+     * 单位：ms
+     */
+    private int retryInterval = 200;
+
+    /**
+     * 待持久化的写操作超过该数量时，调用方等待本次写入完成
+     */
+    private int maxPendingWrites = 10000;
+
+    /**
+     * 关闭时等待写操作持久化的最长时间
+     * 单位：ms
+     */
+    private int shutdownTimeout = 10000;
+}
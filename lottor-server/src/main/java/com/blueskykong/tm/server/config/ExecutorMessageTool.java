@@ -5,24 +5,57 @@ import com.blueskykong.tm.common.enums.TransactionStatusEnum;
 import com.blueskykong.tm.common.netty.bean.LottorRequest;
 import com.blueskykong.tm.common.netty.bean.TxTransactionGroup;
 import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
+import com.blueskykong.tm.server.socket.ClientChannelRegistry;
 import com.blueskykong.tm.server.socket.SocketManager;
 import io.netty.channel.Channel;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 
+/**
+ * 构建发送给客户端的指令，开启对象池时构建的对象写出后由编码器回收
+ */
 public class ExecutorMessageTool {
 
 
-    public static LottorRequest buildMessage(TxTransactionItem item, ChannelSender channelSender, TransactionStatusEnum transactionStatusEnum) {
-        LottorRequest lottorRequest = new LottorRequest();
-        Channel channel = SocketManager.getInstance().getChannelByModelName(item.getModelName());
-        if (Objects.nonNull(channel)) {
-            if (channel.isActive()) {
-                channelSender.setChannel(channel);
-            }
+    /**
+     * 向事务项所属的客户端实例发送提交或回滚指令，每条连接使用单独构建的消息
+     *
+     * @return 发送的连接数，为0时没有可用的连接
+     */
+    public static int send(TxTransactionItem item, TransactionStatusEnum transactionStatusEnum) {
+        final List<Channel> channels = route(item);
+        for (Channel channel : channels) {
+            channel.writeAndFlush(buildMessage(item, transactionStatusEnum));
+        }
+        return channels.size();
+    }
+
+    /**
+     * 事务项所属实例的一条连接；所属实例未知（旧数据）或者没有连接到当前TxManager时，返回模块的所有连接，
+     * 不持有该taskKey的实例收到指令后忽略
+     *
+     * @return 可用的连接
+     */
+    public static List<Channel> route(TxTransactionItem item) {
+        final ClientChannelRegistry registry = SocketManager.getInstance().getRegistry();
+        final List<Channel> owner = active(registry.channelsOfInstance(item.getInstanceId()));
+        if (!owner.isEmpty()) {
+            return Collections.singletonList(owner.stream().filter(Channel::isWritable).findFirst().orElse(owner.get(0)));
         }
-        TxTransactionGroup txTransactionGroup = new TxTransactionGroup();
+        return active(registry.channelsOf(item.getModelName()));
+    }
+
+    private static List<Channel> active(List<Channel> channels) {
+        return channels.stream().filter(Channel::isActive).collect(Collectors.toList());
+    }
+
+    public static LottorRequest buildMessage(TxTransactionItem item, TransactionStatusEnum transactionStatusEnum) {
+        LottorRequest lottorRequest = LottorRequest.newInstance();
+        TxTransactionGroup txTransactionGroup = TxTransactionGroup.newInstance();
         if (TransactionStatusEnum.ROLLBACK.getCode() == transactionStatusEnum.getCode()) {
             lottorRequest.setAction(NettyMessageActionEnum.ROLLBACK.getCode());
             item.setStatus(TransactionStatusEnum.ROLLBACK.getCode());
@@ -40,7 +73,7 @@ public class ExecutorMessageTool {
 
 
     public static LottorRequest buildCheck(TxTransactionItem item, ChannelSender channelSender, NettyMessageActionEnum nettyMessageActionEnum) {
-        LottorRequest lottorRequest = new LottorRequest();
+        LottorRequest lottorRequest = LottorRequest.newInstance();
         Channel channel = SocketManager.getInstance().getChannelByModelName(item.getModelName());
         if (Objects.nonNull(channel)) {
             if (channel.isActive()) {
@@ -0,0 +1,52 @@
+package com.blueskykong.tm.server.config;
+
+import lombok.Data;
+
+@Data
+public class MongoBatchConfig {
+
+    /**
+     * TxManagerService使用的Mongo驱动 sync 或 async，async时不使用写操作合并
+     */
+    private String driver = "sync";
+
+    /**
+     * async驱动时同时处理的请求数上限，达到上限时暂停读取客户端连接
+     * 需要小于驱动的等待队列（默认连接池100 * waitQueueMultiple 5 = 500），否则排不上队的操作直接失败
+     */
+    private int asyncMaxInFlight = 400;
+
+    /**
+     * 写操作合并的等待时间，该时间内的insert、update合并为一次bulkWrite，小于等于0时不合并
+     * 单位：ms
+     */
+    private int batchLinger = 0;
+
+    /**
+     * 一次bulkWrite最多包含的写操作数
+     */
+    private int batchSize = 256;
+
+    /**
+     * 同时等待写入结果的调用方数量，批次中的操作数达到该值时不再等待batchLinger直接写入
+     * 调用方提交后阻塞等待，批次不可能超过该值；小于等于0时按照业务线程池的lane数（加上缓存的写线程数）计算
+     */
+    private int maxWaiters = 0;
+
+    /**
+     * 调用方等待写入结果的最长时间，超时按失败处理
+     * 单位：ms
+     */
+    private int waitTimeout = 10000;
+
+    /**
+     * 等待合并的写操作上限，超过时调用方直接写入
+     */
+    private int queueSize = 10000;
+
+    /**
+     * 关闭时等待剩余写操作完成的最长时间
+     * 单位：ms
+     */
+    private int shutdownTimeout = 10000;
+}
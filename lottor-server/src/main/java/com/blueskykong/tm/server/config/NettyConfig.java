@@ -16,11 +16,31 @@ public class NettyConfig {
     private int maxThreads = Runtime.getRuntime().availableProcessors() << 2;
 
 
+    /**
+     * 是否把访问Mongo的请求交给业务线程池处理，同一事务组的请求按顺序执行
+     */
+    private Boolean dispatch = true;
+
+    /**
+     * 业务线程池的lane数，每个lane一个线程，小于等于0时使用maxThreads
+     */
+    private int dispatchLanes = 0;
+
+    /**
+     * 每个lane最多排队的请求数，超过时暂停读取该连接，直到lane有空位
+     */
+    private int dispatchQueueSize = 10000;
+
     /**
      * 客户端与服务端链接数
      */
     private int maxConnection = 50;
 
+    /**
+     * 向客户端发送指令时同一模块多条连接的选择策略 leastPending 或 roundRobin
+     */
+    private String channelSelectType = "leastPending";
+
     /**
      * 序列化方式
      */
@@ -36,6 +56,79 @@ public class NettyConfig {
      */
     private int heartTime;
 
+    /**
+     * 是否合并flush
+     */
+    private Boolean flushConsolidation = true;
+
+    /**
+     * 累计多少次flush后强制flush
+     */
+    private int explicitFlushAfterFlushes = 256;
+
+    /**
+     * 非读事件中发送的消息是否合并到下一次事件循环flush
+     */
+    private Boolean writeBatching = false;
+
+    /**
+     * 是否压缩大消息，只对注册时声明支持压缩的客户端生效
+     */
+    private Boolean compress = false;
+
+    /**
+     * 消息体超过该大小时压缩 单位：byte
+     */
+    private int compressThreshold = 4096;
+
+    /**
+     * 最大帧长度，超过时断开连接 单位：byte
+     */
+    private int maxFrameLength = 8 * 1024 * 1024;
+
+    /**
+     * 收发的LottorRequest、TxTransactionGroup、TxTransactionItem是否使用对象池
+     */
+    private Boolean recycle = false;
+
+    /**
+     * 写缓冲低水位，低于该值channel恢复可写 单位：byte
+     */
+    private int writeBufferLowWaterMark = 32 * 1024;
+
+    /**
+     * 写缓冲高水位，超过该值channel不可写 单位：byte
+     */
+    private int writeBufferHighWaterMark = 64 * 1024;
+
+    /**
+     * 慢客户端处理策略 pause shed disconnect
+     */
+    private String slowConsumerPolicy = "pause";
+
+    /**
+     * disconnect策略下，客户端持续不可写超过该时间断开连接 单位：秒
+     */
+    private int unwritableTimeout = 30;
+
+    /**
+     * 传输层 nio epoll io_uring，不可用时依次降级
+     */
+    private String transport = "nio";
+
+    /**
+     * epoll下通过SO_REUSEPORT绑定同一端口的acceptor数量，其他传输层固定为1
+     */
+    private int acceptors = 1;
+
+    /**
+     * 等待accept的连接队列长度
+     */
+    private int backlog = 1024;
+
+    /**
+     * 兼容旧配置，等同于 transport=epoll
+     */
     private Boolean onEpoll = false;
 
     private Boolean check = true;
@@ -5,11 +5,16 @@ import com.blueskykong.tm.common.helper.SpringBeanUtils;
 import com.blueskykong.tm.common.holder.ServiceBootstrap;
 import com.blueskykong.tm.common.serializer.KryoSerializer;
 import com.blueskykong.tm.common.serializer.ObjectSerializer;
+import com.blueskykong.tm.server.config.ActiveGroupCacheConfig;
+import com.blueskykong.tm.server.config.MongoBatchConfig;
 import com.blueskykong.tm.server.config.NettyConfig;
 import com.blueskykong.tm.server.discovery.DiscoveryService;
 import com.blueskykong.tm.server.netty.handler.NettyServerMessageHandler;
 import com.blueskykong.tm.server.service.BaseItemService;
+import com.blueskykong.tm.server.service.OutputFactoryService;
 import com.blueskykong.tm.server.service.TxManagerService;
+import com.blueskykong.tm.server.service.cache.CachingTxManagerService;
+import com.blueskykong.tm.server.service.impl.AsyncMongoTxManagerServiceImpl;
 import com.blueskykong.tm.server.service.impl.BaseItemServiceImpl;
 import com.blueskykong.tm.server.task.TxSyncTask;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
@@ -18,9 +23,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Maps;
 import com.mongodb.Mongo;
 import com.mongodb.MongoClient;
+import com.mongodb.async.client.MongoClients;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -28,6 +35,7 @@ import org.springframework.cache.interceptor.KeyGenerator;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.MapPropertySource;
 import org.springframework.data.mongodb.config.AbstractMongoConfiguration;
@@ -71,6 +79,23 @@ public class TxManagerConfiguration {
         return new BaseItemServiceImpl(mongoTemplate);
     }
 
+    @Bean
+    @ConfigurationProperties("tx.manager.cache")
+    public ActiveGroupCacheConfig getActiveGroupCacheConfig() {
+        return new ActiveGroupCacheConfig();
+    }
+
+    /**
+     * 包装实际的存储实现，注入TxManagerService的地方都使用缓存
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "tx.manager.cache", name = "enabled", havingValue = "true")
+    public CachingTxManagerService cachingTxManagerService(TxManagerService txManagerService,
+                                                           ActiveGroupCacheConfig activeGroupCacheConfig) {
+        return new CachingTxManagerService(txManagerService, activeGroupCacheConfig);
+    }
+
     @Configuration
     static class NettyConfiguration {
 
@@ -125,6 +150,27 @@ public class TxManagerConfiguration {
             return mmc;
         }
 
+        @Bean
+        @ConfigurationProperties("tx.manager.mongo")
+        public MongoBatchConfig getMongoBatchConfig() {
+            return new MongoBatchConfig();
+        }
+
+        @Bean(destroyMethod = "close")
+        @ConditionalOnProperty(prefix = "tx.manager.mongo", name = "driver", havingValue = "async")
+        public com.mongodb.async.client.MongoClient asyncMongoClient() {
+            return MongoClients.create("mongodb://" + MONGODB_HOST + ":" + MONGODB_PORT);
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = "tx.manager.mongo", name = "driver", havingValue = "async")
+        public AsyncMongoTxManagerServiceImpl asyncMongoTxManagerService(com.mongodb.async.client.MongoClient asyncMongoClient,
+                                                                         MappingMongoConverter mappingMongoConverter,
+                                                                         OutputFactoryService outputFactoryService) {
+            return new AsyncMongoTxManagerServiceImpl(asyncMongoClient, MONGODB_DATABASE,
+                    mappingMongoConverter, outputFactoryService);
+        }
+
     }
 
     @Configuration
@@ -4,7 +4,8 @@ import com.blueskykong.tm.common.enums.NettyMessageActionEnum;
 import com.blueskykong.tm.common.netty.bean.LottorRequest;
 import com.blueskykong.tm.common.netty.bean.TxTransactionGroup;
 import com.blueskykong.tm.server.netty.handler.NettyServerMessageHandler;
-import io.netty.channel.ChannelHandlerContext;
+import com.blueskykong.tm.server.socket.SocketManager;
+import io.netty.channel.Channel;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -20,10 +21,10 @@ public class HandlerController {
 
     @GetMapping("/test")
     public String test() {
-        ChannelHandlerContext ctx = nettyServerMessageHandler.getClientContext().get("1").get(0);
-        if (ctx != null && ctx.channel() != null && ctx.channel().isActive()) {
+        Channel channel = SocketManager.getInstance().getChannelByModelName("1");
+        if (channel != null && channel.isActive()) {
 
-            ctx.writeAndFlush(getTxStatus("123445"));
+            channel.writeAndFlush(getTxStatus("123445"));
         }
         return "ok";
     }
@@ -3,9 +3,14 @@ package com.blueskykong.tm.server.controller;
 import com.blueskykong.tm.common.entity.TxManagerServer;
 import com.blueskykong.tm.common.entity.TxManagerServiceDTO;
 import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
+import com.blueskykong.tm.common.netty.compress.CompressionMetrics;
+import com.blueskykong.tm.server.concurrent.KeyedOrderedExecutor;
 import com.blueskykong.tm.server.entity.ChannelInfo;
 import com.blueskykong.tm.server.entity.TxManagerInfo;
+import com.blueskykong.tm.server.netty.handler.NettyServerMessageHandler;
 import com.blueskykong.tm.server.service.TxManagerInfoService;
+import com.blueskykong.tm.server.service.TxManagerService;
+import com.blueskykong.tm.server.service.cache.CachingTxManagerService;
 import com.blueskykong.tm.server.service.execute.HttpTransactionExecutor;
 import com.blueskykong.tm.server.socket.SocketManager;
 import io.netty.channel.Channel;
@@ -22,10 +27,12 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/tx/manager")
@@ -35,10 +42,17 @@ public class TxManagerController {
 
     private final HttpTransactionExecutor httpTransactionExecutor;
 
+    private final NettyServerMessageHandler nettyServerMessageHandler;
+
+    private final TxManagerService txManagerService;
+
     @Autowired
-    public TxManagerController(TxManagerInfoService txManagerInfoService, HttpTransactionExecutor transactionExecutor) {
+    public TxManagerController(TxManagerInfoService txManagerInfoService, HttpTransactionExecutor transactionExecutor,
+                               NettyServerMessageHandler nettyServerMessageHandler, TxManagerService txManagerService) {
         this.txManagerInfoService = txManagerInfoService;
         this.httpTransactionExecutor = transactionExecutor;
+        this.nettyServerMessageHandler = nettyServerMessageHandler;
+        this.txManagerService = txManagerService;
     }
 
     @GetMapping
@@ -53,6 +67,12 @@ public class TxManagerController {
         return txManagerInfoService.findTxManagerServer();
     }
 
+    @ResponseBody
+    @PostMapping("/findLocalServer")
+    public TxManagerServer findLocalServer() {
+        return txManagerInfoService.findLocalServer();
+    }
+
     @ResponseBody
     @PostMapping("/loadTxManagerService")
     public List<TxManagerServiceDTO> loadTxManagerService() {
@@ -82,6 +102,34 @@ public class TxManagerController {
         return txManagerInfoService.totalMsgs();
     }
 
+    @GetMapping("/codecs")
+    public Map<String, Long> getCodecMix() {
+        return SocketManager.getInstance().getCodecMix();
+    }
+
+    @GetMapping("/compression")
+    public CompressionMetrics getCompressionMetrics() {
+        return CompressionMetrics.getInstance();
+    }
+
+    /**
+     * 业务线程池每个lane的排队深度和延迟
+     */
+    @GetMapping("/dispatch")
+    public List<KeyedOrderedExecutor.LaneMetrics> getDispatchMetrics() {
+        final KeyedOrderedExecutor dispatcher = nettyServerMessageHandler.getDispatcher();
+        return Objects.isNull(dispatcher) ? Collections.emptyList() : dispatcher.getMetrics();
+    }
+
+    /**
+     * 进行中事务组缓存的命中率和待持久化的写操作数，未开启时为空
+     */
+    @GetMapping("/cache")
+    public CachingTxManagerService.CacheMetrics getCacheMetrics() {
+        return txManagerService instanceof CachingTxManagerService
+                ? ((CachingTxManagerService) txManagerService).getMetrics() : null;
+    }
+
     @GetMapping("/cluster-info")
     public List<TxManagerInfo> getTxManagerDetails() {
         return txManagerInfoService.findClusterInfo();
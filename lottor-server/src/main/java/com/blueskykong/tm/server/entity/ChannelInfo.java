@@ -20,6 +20,46 @@ public class ChannelInfo {
 
     private String metaInfo;
 
+    /**
+     * 是否通过握手帧协商序列化方式，false 为使用默认序列化方式的旧版本客户端
+     */
+    private boolean handshake;
+
+    /**
+     * channel是否可写
+     */
+    private boolean writable = true;
+
+    /**
+     * 写缓冲中等待发送的字节数
+     */
+    private long queuedBytes;
+
+    /**
+     * 距离不可写还可以写入的字节数
+     */
+    private long bytesBeforeUnwritable;
+
+    /**
+     * 是否暂停读取客户端请求
+     */
+    private boolean readPaused;
+
+    /**
+     * 当前持续不可写的时长 单位：ms
+     */
+    private long unwritableMillis;
+
+    /**
+     * 变为不可写的次数
+     */
+    private long unwritableTimes;
+
+    /**
+     * 因不可写被丢弃的消息数
+     */
+    private long shedCount;
+
     public ChannelInfo(String client, String server) {
         this.client = client;
         this.server = server;
@@ -0,0 +1,98 @@
+package com.blueskykong.tm.server.netty.handler;
+
+import com.blueskykong.tm.common.enums.SerializeProtocolEnum;
+import com.blueskykong.tm.common.netty.NettyPipelineInit;
+import com.blueskykong.tm.common.netty.bean.HandshakeFrame;
+import com.blueskykong.tm.server.entity.ChannelInfo;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.util.AttributeKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 按连接选择编解码器
+ * 客户端第一帧为 {@link HandshakeFrame} 时使用其声明的序列化方式，否则为旧版本客户端，使用配置的序列化方式
+ * 选定后把编解码器加在自己后面并移除自己，已经读到的数据交给新的解码器
+ */
+public class CodecNegotiationHandler extends ByteToMessageDecoder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CodecNegotiationHandler.class);
+
+    public static final String NAME = "codecNegotiation";
+
+    private static final AttributeKey<SerializeProtocolEnum> CODEC = AttributeKey.valueOf("lottor.codec");
+
+    private static final AttributeKey<Boolean> HANDSHAKE = AttributeKey.valueOf("lottor.handshake");
+
+    private final SerializeProtocolEnum defaultProtocol;
+
+    private final int maxFrameLength;
+
+    public CodecNegotiationHandler(SerializeProtocolEnum defaultProtocol, int maxFrameLength) {
+        this.defaultProtocol = defaultProtocol;
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        if (in.readableBytes() < 4) {
+            return;
+        }
+        if (in.getInt(in.readerIndex()) != HandshakeFrame.MAGIC) {
+            install(ctx, defaultProtocol, false, false);
+            return;
+        }
+        if (in.readableBytes() < HandshakeFrame.LENGTH) {
+            return;
+        }
+        in.skipBytes(4);
+        final int version = in.readUnsignedByte();
+        final int codecId = in.readUnsignedByte();
+        final SerializeProtocolEnum protocol = SerializeProtocolEnum.acquireByCodecId(codecId);
+        if (version > HandshakeFrame.VERSION || Objects.isNull(protocol)) {
+            LOGGER.warn("unsupported handshake from {}, version: {}, codec: {}", ctx.channel().remoteAddress(), version, codecId);
+            in.skipBytes(in.readableBytes());
+            ctx.close();
+            return;
+        }
+        install(ctx, protocol, true, version >= HandshakeFrame.REGISTRY_VERSION);
+    }
+
+    /**
+     * @param kryoRegistry 客户端在握手中声明了Kryo注册表，否则按旧版本格式只注册LottorRequest
+     */
+    private void install(ChannelHandlerContext ctx, SerializeProtocolEnum protocol, boolean handshake, boolean kryoRegistry) {
+        final ChannelHandler[] handlers = NettyPipelineInit.codecHandlers(protocol, maxFrameLength, kryoRegistry);
+        ctx.pipeline().addAfter(ctx.name(), "decoder", handlers[1]);
+        ctx.pipeline().addAfter(ctx.name(), "encoder", handlers[0]);
+        ctx.channel().attr(CODEC).set(protocol);
+        ctx.channel().attr(HANDSHAKE).set(handshake);
+        ctx.pipeline().remove(this);
+    }
+
+    public static SerializeProtocolEnum codecOf(Channel channel) {
+        return channel.attr(CODEC).get();
+    }
+
+    /**
+     * 客户端是否发送过握手帧，未握手的是旧版本客户端
+     */
+    public static boolean isHandshake(Channel channel) {
+        return Boolean.TRUE.equals(channel.attr(HANDSHAKE).get());
+    }
+
+    public static void fill(ChannelInfo channelInfo, Channel channel) {
+        final SerializeProtocolEnum protocol = codecOf(channel);
+        if (Objects.nonNull(protocol)) {
+            channelInfo.setSerialProtocol(protocol.getSerializeProtocol());
+            channelInfo.setHandshake(isHandshake(channel));
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.blueskykong.tm.server.netty.handler;
 
 import com.blueskykong.tm.common.enums.SerializeProtocolEnum;
+import com.blueskykong.tm.common.enums.SlowConsumerPolicyEnum;
 import com.blueskykong.tm.common.netty.NettyPipelineInit;
+import com.blueskykong.tm.server.concurrent.KeyedOrderedExecutor;
 import com.blueskykong.tm.server.config.NettyConfig;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
@@ -27,8 +29,14 @@ public class NettyServerHandlerInitializer extends ChannelInitializer<SocketChan
 
     private DefaultEventExecutorGroup servletExecutor;
 
+    /**
+     * 开启dispatch时，业务线程池的每个线程作为一个保序的lane
+     */
     public void setServletExecutor(DefaultEventExecutorGroup servletExecutor) {
         this.servletExecutor = servletExecutor;
+        if (nettyConfig.getDispatch()) {
+            nettyServerMessageHandler.setDispatcher(new KeyedOrderedExecutor(servletExecutor));
+        }
     }
 
     @Autowired
@@ -44,9 +52,14 @@ public class NettyServerHandlerInitializer extends ChannelInitializer<SocketChan
     @Override
     protected void initChannel(SocketChannel ch) throws Exception {
         final ChannelPipeline pipeline = ch.pipeline();
-        NettyPipelineInit.serializePipeline(serializeProtocolEnum, pipeline);
+        if (nettyConfig.getFlushConsolidation()) {
+            NettyPipelineInit.flushPipeline(pipeline, nettyConfig.getExplicitFlushAfterFlushes(), nettyConfig.getWriteBatching());
+        }
+        pipeline.addLast(CodecNegotiationHandler.NAME, new CodecNegotiationHandler(serializeProtocolEnum, nettyConfig.getMaxFrameLength()));
         pipeline.addLast("timeout",
-                new IdleStateHandler(nettyConfig.getHeartTime(), nettyConfig.getHeartTime(), nettyConfig.getHeartTime(), TimeUnit.SECONDS));
+                new IdleStateHandler(nettyConfig.getHeartTime(), 0, 0, TimeUnit.SECONDS));
+        pipeline.addLast(new SlowConsumerHandler(SlowConsumerPolicyEnum.fromString(nettyConfig.getSlowConsumerPolicy()),
+                TimeUnit.SECONDS.toMillis(nettyConfig.getUnwritableTimeout())));
         pipeline.addLast(nettyServerMessageHandler);
     }
 }
@@ -4,31 +4,47 @@ package com.blueskykong.tm.server.netty.handler;
 import com.blueskykong.tm.common.entity.TransactionMsg;
 import com.blueskykong.tm.common.enums.NettyMessageActionEnum;
 import com.blueskykong.tm.common.enums.NettyResultEnum;
+import com.blueskykong.tm.common.holder.IdWorkerUtils;
 import com.blueskykong.tm.common.holder.LogUtil;
+import com.blueskykong.tm.common.netty.bean.BatchFrame;
+import com.blueskykong.tm.common.netty.bean.HeartbeatFrame;
 import com.blueskykong.tm.common.netty.bean.LottorRequest;
 import com.blueskykong.tm.common.netty.bean.TxTransactionGroup;
 import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
+import com.blueskykong.tm.common.netty.compress.FrameCompressor;
 import com.blueskykong.tm.server.config.Address;
+import com.blueskykong.tm.server.concurrent.KeyedFutureSequencer;
+import com.blueskykong.tm.server.concurrent.KeyedOrderedExecutor;
+import com.blueskykong.tm.server.config.MongoBatchConfig;
+import com.blueskykong.tm.server.config.NettyConfig;
+import com.blueskykong.tm.server.service.AsyncTxManagerService;
 import com.blueskykong.tm.server.service.TxManagerService;
 import com.blueskykong.tm.server.service.TxTransactionExecutor;
+import com.blueskykong.tm.server.socket.ClientChannelRegistry;
 import com.blueskykong.tm.server.socket.SocketManager;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.AttributeKey;
 import io.netty.util.ReferenceCountUtil;
-import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 @ChannelHandler.Sharable
 @Component
@@ -36,44 +52,153 @@ public class NettyServerMessageHandler extends ChannelInboundHandlerAdapter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NettyServerMessageHandler.class);
 
+    /**
+     * lane队列已满或异步存储达到并发上限时暂存的请求，只在io线程中访问
+     */
+    private static final AttributeKey<Deque<ParkedRequest>> PARKED = AttributeKey.valueOf("lottor.parked");
+
+    /**
+     * 暂存的请求重新提交的间隔
+     */
+    private static final long DRAIN_INTERVAL_MILLIS = 5;
+
     private final ThreadLocal<TxManagerService> txManagerService;
 
     private final TxTransactionExecutor txTransactionExecutor;
 
-    private ConcurrentHashMap<String, Integer> clients = new ConcurrentHashMap<>();
+    private final NettyConfig nettyConfig;
+
+    /**
+     * 存储是异步实现时不为空，访问Mongo的请求不再进入业务线程池
+     */
+    private final AsyncTxManagerService asyncTxManagerService;
+
+    /**
+     * 异步存储时按事务组保序
+     */
+    private final KeyedFutureSequencer sequencer = new KeyedFutureSequencer();
+
+    /**
+     * 异步存储时正在处理的请求数上限，所有连接共用，避免超出Mongo异步驱动的等待队列
+     */
+    private final Semaphore inFlight;
 
-    private ConcurrentHashMap<String, List<ChannelHandlerContext>> clientContext = new ConcurrentHashMap<>();
+    /**
+     * 业务线程池，为空时在io线程处理
+     */
+    private volatile KeyedOrderedExecutor dispatcher;
 
-    public ConcurrentHashMap<String, List<ChannelHandlerContext>> getClientContext() {
-        return clientContext;
+    public KeyedOrderedExecutor getDispatcher() {
+        return dispatcher;
     }
 
-    public List<ChannelHandlerContext> getCtxByName(String service) {
-        List<ChannelHandlerContext> contexts = new ArrayList<>();
-        if (StringUtils.isNotBlank(service)) {
-            contexts = clientContext.get(service);
-        }
-        return contexts;
+    public void setDispatcher(KeyedOrderedExecutor dispatcher) {
+        this.dispatcher = dispatcher;
     }
 
     @Autowired
-    public NettyServerMessageHandler(TxManagerService txManagerService, TxTransactionExecutor txTransactionExecutor) {
+    public NettyServerMessageHandler(TxManagerService txManagerService, TxTransactionExecutor txTransactionExecutor,
+                                     NettyConfig nettyConfig, MongoBatchConfig mongoBatchConfig) {
         this.txManagerService = ThreadLocal.withInitial(() -> txManagerService);
         this.txTransactionExecutor = txTransactionExecutor;
+        this.nettyConfig = nettyConfig;
+        this.asyncTxManagerService = txManagerService instanceof AsyncTxManagerService
+                ? (AsyncTxManagerService) txManagerService : null;
+        this.inFlight = new Semaphore(Math.max(1, mongoBatchConfig.getAsyncMaxInFlight()));
+    }
+
+    public KeyedFutureSequencer getSequencer() {
+        return sequencer;
     }
 
 
+    /**
+     * 访问Mongo的请求交给按事务组保序的业务线程池，心跳和注册在io线程直接处理
+     * io线程中的回复统一使用write，由channelReadComplete一次flush
+     */
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
-        LottorRequest hb = (LottorRequest) msg;
+        if (msg == HeartbeatFrame.INSTANCE) {
+            ctx.write(HeartbeatFrame.INSTANCE);
+            return;
+        }
+        if (msg instanceof BatchFrame) {
+            //按顺序逐个分发，同一事务组的请求进入同一个lane，顺序不变
+            ((BatchFrame) msg).getRequests().forEach(request -> channelRead(ctx, request));
+            return;
+        }
+        final LottorRequest hb = (LottorRequest) msg;
+        final NettyMessageActionEnum actionEnum = NettyMessageActionEnum.acquireByCode(hb.getAction());
+        if (Objects.nonNull(asyncTxManagerService) && isDispatched(actionEnum)) {
+            dispatch(ctx, new ParkedRequest(null, () -> handleAsync(ctx, hb, actionEnum)), this::startAsync);
+            return;
+        }
+        final KeyedOrderedExecutor executor = dispatcher;
+        if (Objects.isNull(executor) || !isDispatched(actionEnum)) {
+            handle(ctx, hb, actionEnum);
+            return;
+        }
+        dispatch(ctx, new ParkedRequest(dispatchKey(hb, actionEnum), () -> handle(ctx, hb, actionEnum)),
+                request -> executor.execute(request.key, request.task));
+    }
+
+    /**
+     * 提交请求，lane队列已满或者异步存储达到并发上限时暂停读取该连接，请求按到达顺序暂存，由drain在有空位后重新提交
+     * 已有暂存的请求时后到的请求也进入暂存，保证同一连接上的顺序不变；不在io线程执行，也不丢失状态更新
+     *
+     * @param submitter 提交请求，没有空位时返回false
+     */
+    private void dispatch(ChannelHandlerContext ctx, ParkedRequest request, Predicate<ParkedRequest> submitter) {
+        final Deque<ParkedRequest> parked = ctx.channel().attr(PARKED).get();
+        if ((Objects.isNull(parked) || parked.isEmpty()) && submitter.test(request)) {
+            return;
+        }
+        if (Objects.isNull(parked)) {
+            ctx.channel().attr(PARKED).set(new ArrayDeque<>());
+        }
+        ctx.channel().attr(PARKED).get().addLast(request);
+        if (ctx.channel().config().isAutoRead()) {
+            LogUtil.warn(LOGGER, "dispatch is saturated, stop reading from {}", () -> ctx.channel().remoteAddress());
+            ctx.channel().config().setAutoRead(false);
+            ctx.executor().schedule(() -> drain(ctx, submitter), DRAIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 在io线程中按顺序重新提交暂存的请求，全部提交后恢复读取
+     */
+    private void drain(ChannelHandlerContext ctx, Predicate<ParkedRequest> submitter) {
+        final Deque<ParkedRequest> parked = ctx.channel().attr(PARKED).get();
+        while (!parked.isEmpty()) {
+            final ParkedRequest request = parked.peekFirst();
+            if (!submitter.test(request)) {
+                ctx.executor().schedule(() -> drain(ctx, submitter), DRAIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                return;
+            }
+            parked.pollFirst();
+        }
+        ctx.channel().config().setAutoRead(true);
+        LogUtil.info(LOGGER, "dispatch drained, resume reading from {}", () -> ctx.channel().remoteAddress());
+    }
+
+    /**
+     * 占用一个并发名额后发起异步存储操作，操作完成时释放
+     */
+    private boolean startAsync(ParkedRequest request) {
+        if (!inFlight.tryAcquire()) {
+            return false;
+        }
+        request.task.run();
+        return true;
+    }
+
+    private void handle(ChannelHandlerContext ctx, LottorRequest hb, NettyMessageActionEnum actionEnum) {
         TxTransactionGroup txTransactionGroup = hb.getTxTransactionGroup();
-        String clientCtx = ctx.channel().remoteAddress().toString();
-        // initial with zero
-        clients.putIfAbsent(clientCtx, 0);
         TxTransactionItem item = null;
+        //是否把请求本身写回客户端，写回时由编码器回收
+        boolean echoed = false;
         try {
-            final NettyMessageActionEnum actionEnum = NettyMessageActionEnum.acquireByCode(hb.getAction());
-            LogUtil.debug(LOGGER, "接收到客户端 {} 事件，执行的动作为:{}", () -> clientCtx, actionEnum::getDesc);
+            LogUtil.debug(LOGGER, "接收到客户端 {} 事件，执行的动作为:{}", () -> ctx.channel().remoteAddress(), actionEnum::getDesc);
             Boolean success;
             if (Objects.nonNull(txTransactionGroup)) {
                 item = txTransactionGroup.getItem();
@@ -81,32 +206,42 @@ public class NettyServerMessageHandler extends ChannelInboundHandlerAdapter {
             switch (actionEnum) {
                 case HEART:
                     hb.setAction(NettyMessageActionEnum.HEART.getCode());
-                    if (clients.get(clientCtx) < 1 && txTransactionGroup != null && txTransactionGroup.getSource() != null) {
-                        SocketManager.getInstance().completeClientInfo(ctx.channel(), hb.getMetaInfo(), hb.getSerialProtocol());
-                        clients.computeIfPresent(clientCtx, (clientValue, val) -> clients.get(clientValue) + 1);
-                        String source = txTransactionGroup.getSource();
-                        List<ChannelHandlerContext> contexts;
-                        contexts = getCtxByName(source);
-                        if (contexts != null) {
-                            contexts.add(ctx);
-                            clientContext.put(source, contexts);
-                        } else {
-                            contexts = new ArrayList<>();
-                            contexts.add(ctx);
-                            clientContext.putIfAbsent(source, contexts);
+                    //注册心跳的key携带客户端的workerId，与另一个在线实例冲突时拒绝注册并断开
+                    if (txTransactionGroup != null && !claimWorkerId(ctx, hb)) {
+                        break;
+                    }
+                    //第一次携带模块名的心跳为注册，按模块名和实例id建立索引
+                    if (txTransactionGroup != null && SocketManager.getInstance().completeClientInfo(ctx.channel(),
+                            txTransactionGroup.getSource(), hb.getMetaInfo(), hb.getSerialProtocol())) {
+                        LogUtil.debug(LOGGER, "client {} registered as {}",
+                                () -> ctx.channel().remoteAddress(), txTransactionGroup::getSource);
+                    }
+                    //注册消息或者客户端声明了能力时回复确认，确认之后客户端才发送空的心跳帧
+                    final int capabilities = acceptCapabilities(hb.getResult());
+                    if (capabilities != 0 || txTransactionGroup != null) {
+                        reply(ctx, buildCapabilityAck(capabilities));
+                        if ((capabilities & FrameCompressor.CAPABILITY) != 0) {
+                            FrameCompressor.enable(ctx.channel(), nettyConfig.getCompressThreshold());
                         }
-                        LogUtil.debug(LOGGER, "heart set {} : {}", () -> clientCtx, () -> clients.get(clientCtx));
+                        break;
                     }
-                    ctx.writeAndFlush(hb);
+                    //握手过的客户端认识固定长度的心跳帧，旧版本客户端只能解析LottorRequest，仍然原样写回
+                    if (CodecNegotiationHandler.isHandshake(ctx.channel())) {
+                        reply(ctx, HeartbeatFrame.INSTANCE);
+                        break;
+                    }
+                    reply(ctx, hb);
+                    echoed = true;
                     break;
                 case CREATE_GROUP:
                     //预提交，并创建事务组
                     if (Objects.nonNull(item)) {
                         item.setTmDomain(Address.getInstance().getDomain());
+                        item.setInstanceId(ClientChannelRegistry.instanceOf(ctx.channel()));
                         txTransactionGroup.setItem(item);
                     }
                     success = txManagerService.get().saveTxTransactionGroup(txTransactionGroup);
-                    ctx.writeAndFlush(buildSendMessage(hb.getKey(), success));
+                    reply(ctx, buildSendMessage(hb.getKey(), success));
                     break;
                 case GET_TRANSACTION_GROUP_STATUS:
                     Boolean updateGroup = false;
@@ -114,7 +249,7 @@ public class NettyServerMessageHandler extends ChannelInboundHandlerAdapter {
                         updateGroup = txManagerService.get().updateTxTransactionItemStatus(hb.getKey(), null,
                                 txTransactionGroup.getStatus(), null);
                     }
-                    ctx.writeAndFlush(buildSendMessage(hb.getKey(), updateGroup));
+                    reply(ctx, buildSendMessage(hb.getKey(), updateGroup));
                     break;
                 case GET_TRANSACTION_MSG_STATUS:
                     Boolean updateMsg = false;
@@ -122,13 +257,14 @@ public class NettyServerMessageHandler extends ChannelInboundHandlerAdapter {
                     if (Objects.nonNull(consumeMsg)) {
                         updateMsg = txManagerService.get().updateTxTransactionMsgStatus(consumeMsg);
                     }
-                    ctx.writeAndFlush(buildSendMessage(hb.getKey(), updateMsg));
+                    reply(ctx, buildSendMessage(hb.getKey(), updateMsg));
                     break;
                 case FIND_TRANSACTION_GROUP_INFO:
                     final List<TxTransactionItem> txTransactionItems = txManagerService.get().listByTxGroupId(txTransactionGroup.getId());
 //                    txTransactionGroup.setItemList(txTransactionItems);
                     hb.setTxTransactionGroup(txTransactionGroup);
-                    ctx.writeAndFlush(hb);
+                    reply(ctx, hb);
+                    echoed = true;
                     break;
                 case ROLLBACK:
                 case COMPLETE_COMMIT:
@@ -149,11 +285,87 @@ public class NettyServerMessageHandler extends ChannelInboundHandlerAdapter {
                     break;
                 default:
                     hb.setAction(NettyMessageActionEnum.HEART.getCode());
-                    ctx.writeAndFlush(hb);
+                    reply(ctx, hb);
+                    echoed = true;
                     break;
             }
         } finally {
-            ReferenceCountUtil.release(msg);
+            ReferenceCountUtil.release(hb);
+            if (!echoed) {
+                hb.recycle();
+            }
+        }
+    }
+
+    /**
+     * 在io线程发起异步存储操作，同一事务组的操作按到达顺序串行，完成后释放并发名额并在回调中回复
+     */
+    private void handleAsync(ChannelHandlerContext ctx, LottorRequest hb, NettyMessageActionEnum actionEnum) {
+        LogUtil.debug(LOGGER, "接收到客户端 {} 事件，执行的动作为:{}",
+                () -> ctx.channel().remoteAddress(), actionEnum::getDesc);
+        sequencer.submit(dispatchKey(hb, actionEnum), () -> invokeAsync(ctx, hb, actionEnum))
+                .whenComplete((response, throwable) -> {
+                    inFlight.release();
+                    try {
+                        if (Objects.nonNull(throwable)) {
+                            LogUtil.error(LOGGER, "failed to handle {}, cause is {}",
+                                    actionEnum::getDesc, throwable::getMessage);
+                        } else if (Objects.nonNull(response)) {
+                            reply(ctx, response);
+                        }
+                    } finally {
+                        ReferenceCountUtil.release(hb);
+                        //写回请求本身时由编码器回收
+                        if (response != hb) {
+                            hb.recycle();
+                        }
+                    }
+                });
+    }
+
+    /**
+     * @return 需要回复的消息，不需要回复时为null
+     */
+    private CompletableFuture<Object> invokeAsync(ChannelHandlerContext ctx, LottorRequest hb, NettyMessageActionEnum actionEnum) {
+        final AsyncTxManagerService service = asyncTxManagerService;
+        final TxTransactionGroup txTransactionGroup = hb.getTxTransactionGroup();
+        final TxTransactionItem item = Objects.isNull(txTransactionGroup) ? null : txTransactionGroup.getItem();
+        switch (actionEnum) {
+            case CREATE_GROUP:
+                if (Objects.nonNull(item)) {
+                    item.setTmDomain(Address.getInstance().getDomain());
+                    item.setInstanceId(ClientChannelRegistry.instanceOf(ctx.channel()));
+                }
+                return service.saveTxTransactionGroupAsync(txTransactionGroup)
+                        .thenApply(success -> buildSendMessage(hb.getKey(), success));
+            case GET_TRANSACTION_GROUP_STATUS:
+                if (Objects.isNull(txTransactionGroup)) {
+                    return CompletableFuture.completedFuture(buildSendMessage(hb.getKey(), false));
+                }
+                return service.updateTxTransactionItemStatusAsync(hb.getKey(), null, txTransactionGroup.getStatus(), null)
+                        .thenApply(success -> buildSendMessage(hb.getKey(), success));
+            case GET_TRANSACTION_MSG_STATUS:
+                if (Objects.isNull(hb.getTransactionMsg())) {
+                    return CompletableFuture.completedFuture(buildSendMessage(hb.getKey(), false));
+                }
+                return service.updateTxTransactionMsgStatusAsync(hb.getTransactionMsg())
+                        .thenApply(success -> buildSendMessage(hb.getKey(), success));
+            case FIND_TRANSACTION_GROUP_INFO:
+                return service.listByTxGroupIdAsync(txTransactionGroup.getId()).thenApply(items -> hb);
+            case ROLLBACK:
+            case COMPLETE_COMMIT:
+                if (Objects.isNull(item)) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                return service.updateTxTransactionItemStatusAsync(txTransactionGroup.getId(), item.getTaskKey(),
+                        item.getStatus(), item.getMessage()).thenApply(success -> null);
+            case CONSUMED:
+                if (Objects.isNull(hb.getTransactionMsg())) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                return service.updateTxTransactionMsgStatusAsync(hb.getTransactionMsg()).thenApply(success -> null);
+            default:
+                return CompletableFuture.completedFuture(null);
         }
     }
 
@@ -177,7 +389,6 @@ public class NettyServerMessageHandler extends ChannelInboundHandlerAdapter {
     @Override
     public void channelUnregistered(ChannelHandlerContext ctx) throws Exception {
         SocketManager.getInstance().removeClient(ctx.channel());
-        clients.remove(ctx.channel().remoteAddress().toString());
         super.channelUnregistered(ctx);
     }
 
@@ -203,8 +414,92 @@ public class NettyServerMessageHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
-    private LottorRequest buildSendMessage(String key, Boolean success) {
+    /**
+     * 在io线程中只write，由channelReadComplete flush；业务线程中的回复需要立即flush
+     */
+    private void reply(ChannelHandlerContext ctx, Object msg) {
+        if (ctx.executor().inEventLoop()) {
+            ctx.write(msg);
+        } else {
+            ctx.writeAndFlush(msg);
+        }
+    }
+
+    /**
+     * 需要访问Mongo或者消息中间件的请求
+     */
+    private static boolean isDispatched(NettyMessageActionEnum actionEnum) {
+        switch (actionEnum) {
+            case CREATE_GROUP:
+            case GET_TRANSACTION_GROUP_STATUS:
+            case GET_TRANSACTION_MSG_STATUS:
+            case FIND_TRANSACTION_GROUP_INFO:
+            case ROLLBACK:
+            case COMPLETE_COMMIT:
+            case CONSUMED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 保序的key为事务组id
+     */
+    private static String dispatchKey(LottorRequest hb, NettyMessageActionEnum actionEnum) {
+        if (actionEnum == NettyMessageActionEnum.GET_TRANSACTION_GROUP_STATUS) {
+            return hb.getKey();
+        }
+        final TxTransactionGroup txTransactionGroup = hb.getTxTransactionGroup();
+        if (Objects.nonNull(txTransactionGroup)) {
+            return txTransactionGroup.getId();
+        }
+        final TransactionMsg transactionMsg = hb.getTransactionMsg();
+        return Objects.isNull(transactionMsg) ? null : transactionMsg.getGroupId();
+    }
+
+    /**
+     * 旧版本客户端不携带workerId，不做检查
+     *
+     * @return false 已拒绝注册并关闭连接
+     */
+    private boolean claimWorkerId(ChannelHandlerContext ctx, LottorRequest hb) {
+        final long workerId = NumberUtils.toLong(hb.getKey(), -1L);
+        if (workerId < 0) {
+            return true;
+        }
+        if (SocketManager.getInstance().claimWorkerId(ctx.channel(), hb.getMetaInfo(), workerId)) {
+            return true;
+        }
+        LogUtil.error(LOGGER, "reject client {}, workerId {} is already used by another instance",
+                hb::getMetaInfo, () -> workerId);
+        final LottorRequest reject = new LottorRequest();
+        reject.setAction(NettyMessageActionEnum.HEART.getCode());
+        reject.setResult(IdWorkerUtils.WORKER_ID_CONFLICT);
+        ctx.writeAndFlush(reject).addListener(ChannelFutureListener.CLOSE);
+        return false;
+    }
+
+    /**
+     * 客户端声明的能力中TxManager支持的部分，批量帧总是支持
+     */
+    private int acceptCapabilities(int requested) {
+        int accepted = requested & BatchFrame.CAPABILITY;
+        if (nettyConfig.getCompress()) {
+            accepted |= requested & FrameCompressor.CAPABILITY;
+        }
+        return accepted;
+    }
+
+    private LottorRequest buildCapabilityAck(int capabilities) {
         LottorRequest lottorRequest = new LottorRequest();
+        lottorRequest.setAction(NettyMessageActionEnum.HEART.getCode());
+        lottorRequest.setResult(capabilities | HeartbeatFrame.ACK);
+        return lottorRequest;
+    }
+
+    private LottorRequest buildSendMessage(String key, Boolean success) {
+        LottorRequest lottorRequest = LottorRequest.newInstance();
         lottorRequest.setKey(key);
         lottorRequest.setAction(NettyMessageActionEnum.RECEIVE.getCode());
         if (success) {
@@ -216,4 +511,16 @@ public class NettyServerMessageHandler extends ChannelInboundHandlerAdapter {
 
     }
 
-}
\ No newline at end of file
+    private static final class ParkedRequest {
+
+        private final String key;
+
+        private final Runnable task;
+
+        private ParkedRequest(String key, Runnable task) {
+            this.key = key;
+            this.task = task;
+        }
+    }
+
+}
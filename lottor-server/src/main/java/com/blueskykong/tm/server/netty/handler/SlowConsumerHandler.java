@@ -0,0 +1,133 @@
+package com.blueskykong.tm.server.netty.handler;
+
+import com.blueskykong.tm.common.enums.SlowConsumerPolicyEnum;
+import com.blueskykong.tm.common.netty.bean.LottorRequest;
+import com.blueskykong.tm.server.entity.ChannelInfo;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 慢客户端保护，客户端消费不过来导致channel不可写时按照策略处理，避免ChannelOutboundBuffer无限增长
+ * 每个channel一个实例，除统计字段外只在event loop中访问
+ */
+public class SlowConsumerHandler extends ChannelDuplexHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlowConsumerHandler.class);
+
+    private static final ClosedChannelException SHED_EXCEPTION = new ClosedChannelException();
+
+    static {
+        SHED_EXCEPTION.setStackTrace(new StackTraceElement[0]);
+    }
+
+    private final SlowConsumerPolicyEnum policy;
+
+    private final long unwritableTimeoutMillis;
+
+    private ScheduledFuture<?> disconnectFuture;
+
+    /**
+     * 开始不可写的时间，0 表示可写
+     */
+    private volatile long unwritableSince;
+
+    private volatile long shedCount;
+
+    private volatile long unwritableTimes;
+
+    public SlowConsumerHandler(SlowConsumerPolicyEnum policy, long unwritableTimeoutMillis) {
+        this.policy = policy;
+        this.unwritableTimeoutMillis = unwritableTimeoutMillis;
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            onWritable(ctx);
+        } else {
+            onUnwritable(ctx);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (policy == SlowConsumerPolicyEnum.SHED && !ctx.channel().isWritable()) {
+            ReferenceCountUtil.release(msg);
+            if (msg instanceof LottorRequest) {
+                ((LottorRequest) msg).recycle();
+            }
+            shedCount++;
+            promise.tryFailure(SHED_EXCEPTION);
+            return;
+        }
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        cancelDisconnect();
+        super.channelInactive(ctx);
+    }
+
+    private void onUnwritable(ChannelHandlerContext ctx) {
+        unwritableSince = System.currentTimeMillis();
+        unwritableTimes++;
+        ctx.channel().config().setAutoRead(false);
+        LOGGER.warn("client {} is unwritable, policy:{}", ctx.channel().remoteAddress(), policy);
+        if (policy == SlowConsumerPolicyEnum.DISCONNECT && unwritableTimeoutMillis > 0) {
+            disconnectFuture = ctx.executor().schedule(() -> {
+                if (!ctx.channel().isWritable()) {
+                    LOGGER.warn("client {} stays unwritable over {}ms, disconnect",
+                            ctx.channel().remoteAddress(), unwritableTimeoutMillis);
+                    ctx.close();
+                }
+            }, unwritableTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void onWritable(ChannelHandlerContext ctx) {
+        unwritableSince = 0;
+        cancelDisconnect();
+        ctx.channel().config().setAutoRead(true);
+    }
+
+    private void cancelDisconnect() {
+        if (Objects.nonNull(disconnectFuture)) {
+            disconnectFuture.cancel(false);
+            disconnectFuture = null;
+        }
+    }
+
+    /**
+     * 填充channel的写缓冲信息
+     *
+     * @param channelInfo channel信息
+     * @param channel     客户端channel
+     */
+    public static void fill(ChannelInfo channelInfo, Channel channel) {
+        final ChannelOutboundBuffer outboundBuffer = channel.unsafe().outboundBuffer();
+        channelInfo.setWritable(channel.isWritable());
+        channelInfo.setQueuedBytes(Objects.isNull(outboundBuffer) ? 0 : outboundBuffer.totalPendingWriteBytes());
+        channelInfo.setBytesBeforeUnwritable(channel.bytesBeforeUnwritable());
+        channelInfo.setReadPaused(!channel.config().isAutoRead());
+        final SlowConsumerHandler handler = channel.pipeline().get(SlowConsumerHandler.class);
+        if (Objects.nonNull(handler)) {
+            final long since = handler.unwritableSince;
+            channelInfo.setUnwritableMillis(since == 0 ? 0 : System.currentTimeMillis() - since);
+            channelInfo.setUnwritableTimes(handler.unwritableTimes);
+            channelInfo.setShedCount(handler.shedCount);
+        }
+    }
+}
@@ -1,29 +1,33 @@
 package com.blueskykong.tm.server.netty.impl;
 
+import com.blueskykong.tm.common.concurrent.threadpool.TxTransactionThreadFactory;
+import com.blueskykong.tm.common.enums.ChannelSelectTypeEnum;
 import com.blueskykong.tm.common.enums.SerializeProtocolEnum;
+import com.blueskykong.tm.common.enums.TransportTypeEnum;
 import com.blueskykong.tm.common.exception.TransactionRuntimeException;
 import com.blueskykong.tm.common.helper.SpringBeanUtils;
 import com.blueskykong.tm.common.holder.ServiceBootstrap;
+import com.blueskykong.tm.common.netty.NettyTransport;
+import com.blueskykong.tm.common.netty.bean.MessageRecycler;
 import com.blueskykong.tm.common.serializer.ObjectSerializer;
 import com.blueskykong.tm.server.config.NettyConfig;
 import com.blueskykong.tm.server.netty.NettyService;
 import com.blueskykong.tm.server.netty.handler.NettyServerHandlerInitializer;
 import com.blueskykong.tm.server.service.TxManagerService;
+import com.blueskykong.tm.server.service.batch.MongoWriteBatcher;
+import com.blueskykong.tm.server.service.cache.CachingTxManagerService;
+import com.blueskykong.tm.server.service.impl.TxManagerServiceImpl;
 import com.blueskykong.tm.server.socket.SocketManager;
 import com.google.common.base.StandardSystemProperty;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.epoll.Epoll;
-import io.netty.channel.epoll.EpollChannelOption;
-import io.netty.channel.epoll.EpollEventLoopGroup;
-import io.netty.channel.epoll.EpollServerSocketChannel;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.RejectedExecutionHandlers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -62,16 +66,39 @@ public class NettyServerServiceImpl implements NettyService {
         this.nettyServerHandlerInitializer = nettyServerHandlerInitializer;
     }
 
+    /**
+     * 同时等待Mongo合并写入结果的线程数：业务线程池的lane（未开启dispatch时为io线程），开启缓存时加上写线程
+     */
+    private void expectWriteWaiters(int callers) {
+        TxManagerService service = txManagerService;
+        if (service instanceof CachingTxManagerService) {
+            callers += ((CachingTxManagerService) service).getWriters();
+            service = ((CachingTxManagerService) service).getDelegate();
+        }
+        if (service instanceof TxManagerServiceImpl) {
+            final MongoWriteBatcher writeBatcher = ((TxManagerServiceImpl) service).getWriteBatcher();
+            if (Objects.nonNull(writeBatcher)) {
+                writeBatcher.expectWaiters(callers);
+            }
+        }
+    }
+
     /**
      * 启动netty服务
      */
     @Override
     public void start() {
         SocketManager.getInstance().setMaxConnection(nettyConfig.getMaxConnection());
-        servletExecutor = new DefaultEventExecutorGroup(MAX_THREADS);
+        SocketManager.getInstance().setSelectType(ChannelSelectTypeEnum.fromString(nettyConfig.getChannelSelectType()));
+        MessageRecycler.setEnabled(Boolean.TRUE.equals(nettyConfig.getRecycle()));
         if (nettyConfig.getMaxThreads() != 0) {
             MAX_THREADS = nettyConfig.getMaxThreads();
         }
+        final int lanes = nettyConfig.getDispatchLanes() > 0 ? nettyConfig.getDispatchLanes() : MAX_THREADS;
+        servletExecutor = new DefaultEventExecutorGroup(lanes,
+                TxTransactionThreadFactory.create("TxManagerDispatch", false),
+                Math.max(16, nettyConfig.getDispatchQueueSize()), RejectedExecutionHandlers.reject());
+        expectWriteWaiters(nettyConfig.getDispatch() ? lanes : MAX_THREADS << 1);
         try {
             final SerializeProtocolEnum serializeProtocolEnum =
                     SerializeProtocolEnum.acquireSerializeProtocol(nettyConfig.getSerialize());
@@ -79,49 +106,53 @@ public class NettyServerServiceImpl implements NettyService {
             nettyServerHandlerInitializer.setSerializeProtocolEnum(serializeProtocolEnum);
             nettyServerHandlerInitializer.setServletExecutor(servletExecutor);
             ServerBootstrap b = new ServerBootstrap();
-            groups(b, MAX_THREADS << 1);
-            b.bind(nettyConfig.getPort());
-
-            LOGGER.info("netty service started on port: " + nettyConfig.getPort());
+            bind(b, groups(b, MAX_THREADS << 1));
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
 
-    private void groups(ServerBootstrap b, int workThreads) {
-        /**
-         * ubuntu系统不能很好的适配EpollEventLoopGroup，暂时不启用
-         */
-        if (Epoll.isAvailable() && nettyConfig.getOnEpoll()) {
-            bossGroup = new EpollEventLoopGroup(1);
-            workerGroup = new EpollEventLoopGroup(workThreads);
-            b.group(bossGroup, workerGroup)
-                    .channel(EpollServerSocketChannel.class)
-                    .option(EpollChannelOption.TCP_CORK, true)
-                    .option(EpollChannelOption.SO_KEEPALIVE, true)
-                    .option(EpollChannelOption.SO_BACKLOG, 100)
-                    .option(EpollChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
-                    .childOption(EpollChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
-                    .handler(new LoggingHandler(LogLevel.INFO))
-                    .childHandler(nettyServerHandlerInitializer);
-        } else {
-            bossGroup = new NioEventLoopGroup();
-            workerGroup = new NioEventLoopGroup(workThreads);
-            b.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
-                    .option(ChannelOption.SO_BACKLOG, 100)
-                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 100)
-                    .option(ChannelOption.SO_KEEPALIVE, true)
-                    .option(ChannelOption.TCP_NODELAY, true)
-                    .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
-                    .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
-                    .handler(new LoggingHandler(LogLevel.INFO))
-                    .childHandler(nettyServerHandlerInitializer);
+    private NettyTransport groups(ServerBootstrap b, int workThreads) {
+        final TransportTypeEnum requested = Boolean.TRUE.equals(nettyConfig.getOnEpoll())
+                ? TransportTypeEnum.EPOLL : TransportTypeEnum.fromString(nettyConfig.getTransport());
+        final NettyTransport transport = NettyTransport.of(requested);
+        final boolean reusePort = transport.isReusePortSupported() && nettyConfig.getAcceptors() > 1;
+        bossGroup = transport.newEventLoopGroup(reusePort ? nettyConfig.getAcceptors() : 1);
+        workerGroup = transport.newEventLoopGroup(workThreads);
+        b.group(bossGroup, workerGroup)
+                .channel(transport.serverChannelClass())
+                .option(ChannelOption.SO_BACKLOG, nettyConfig.getBacklog())
+                .option(ChannelOption.SO_REUSEADDR, true)
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childOption(ChannelOption.SO_KEEPALIVE, true)
+                .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, writeBufferWaterMark())
+                .handler(new LoggingHandler(LogLevel.INFO))
+                .childHandler(nettyServerHandlerInitializer);
+        transport.serverOptions(b, reusePort);
+        return transport;
+    }
+
+    /**
+     * 绑定端口，开启SO_REUSEPORT时每个acceptor绑定一次，由内核在监听socket之间分配连接
+     */
+    private void bind(ServerBootstrap b, NettyTransport transport) throws InterruptedException {
+        final int binds = transport.isReusePortSupported() ? Math.max(1, nettyConfig.getAcceptors()) : 1;
+        for (int i = 0; i < binds; i++) {
+            b.bind(nettyConfig.getPort()).sync();
         }
+        LOGGER.info("netty service started on port: {} transport: {} acceptors: {}",
+                nettyConfig.getPort(), transport, binds);
     }
 
 
+    private WriteBufferWaterMark writeBufferWaterMark() {
+        final int low = nettyConfig.getWriteBufferLowWaterMark();
+        return new WriteBufferWaterMark(low, Math.max(low, nettyConfig.getWriteBufferHighWaterMark()));
+    }
+
     /**
      * 关闭服务
      */
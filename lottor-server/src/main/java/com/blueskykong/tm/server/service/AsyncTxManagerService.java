@@ -0,0 +1,66 @@
+package com.blueskykong.tm.server.service;
+
+import com.blueskykong.tm.common.entity.TransactionMsg;
+import com.blueskykong.tm.common.netty.bean.TxTransactionGroup;
+import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * TxManagerService 中netty请求用到的方法的异步版本，结果在存储完成时通过future返回，不占用业务线程
+ */
+public interface AsyncTxManagerService {
+
+    /**
+     * 保存事务组 在事务发起方的时候进行调用
+     *
+     * @param txTransactionGroup 事务组
+     * @return true 成功 false 失败
+     */
+    CompletableFuture<Boolean> saveTxTransactionGroupAsync(TxTransactionGroup txTransactionGroup);
+
+    /**
+     * 往事务组添加事务
+     *
+     * @param txGroupId         事务组id
+     * @param txTransactionItem 子事务项
+     * @return true 成功 false 失败
+     */
+    CompletableFuture<Boolean> addTxTransactionAsync(String txGroupId, TxTransactionItem txTransactionItem);
+
+    /**
+     * 根据事务组id 获取所有的子项目
+     *
+     * @param txGroupId 事务组id
+     * @return List<TxTransactionItem>
+     */
+    CompletableFuture<List<TxTransactionItem>> listByTxGroupIdAsync(String txGroupId);
+
+    /**
+     * 更新事务状态
+     *
+     * @param key     txGroupId
+     * @param hashKey 也就是taskKey
+     * @param status  事务状态
+     * @param message 执行结果信息
+     * @return true 成功 false 失败
+     */
+    CompletableFuture<Boolean> updateTxTransactionItemStatusAsync(String key, String hashKey, int status, Object message);
+
+    /**
+     * 更新 TM中的消息状态
+     *
+     * @param transactionMsg 消费结果
+     * @return true 成功 false 失败
+     */
+    CompletableFuture<Boolean> updateTxTransactionMsgStatusAsync(TransactionMsg transactionMsg);
+
+    /**
+     * 获取事务组的状态
+     *
+     * @param txGroupId 事务组id
+     * @return 事务组状态
+     */
+    CompletableFuture<Integer> findTxTransactionGroupStatusAsync(String txGroupId);
+}
@@ -18,6 +18,13 @@ public interface TxManagerInfoService {
      */
     TxManagerServer findTxManagerServer();
 
+    /**
+     * 当前TxManager的netty服务地址
+     *
+     * @return TxManagerServer
+     */
+    TxManagerServer findLocalServer();
+
     /**
      * 服务端信息
      *
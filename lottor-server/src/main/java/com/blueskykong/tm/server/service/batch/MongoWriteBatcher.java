@@ -0,0 +1,285 @@
+package com.blueskykong.tm.server.service.batch;
+
+import com.blueskykong.tm.common.concurrent.threadpool.TxTransactionThreadFactory;
+import com.blueskykong.tm.common.holder.LogUtil;
+import com.blueskykong.tm.server.config.MongoBatchConfig;
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mongo写操作的组提交
+ * <pre>
+ * 调用方提交insert、update后在返回的future上等待，单独的线程在batchLinger内或者凑满batchSize后
+ * 按集合分组，以UNORDERED的bulkWrite一次写入，每个操作按照自己在批次中是否出错完成future
+ * 每个调用方同时只有一个操作在等待，批次凑满所有可能的调用方（maxWaiters）后不再等待linger
+ * update的结果与 MongoTemplate#updateFirst 一致，为是否匹配到文档
+ * 同一事务组的请求在业务线程池中串行，前一个操作提交后才会提交下一个，批次内的操作之间没有依赖
+ * 关闭时不再接收新的操作，写完队列中剩余的操作后退出
+ * </pre>
+ */
+public class MongoWriteBatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoWriteBatcher.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    private final int batchSize;
+
+    /**
+     * 配置的maxWaiters，小于等于0时由 {@link #expectWaiters(int)} 设置
+     */
+    private final int configuredWaiters;
+
+    private volatile int maxWaiters;
+
+    private final long lingerNanos;
+
+    private final long shutdownTimeoutMillis;
+
+    private final BlockingQueue<WriteOp> queue;
+
+    private final Thread flusher;
+
+    private volatile boolean running = true;
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder operations = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    public MongoWriteBatcher(MongoTemplate mongoTemplate, MongoBatchConfig config) {
+        this.mongoTemplate = mongoTemplate;
+        this.batchSize = Math.max(1, config.getBatchSize());
+        this.configuredWaiters = config.getMaxWaiters();
+        this.maxWaiters = config.getMaxWaiters();
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(config.getBatchLinger());
+        this.shutdownTimeoutMillis = config.getShutdownTimeout();
+        this.queue = new ArrayBlockingQueue<>(Math.max(batchSize, config.getQueueSize()));
+        final ThreadFactory threadFactory = TxTransactionThreadFactory.create("MongoWriteBatcher", true);
+        this.flusher = threadFactory.newThread(this::run);
+        this.flusher.start();
+    }
+
+    /**
+     * @return 队列已满或者已经关闭时返回null，由调用方直接写入
+     */
+    public CompletableFuture<Boolean> insert(String collection, Object document) {
+        return offer(new WriteOp(collection, document.getClass(), document, null, null));
+    }
+
+    /**
+     * 更新第一条匹配的文档
+     *
+     * @return 队列已满或者已经关闭时返回null，由调用方直接写入
+     */
+    public CompletableFuture<Boolean> updateOne(String collection, Class<?> entityClass, Query query, Update update) {
+        return offer(new WriteOp(collection, entityClass, null, query, update));
+    }
+
+    /**
+     * 同时等待写入结果的调用方数量，未配置maxWaiters时使用
+     *
+     * @param waiters 业务线程数
+     */
+    public void expectWaiters(int waiters) {
+        if (configuredWaiters <= 0) {
+            this.maxWaiters = waiters;
+        }
+    }
+
+    private CompletableFuture<Boolean> offer(WriteOp op) {
+        if (!running || !queue.offer(op)) {
+            return null;
+        }
+        return op.future;
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getOperations() {
+        return operations.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public int getPending() {
+        return queue.size();
+    }
+
+    /**
+     * 停止接收新的操作，等待队列中的操作写完
+     */
+    public void close() {
+        //不中断flusher，避免打断正在执行的bulkWrite
+        running = false;
+        try {
+            flusher.join(shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        //超时或者关闭过程中才入队的操作直接失败，避免调用方一直等待
+        final List<WriteOp> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            LOGGER.error("mongo write batcher closed with {} pending operations", remaining.size());
+            remaining.forEach(op -> op.future.complete(false));
+        }
+    }
+
+    private void run() {
+        final List<WriteOp> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 等待第一个操作，然后在linger时间内继续收集，直到凑满batchSize，或者所有调用方都在等待
+     */
+    private void collect(List<WriteOp> batch) throws InterruptedException {
+        final WriteOp first = running ? queue.poll(100, TimeUnit.MILLISECONDS) : queue.poll();
+        if (Objects.isNull(first)) {
+            return;
+        }
+        batch.add(first);
+        final int waiters = maxWaiters;
+        final int limit = waiters > 0 ? Math.min(batchSize, waiters) : batchSize;
+        final long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < limit) {
+            if (queue.drainTo(batch, limit - batch.size()) > 0) {
+                continue;
+            }
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !running) {
+                return;
+            }
+            final WriteOp next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (Objects.isNull(next)) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<WriteOp> batch) {
+        final Map<String, List<WriteOp>> byCollection = new LinkedHashMap<>();
+        for (WriteOp op : batch) {
+            byCollection.computeIfAbsent(op.collection, key -> new ArrayList<>()).add(op);
+        }
+        byCollection.forEach(this::bulkWrite);
+        batches.increment();
+        operations.add(batch.size());
+    }
+
+    private void bulkWrite(String collection, List<WriteOp> ops) {
+        final BitSet failed = new BitSet(ops.size());
+        int updates = 0;
+        BulkWriteResult result = null;
+        try {
+            //按照实体类映射字段名，与 MongoTemplate#insert、updateFirst 一致
+            final BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED,
+                    ops.get(0).entityClass, collection);
+            for (WriteOp op : ops) {
+                if (Objects.nonNull(op.document)) {
+                    bulk.insert(op.document);
+                } else {
+                    bulk.updateOne(op.query, op.update);
+                    updates++;
+                }
+            }
+            result = bulk.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                failed.set(error.getIndex());
+            }
+            result = e.getResult();
+            LOGGER.error("bulk write to {} failed for {} of {} operations: {}",
+                    collection, e.getErrors().size(), ops.size(), e.getMessage());
+        } catch (Exception e) {
+            failed.set(0, ops.size());
+            LogUtil.error(LOGGER, "bulk write to {} failed for {}", () -> collection, e::getMessage);
+        }
+        failures.add(failed.cardinality());
+        //bulkWrite只返回匹配的总数，有update没有匹配到文档时逐个确认
+        final boolean unmatched = updates > 0 && Objects.nonNull(result) && result.getMatchedCount() < updates;
+        for (int i = 0; i < ops.size(); i++) {
+            final WriteOp op = ops.get(i);
+            if (failed.get(i)) {
+                op.future.complete(false);
+            } else if (unmatched && Objects.isNull(op.document)) {
+                op.future.complete(matches(collection, op));
+            } else {
+                op.future.complete(true);
+            }
+        }
+    }
+
+    /**
+     * update的查询条件（事务组id、子任务id）不会被update修改，写入后仍能按照同样的条件确认是否匹配
+     */
+    private boolean matches(String collection, WriteOp op) {
+        try {
+            return mongoTemplate.exists(op.query, op.entityClass, collection);
+        } catch (Exception e) {
+            LogUtil.error(LOGGER, "failed to check matched documents in {} for {}", () -> collection, e::getMessage);
+            return false;
+        }
+    }
+
+    private static final class WriteOp {
+
+        private final String collection;
+
+        private final Class<?> entityClass;
+
+        private final Object document;
+
+        private final Query query;
+
+        private final Update update;
+
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        private WriteOp(String collection, Class<?> entityClass, Object document, Query query, Update update) {
+            this.collection = collection;
+            this.entityClass = entityClass;
+            this.document = document;
+            this.query = query;
+            this.update = update;
+        }
+    }
+}
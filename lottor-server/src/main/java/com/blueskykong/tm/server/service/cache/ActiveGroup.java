@@ -0,0 +1,164 @@
+package com.blueskykong.tm.server.service.cache;
+
+import com.blueskykong.tm.common.entity.TransactionMsgAdapter;
+import com.blueskykong.tm.common.enums.TransactionStatusEnum;
+import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * 内存中的一个进行中的事务组
+ * 第一个事务项是发起方，事务组的状态即发起方的状态，与Mongo中按txGroupId查询第一条的语义一致
+ * 读取和状态变更都在lock内进行，pending为已经提交但尚未持久化的写操作数
+ * failed为异步持久化重试后仍然失败，内存与Mongo已经不一致；persisted为事务组本身已经保存到Mongo
+ */
+final class ActiveGroup {
+
+    private final String groupId;
+
+    private final List<TxTransactionItem> items = new ArrayList<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private int pending;
+
+    private boolean evicted;
+
+    private boolean failed;
+
+    private boolean persisted;
+
+    private volatile long lastAccess = System.currentTimeMillis();
+
+    ActiveGroup(String groupId, TxTransactionItem starter) {
+        this.groupId = groupId;
+        this.items.add(starter);
+    }
+
+    void lock() {
+        lock.lock();
+    }
+
+    void unlock() {
+        lock.unlock();
+    }
+
+    String getGroupId() {
+        return groupId;
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    boolean isEvicted() {
+        return evicted;
+    }
+
+    void markEvicted() {
+        evicted = true;
+    }
+
+    boolean isFailed() {
+        return failed;
+    }
+
+    void markFailed() {
+        failed = true;
+    }
+
+    boolean isPersisted() {
+        return persisted;
+    }
+
+    void markPersisted() {
+        persisted = true;
+    }
+
+    int getPending() {
+        return pending;
+    }
+
+    void beginWrite() {
+        pending++;
+    }
+
+    void endWrite() {
+        pending--;
+    }
+
+    TxTransactionItem starter() {
+        return items.get(0);
+    }
+
+    int getStatus() {
+        return starter().getStatus();
+    }
+
+    /**
+     * @return 提交、回滚或者失败，不会再有状态变更
+     */
+    boolean isTerminal() {
+        final int status = getStatus();
+        return status == TransactionStatusEnum.COMMIT.getCode()
+                || status == TransactionStatusEnum.ROLLBACK.getCode()
+                || status == TransactionStatusEnum.FAILURE.getCode();
+    }
+
+    void add(TxTransactionItem item) {
+        items.add(item);
+    }
+
+    List<TxTransactionItem> copyItems() {
+        return items.stream().map(ActiveGroup::copyOf).collect(Collectors.toList());
+    }
+
+    void updateStatus(int status, Object message) {
+        final TxTransactionItem starter = starter();
+        starter.setStatus(status);
+        if (Objects.nonNull(message)) {
+            starter.setMessage(message);
+        }
+    }
+
+    void updateMsg(String subTaskId, int consumed, String message) {
+        final List<TransactionMsgAdapter> msgs = starter().getMsgs();
+        if (Objects.isNull(msgs)) {
+            return;
+        }
+        msgs.stream().filter(msg -> Objects.nonNull(msg) && Objects.equals(msg.getSubTaskId(), subTaskId))
+                .forEach(msg -> {
+                    msg.setConsumed(consumed);
+                    if (Objects.nonNull(message)) {
+                        msg.setMessage(message);
+                    }
+                });
+    }
+
+    /**
+     * 请求中的对象可能被回收，内存中和待持久化的都使用副本
+     */
+    static TxTransactionItem copyOf(TxTransactionItem item) {
+        final TxTransactionItem copy = new TxTransactionItem();
+        copy.setTaskKey(item.getTaskKey());
+        copy.setStatus(item.getStatus());
+        copy.setModelName(item.getModelName());
+        copy.setTmDomain(item.getTmDomain());
+        copy.setTxGroupId(item.getTxGroupId());
+        copy.setCreateDate(item.getCreateDate());
+        copy.setWaitMaxTime(item.getWaitMaxTime());
+        copy.setConsumeTime(item.getConsumeTime());
+        copy.setMsgs(Objects.isNull(item.getMsgs()) ? null : new ArrayList<>(item.getMsgs()));
+        copy.setMessage(item.getMessage());
+        copy.setInstanceId(item.getInstanceId());
+        return copy;
+    }
+}
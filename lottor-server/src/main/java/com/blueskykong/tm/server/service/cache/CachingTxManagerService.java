@@ -0,0 +1,490 @@
+package com.blueskykong.tm.server.service.cache;
+
+import com.blueskykong.tm.common.concurrent.threadpool.TxTransactionThreadFactory;
+import com.blueskykong.tm.common.entity.TransactionMsg;
+import com.blueskykong.tm.common.entity.TransactionMsgAdapter;
+import com.blueskykong.tm.common.enums.TransactionStatusEnum;
+import com.blueskykong.tm.common.holder.LogUtil;
+import com.blueskykong.tm.common.netty.bean.TxTransactionGroup;
+import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
+import com.blueskykong.tm.server.concurrent.KeyedFutureSequencer;
+import com.blueskykong.tm.server.config.ActiveGroupCacheConfig;
+import com.blueskykong.tm.server.service.TxManagerService;
+import org.apache.commons.collections.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 在内存中保存进行中的事务组，tx.manager.cache.enabled=true 时包装实际的 TxManagerService
+ * <pre>
+ * 创建事务组到提交、回滚之间的查询直接由内存返回，状态变更先在内存中生效，再按事务组顺序异步写入Mongo
+ * 事务组进入终态且写操作全部持久化后移除，之后的请求与未缓存的事务组一样直接读写Mongo
+ * 异步持久化失败时按间隔翻倍重试，仍然失败的事务组保留在内存中，之后的写请求返回失败，由客户端回滚或补偿，
+ * 不会回退到Mongo中过期的数据；这样的事务组只在过期时移除
+ * 保存事务组本身失败时（包括等待写入的情况）事务组直接移除，Mongo中不存在该事务组，之后的请求由Mongo回答
+ * 提交时有事务消息需要发送的，等待本次写入完成后再返回，保证发送结果能够回复给客户端
+ * 内存中的事务组达到上限时新的事务组不再缓存；待持久化的写操作过多时调用方等待写入完成
+ * </pre>
+ */
+public class CachingTxManagerService implements TxManagerService, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingTxManagerService.class);
+
+    private final TxManagerService delegate;
+
+    private final ActiveGroupCacheConfig config;
+
+    private final ConcurrentMap<String, ActiveGroup> groups = new ConcurrentHashMap<>();
+
+    /**
+     * 同一事务组的写操作按提交顺序持久化
+     */
+    private final KeyedFutureSequencer sequencer = new KeyedFutureSequencer();
+
+    private final ExecutorService writer;
+
+    /**
+     * 过期清理，同时调度持久化失败后的重试
+     */
+    private final ScheduledExecutorService sweeper;
+
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder writeFailures = new LongAdder();
+
+    private final LongAdder writeRetries = new LongAdder();
+
+    public CachingTxManagerService(TxManagerService delegate, ActiveGroupCacheConfig config) {
+        this.delegate = delegate;
+        this.config = config;
+        this.writer = Executors.newFixedThreadPool(Math.max(1, config.getWriters()),
+                TxTransactionThreadFactory.create("TxManagerWriteBehind", true));
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(
+                TxTransactionThreadFactory.create("TxManagerCacheSweeper", true));
+        final long period = Math.max(1, config.getExpireSeconds() / 10);
+        this.sweeper.scheduleWithFixedDelay(this::expire, period, period, TimeUnit.SECONDS);
+    }
+
+    public TxManagerService getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return 写回Mongo的线程数
+     */
+    public int getWriters() {
+        return Math.max(1, config.getWriters());
+    }
+
+    @Override
+    public Boolean saveTxTransactionGroup(TxTransactionGroup txTransactionGroup) {
+        final TxTransactionItem item = txTransactionGroup.getItem();
+        if (Objects.isNull(item) || groups.size() >= config.getMaxGroups()) {
+            return delegate.saveTxTransactionGroup(txTransactionGroup);
+        }
+        final String groupId = txTransactionGroup.getId();
+        item.setTxGroupId(groupId);
+        final TxTransactionItem starter = ActiveGroup.copyOf(item);
+        final ActiveGroup group = new ActiveGroup(groupId, starter);
+        final TxTransactionGroup persisted = new TxTransactionGroup();
+        persisted.setId(groupId);
+        persisted.setItem(ActiveGroup.copyOf(starter));
+        //先锁定再放入，保证保存是这个事务组的第一个写操作
+        group.lock();
+        try {
+            if (Objects.nonNull(groups.putIfAbsent(groupId, group))) {
+                //重复创建时以Mongo为准
+                return delegate.saveTxTransactionGroup(txTransactionGroup);
+            }
+            return persist(group, () -> delegate.saveTxTransactionGroup(persisted), false);
+        } finally {
+            group.unlock();
+        }
+    }
+
+    @Override
+    public Boolean addTxTransaction(String txGroupId, TxTransactionItem txTransactionItem) {
+        final ActiveGroup group = acquire(txGroupId);
+        if (Objects.isNull(group)) {
+            return delegate.addTxTransaction(txGroupId, txTransactionItem);
+        }
+        try {
+            if (group.isFailed()) {
+                return false;
+            }
+            txTransactionItem.setTxGroupId(txGroupId);
+            final TxTransactionItem item = ActiveGroup.copyOf(txTransactionItem);
+            group.add(item);
+            final TxTransactionItem persisted = ActiveGroup.copyOf(item);
+            return persist(group, () -> delegate.addTxTransaction(txGroupId, persisted), false);
+        } finally {
+            release(group);
+        }
+    }
+
+    @Override
+    public List<TxTransactionItem> listByTxGroupId(String txGroupId) {
+        final ActiveGroup group = acquire(txGroupId);
+        if (Objects.isNull(group)) {
+            return delegate.listByTxGroupId(txGroupId);
+        }
+        try {
+            return group.copyItems();
+        } finally {
+            release(group);
+        }
+    }
+
+    @Override
+    public void removeItemsByTxGroupId(String txGroupId) {
+        final ActiveGroup group = acquire(txGroupId);
+        if (Objects.isNull(group)) {
+            delegate.removeItemsByTxGroupId(txGroupId);
+            return;
+        }
+        try {
+            //等待之前的写操作完成后删除
+            persist(group, () -> {
+                delegate.removeItemsByTxGroupId(txGroupId);
+                return true;
+            }, true);
+            evict(group);
+        } finally {
+            release(group);
+        }
+    }
+
+    @Override
+    public Boolean updateTxTransactionItemStatus(String key, String hashKey, int status, Object message) {
+        final ActiveGroup group = acquire(key);
+        if (Objects.isNull(group)) {
+            return delegate.updateTxTransactionItemStatus(key, hashKey, status, message);
+        }
+        try {
+            if (group.isFailed()) {
+                return false;
+            }
+            final List<TransactionMsgAdapter> msgs = group.starter().getMsgs();
+            //提交时需要发送事务消息，发送失败时状态不变
+            final boolean sendMsgs = status == TransactionStatusEnum.COMMIT.getCode() && CollectionUtils.isNotEmpty(msgs);
+            final Boolean success = persist(group,
+                    () -> delegate.updateTxTransactionItemStatus(key, hashKey, status, message), sendMsgs);
+            if (success) {
+                group.updateStatus(status, message);
+                evictIfDone(group);
+            }
+            return success;
+        } finally {
+            release(group);
+        }
+    }
+
+    @Override
+    public Boolean updateTxTransactionMsgStatus(TransactionMsg transactionMsg) {
+        final ActiveGroup group = acquire(transactionMsg.getGroupId());
+        if (Objects.isNull(group)) {
+            return delegate.updateTxTransactionMsgStatus(transactionMsg);
+        }
+        try {
+            if (group.isFailed()) {
+                return false;
+            }
+            group.updateMsg(transactionMsg.getSubTaskId(), transactionMsg.getConsumed(), transactionMsg.getMessage());
+            return persist(group, () -> delegate.updateTxTransactionMsgStatus(transactionMsg), false);
+        } finally {
+            release(group);
+        }
+    }
+
+    @Override
+    public int findTxTransactionGroupStatus(String txGroupId) {
+        final ActiveGroup group = acquire(txGroupId);
+        if (Objects.isNull(group)) {
+            return delegate.findTxTransactionGroupStatus(txGroupId);
+        }
+        try {
+            return group.getStatus();
+        } finally {
+            release(group);
+        }
+    }
+
+    @Override
+    public Boolean removeCommitTxGroup() {
+        return delegate.removeCommitTxGroup();
+    }
+
+    @Override
+    public List<TxTransactionItem> listTxItemByDelay(Long delay) {
+        return delegate.listTxItemByDelay(delay);
+    }
+
+    @Override
+    public List<TransactionMsgAdapter> listTxMsgByDelay(Long delay) {
+        return delegate.listTxMsgByDelay(delay);
+    }
+
+    @Override
+    public Boolean removeRollBackTxGroup() {
+        return delegate.removeRollBackTxGroup();
+    }
+
+    /**
+     * 关闭时等待待持久化的写操作完成
+     */
+    @Override
+    public void destroy() {
+        //重试由sweeper调度，等待写完后再关闭
+        final long deadline = System.currentTimeMillis() + config.getShutdownTimeout();
+        while (pendingWrites.get() > 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (pendingWrites.get() > 0) {
+            LOGGER.error("active group cache closed with {} pending writes", pendingWrites.get());
+        }
+        sweeper.shutdownNow();
+        writer.shutdown();
+    }
+
+    public CacheMetrics getMetrics() {
+        return new CacheMetrics(groups.size(), pendingWrites.get(), hits.sum(), misses.sum(),
+                evictions.sum(), writeFailures.sum(), writeRetries.sum());
+    }
+
+    /**
+     * 命中时锁定事务组，调用方在finally中release
+     *
+     * @return 未命中或者已经移除时返回null
+     */
+    private ActiveGroup acquire(String groupId) {
+        final ActiveGroup group = Objects.isNull(groupId) ? null : groups.get(groupId);
+        if (Objects.nonNull(group)) {
+            group.lock();
+            if (!group.isEvicted()) {
+                hits.increment();
+                group.touch();
+                return group;
+            }
+            group.unlock();
+        }
+        misses.increment();
+        return null;
+    }
+
+    private void release(ActiveGroup group) {
+        group.unlock();
+    }
+
+    /**
+     * 提交写操作，按事务组顺序持久化
+     * 不等待时已经向调用方返回成功，失败后重试，后续的写操作排在重试之后
+     *
+     * @param wait 是否等待本次写入完成，待持久化的写操作过多时总是等待
+     * @return 不等待时返回true
+     */
+    private Boolean persist(ActiveGroup group, Supplier<Boolean> write, boolean wait) {
+        group.beginWrite();
+        final int pending = pendingWrites.incrementAndGet();
+        final boolean behind = !wait && pending <= config.getMaxPendingWrites();
+        final int retries = behind ? Math.max(0, config.getWriteRetries()) : 0;
+        final CompletableFuture<Boolean> future = sequencer.submit(group.getGroupId(), () -> {
+            final CompletableFuture<Boolean> result = new CompletableFuture<>();
+            attempt(group, write, 0, retries, result);
+            return result;
+        });
+        future.thenAccept(success -> written(group, success, behind));
+        if (behind) {
+            return true;
+        }
+        //等待期间释放锁，写入完成的回调需要获取锁
+        group.unlock();
+        try {
+            return future.join();
+        } finally {
+            group.lock();
+        }
+    }
+
+    private void attempt(ActiveGroup group, Supplier<Boolean> write, int retried, int retries,
+                         CompletableFuture<Boolean> result) {
+        CompletableFuture.supplyAsync(() -> Boolean.TRUE.equals(write.get()), writer)
+                .exceptionally(e -> {
+                    LogUtil.error(LOGGER, "failed to persist group {}, cause is {}", group::getGroupId, e::getMessage);
+                    return false;
+                })
+                .thenAccept(success -> {
+                    if (success || retried >= retries) {
+                        result.complete(success);
+                        return;
+                    }
+                    writeRetries.increment();
+                    final long delay = (long) Math.max(1, config.getRetryInterval()) << Math.min(retried, 10);
+                    try {
+                        sweeper.schedule(() -> attempt(group, write, retried + 1, retries, result),
+                                delay, TimeUnit.MILLISECONDS);
+                    } catch (RejectedExecutionException e) {
+                        result.complete(false);
+                    }
+                });
+    }
+
+    /**
+     * 事务组本身没有保存成功时（无论调用方是否等待）移除，Mongo中不存在该事务组，之后的请求由Mongo回答
+     *
+     * @param behind 调用方没有等待本次写入，失败时只能保留在内存中，由之后的请求返回失败
+     */
+    private void written(ActiveGroup group, boolean success, boolean behind) {
+        pendingWrites.decrementAndGet();
+        group.lock();
+        try {
+            group.endWrite();
+            if (!success) {
+                writeFailures.increment();
+                if (!group.isPersisted()) {
+                    evict(group);
+                    LogUtil.error(LOGGER, "failed to save group {}, evict it from memory", group::getGroupId);
+                } else if (behind && !group.isFailed()) {
+                    group.markFailed();
+                    LogUtil.error(LOGGER, "failed to persist group {} after retries, keep it in memory and fail its requests",
+                            group::getGroupId);
+                }
+                return;
+            }
+            //保存事务组是该事务组的第一个写操作，按顺序持久化
+            group.markPersisted();
+            evictIfDone(group);
+        } finally {
+            group.unlock();
+        }
+    }
+
+    /**
+     * 持久化失败的事务组不移除，Mongo中的数据已经过期
+     */
+    private void evictIfDone(ActiveGroup group) {
+        if (group.isTerminal() && group.getPending() == 0 && !group.isFailed()) {
+            evict(group);
+        }
+    }
+
+    private void evict(ActiveGroup group) {
+        if (!group.isEvicted()) {
+            group.markEvicted();
+            groups.remove(group.getGroupId(), group);
+            evictions.increment();
+        }
+    }
+
+    /**
+     * 移除长时间未访问且已经全部持久化的事务组，例如发起方宕机未提交的事务组
+     * 持久化失败的事务组此时客户端已经超时，同样移除
+     */
+    private void expire() {
+        final long expireBefore = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(config.getExpireSeconds());
+        groups.values().forEach(group -> {
+            if (group.getLastAccess() < expireBefore) {
+                group.lock();
+                try {
+                    if (group.getPending() == 0) {
+                        evict(group);
+                    }
+                } finally {
+                    group.unlock();
+                }
+            }
+        });
+    }
+
+    /**
+     * 缓存的大小、命中率和持久化情况
+     */
+    public static final class CacheMetrics {
+
+        private final int size;
+
+        private final int pendingWrites;
+
+        private final long hits;
+
+        private final long misses;
+
+        private final long evictions;
+
+        private final long writeFailures;
+
+        private final long writeRetries;
+
+        private CacheMetrics(int size, int pendingWrites, long hits, long misses, long evictions, long writeFailures,
+                             long writeRetries) {
+            this.size = size;
+            this.pendingWrites = pendingWrites;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.writeFailures = writeFailures;
+            this.writeRetries = writeRetries;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getPendingWrites() {
+            return pendingWrites;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return 命中率 0~1
+         */
+        public double getHitRate() {
+            final long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getWriteFailures() {
+            return writeFailures;
+        }
+
+        public long getWriteRetries() {
+            return writeRetries;
+        }
+    }
+}
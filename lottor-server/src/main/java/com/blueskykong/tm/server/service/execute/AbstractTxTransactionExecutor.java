@@ -4,10 +4,10 @@ import com.blueskykong.tm.common.enums.TransactionStatusEnum;
 import com.blueskykong.tm.common.holder.LogUtil;
 import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
 import com.blueskykong.tm.server.config.Address;
+import com.blueskykong.tm.server.config.ExecutorMessageTool;
 import com.blueskykong.tm.server.service.TxManagerService;
 import com.blueskykong.tm.server.service.TxTransactionExecutor;
 import com.blueskykong.tm.server.socket.SocketManager;
-import io.netty.channel.Channel;
 import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -112,10 +112,12 @@ public abstract class AbstractTxTransactionExecutor implements TxTransactionExec
 
     private Boolean checkChannel(List<TxTransactionItem> txTransactionItems) {
         if (CollectionUtils.isNotEmpty(txTransactionItems)) {
-            final List<TxTransactionItem> collect = txTransactionItems.stream().filter(item -> {
-                Channel channel = SocketManager.getInstance().getChannelByModelName(item.getModelName());
-                return Objects.nonNull(channel) && (channel.isActive() || item.getStatus() != TransactionStatusEnum.ROLLBACK.getCode());
-            }).collect(Collectors.toList());
+            //与发送指令使用同样的路由：所属实例的连接，所属实例未知时为模块的连接
+            final List<TxTransactionItem> collect = txTransactionItems.stream().filter(item ->
+                    !ExecutorMessageTool.route(item).isEmpty()
+                            || (item.getStatus() != TransactionStatusEnum.ROLLBACK.getCode()
+                            && !SocketManager.getInstance().getRegistry().channelsOf(item.getModelName()).isEmpty()))
+                    .collect(Collectors.toList());
             return txTransactionItems.size() == collect.size();
         }
         return true;
@@ -2,9 +2,7 @@ package com.blueskykong.tm.server.service.execute;
 
 import com.blueskykong.tm.common.enums.TransactionStatusEnum;
 import com.blueskykong.tm.common.holder.LogUtil;
-import com.blueskykong.tm.common.netty.bean.LottorRequest;
 import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
-import com.blueskykong.tm.server.config.ChannelSender;
 import com.blueskykong.tm.server.config.ExecutorMessageTool;
 import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
@@ -12,7 +10,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
-import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 
 
@@ -49,12 +46,7 @@ public class HttpTransactionExecutor {
                     .stream()
                     .map(item ->
                             CompletableFuture.runAsync(() -> {
-                                ChannelSender channelSender = new ChannelSender();
-                                final LottorRequest lottorRequest = ExecutorMessageTool.buildMessage(item,
-                                        channelSender, transactionStatusEnum);
-                                if (Objects.nonNull(channelSender.getChannel())) {
-                                    channelSender.getChannel().writeAndFlush(lottorRequest);
-                                } else {
+                                if (ExecutorMessageTool.send(item, transactionStatusEnum) == 0) {
                                     LOGGER.error("txMange {},指令失败，channel为空，事务组id：{}, 事务taskId为:{}",
                                             transactionStatusEnum.getDesc(), item.getTxGroupId(), item.getTaskKey());
                                 }
@@ -3,9 +3,7 @@ package com.blueskykong.tm.server.service.execute;
 import com.blueskykong.tm.common.enums.TransactionStatusEnum;
 import com.blueskykong.tm.common.holder.LogUtil;
 import com.blueskykong.tm.common.holder.httpclient.OkHttpTools;
-import com.blueskykong.tm.common.netty.bean.LottorRequest;
 import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
-import com.blueskykong.tm.server.config.ChannelSender;
 import com.blueskykong.tm.server.config.Constant;
 import com.blueskykong.tm.server.config.ExecutorMessageTool;
 import com.blueskykong.tm.server.service.TxManagerService;
@@ -19,7 +17,6 @@ import org.springframework.stereotype.Component;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
@@ -56,12 +53,7 @@ public class TxTransactionExecutorService extends AbstractTxTransactionExecutor
                         .stream()
                         .map(item ->
                                 CompletableFuture.runAsync(() -> {
-                                    ChannelSender channelSender = new ChannelSender();
-                                    LottorRequest lottorRequest = ExecutorMessageTool.buildMessage(item, channelSender,
-                                            TransactionStatusEnum.ROLLBACK);
-                                    if (Objects.nonNull(channelSender.getChannel())) {
-                                        channelSender.getChannel().writeAndFlush(lottorRequest);
-                                    } else {
+                                    if (ExecutorMessageTool.send(item, TransactionStatusEnum.ROLLBACK) == 0) {
                                         LOGGER.error("txManger rollback指令失败，channel为空，事务组id：{}, 事务taskId为:{}",
                                                 txGroupId, item.getTaskKey());
                                     }
@@ -92,10 +84,7 @@ public class TxTransactionExecutorService extends AbstractTxTransactionExecutor
     protected void doCommit(String txGroupId, List<TxTransactionItem> txTransactionItems, List<TxTransactionItem> elseItems) {
         try {
             txTransactionItems.forEach(item -> {
-                ChannelSender sender = new ChannelSender();
-                LottorRequest lottorRequest = ExecutorMessageTool.buildMessage(item, sender, TransactionStatusEnum.COMMIT);
-                if (Objects.nonNull(sender.getChannel())) {
-                    sender.getChannel().writeAndFlush(lottorRequest);
+                if (ExecutorMessageTool.send(item, TransactionStatusEnum.COMMIT) > 0) {
                     LogUtil.info(LOGGER, "txManger 成功发送doCommit指令 事务taskId为：{}", item::getTaskKey);
                 } else {
                     LOGGER.error("txManger 发送doCommit指令失败，channel为空，事务组id：{}, 事务taskId为:{}", txGroupId, item.getTaskKey());
@@ -0,0 +1,311 @@
+package com.blueskykong.tm.server.service.impl;
+
+import com.blueskykong.tm.common.concurrent.threadpool.TxTransactionThreadFactory;
+import com.blueskykong.tm.common.entity.TransactionMsg;
+import com.blueskykong.tm.common.entity.TransactionMsgAdapter;
+import com.blueskykong.tm.common.enums.ConsumedStatus;
+import com.blueskykong.tm.common.enums.TransactionStatusEnum;
+import com.blueskykong.tm.common.holder.DateUtils;
+import com.blueskykong.tm.common.holder.LogUtil;
+import com.blueskykong.tm.common.netty.bean.TxTransactionGroup;
+import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
+import com.blueskykong.tm.server.entity.CollectionNameEnum;
+import com.blueskykong.tm.server.entity.TxTransactionItemAdapter;
+import com.blueskykong.tm.server.service.AsyncTxManagerService;
+import com.blueskykong.tm.server.service.OutputFactoryService;
+import com.blueskykong.tm.server.service.TxManagerService;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObjectCodecProvider;
+import com.mongodb.async.SingleResultCallback;
+import com.mongodb.async.client.MongoClient;
+import com.mongodb.async.client.MongoClients;
+import com.mongodb.async.client.MongoCollection;
+import com.mongodb.async.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.UpdateResult;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.sql.Timestamp;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * 基于异步Mongo驱动的 TxManagerService，tx.manager.mongo.driver=async 时启用
+ * <pre>
+ * netty请求通过 AsyncTxManagerService 的方法发起，回调完成时回复客户端，不再占用业务线程等待Mongo
+ * 其余调用方（补偿任务、管理接口）使用阻塞方法，在future上等待
+ * 实体与文档之间的转换使用与 MongoTemplate 相同的 MongoConverter，两种实现读写的文档格式一致
+ * 发送事务消息会阻塞，在单独的线程池中执行，不占用驱动的回调线程
+ * </pre>
+ */
+@SuppressWarnings("unchecked")
+public class AsyncMongoTxManagerServiceImpl implements TxManagerService, AsyncTxManagerService, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncMongoTxManagerServiceImpl.class);
+
+    private final MongoCollection<BasicDBObject> itemCollection;
+
+    private final MongoCollection<BasicDBObject> msgCollection;
+
+    private final MongoConverter mongoConverter;
+
+    private final OutputFactoryService outputFactoryService;
+
+    private final ExecutorService msgExecutor;
+
+    public AsyncMongoTxManagerServiceImpl(MongoClient mongoClient, String databaseName,
+                                          MongoConverter mongoConverter, OutputFactoryService outputFactoryService) {
+        final MongoDatabase database = mongoClient.getDatabase(databaseName)
+                .withCodecRegistry(CodecRegistries.fromRegistries(MongoClients.getDefaultCodecRegistry(),
+                        CodecRegistries.fromProviders(new DBObjectCodecProvider())));
+        this.itemCollection = database.getCollection(CollectionNameEnum.TxTransactionItem.name(), BasicDBObject.class);
+        this.msgCollection = database.getCollection(CollectionNameEnum.TransactionMsg.name(), BasicDBObject.class);
+        this.mongoConverter = mongoConverter;
+        this.outputFactoryService = outputFactoryService;
+        this.msgExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                TxTransactionThreadFactory.create("TxManagerMsgSender", true));
+    }
+
+    @Override
+    public void destroy() {
+        msgExecutor.shutdown();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveTxTransactionGroupAsync(TxTransactionGroup txTransactionGroup) {
+        final TxTransactionItem item = txTransactionGroup.getItem();
+        if (Objects.isNull(item)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        item.setTxGroupId(txTransactionGroup.getId());
+        return insert(itemCollection, item)
+                .exceptionally(e -> {
+                    LogUtil.error(LOGGER, "failed to save TxTransactionGroup, groupId is {} and cause is {}",
+                            txTransactionGroup::getId, e::getLocalizedMessage);
+                    return false;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addTxTransactionAsync(String txGroupId, TxTransactionItem txTransactionItem) {
+        txTransactionItem.setTxGroupId(txGroupId);
+        return insert(itemCollection, txTransactionItem).exceptionally(e -> false);
+    }
+
+    @Override
+    public CompletableFuture<List<TxTransactionItem>> listByTxGroupIdAsync(String txGroupId) {
+        return find(itemCollection, Filters.eq("txGroupId", txGroupId), TxTransactionItem.class);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> updateTxTransactionItemStatusAsync(String key, String hashKey, int status, Object message) {
+        final Bson filter = Filters.eq("txGroupId", key);
+        final CompletableFuture<BasicDBObject> found = new CompletableFuture<>();
+        itemCollection.find(filter).projection(Projections.include("createDate", "msgs")).first(callback(found));
+        return found.thenCompose(document -> {
+            if (Objects.isNull(document)) {
+                return CompletableFuture.completedFuture(false);
+            }
+            final TxTransactionItem item = mongoConverter.read(TxTransactionItem.class, document);
+            final CompletableFuture<Boolean> sent = status == TransactionStatusEnum.COMMIT.getCode()
+                    ? sendTxTransactionMsg(key, item.getMsgs()) : CompletableFuture.completedFuture(true);
+            return sent.thenCompose(success -> success
+                    ? updateFirst(itemCollection, filter, itemStatusUpdate(item, status, message))
+                    : CompletableFuture.completedFuture(false));
+        }).exceptionally(e -> {
+            LogUtil.error(LOGGER, "failed to send msgs and  groupId is {}, cause is {}", () -> key, e::getMessage);
+            return false;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> updateTxTransactionMsgStatusAsync(TransactionMsg transactionMsg) {
+        final Bson filter = Filters.and(Filters.eq("groupId", transactionMsg.getGroupId()),
+                Filters.eq("subTaskId", transactionMsg.getSubTaskId()));
+        Bson update = Updates.set("consumed", transactionMsg.getConsumed());
+        String message = transactionMsg.getMessage();
+        if (StringUtils.isNotBlank(message)) {
+            update = Updates.combine(update, Updates.set("message", message));
+        }
+        return updateFirst(msgCollection, filter, update)
+                .exceptionally(e -> {
+                    LogUtil.error(LOGGER, e::getLocalizedMessage);
+                    return false;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Integer> findTxTransactionGroupStatusAsync(String txGroupId) {
+        final CompletableFuture<BasicDBObject> found = new CompletableFuture<>();
+        itemCollection.find(Filters.eq("txGroupId", txGroupId)).first(callback(found));
+        return found.thenApply(document -> Objects.isNull(document)
+                ? TransactionStatusEnum.ROLLBACK.getCode()
+                : mongoConverter.read(TxTransactionItemAdapter.class, document).getStatus());
+    }
+
+    @Override
+    public Boolean saveTxTransactionGroup(TxTransactionGroup txTransactionGroup) {
+        return saveTxTransactionGroupAsync(txTransactionGroup).join();
+    }
+
+    @Override
+    public Boolean addTxTransaction(String txGroupId, TxTransactionItem txTransactionItem) {
+        return addTxTransactionAsync(txGroupId, txTransactionItem).join();
+    }
+
+    @Override
+    public List<TxTransactionItem> listByTxGroupId(String txGroupId) {
+        return listByTxGroupIdAsync(txGroupId).join();
+    }
+
+    @Override
+    public void removeItemsByTxGroupId(String txGroupId) {
+        final CompletableFuture<Object> removed = new CompletableFuture<>();
+        itemCollection.deleteMany(Filters.eq("txGroupId", txGroupId), callback(removed));
+        removed.join();
+    }
+
+    @Override
+    public Boolean updateTxTransactionItemStatus(String key, String hashKey, int status, Object message) {
+        return updateTxTransactionItemStatusAsync(key, hashKey, status, message).join();
+    }
+
+    @Override
+    public Boolean updateTxTransactionMsgStatus(TransactionMsg transactionMsg) {
+        return updateTxTransactionMsgStatusAsync(transactionMsg).join();
+    }
+
+    @Override
+    public int findTxTransactionGroupStatus(String txGroupId) {
+        return findTxTransactionGroupStatusAsync(txGroupId).join();
+    }
+
+    @Override
+    public Boolean removeCommitTxGroup() {
+        return true;
+    }
+
+    @Override
+    public List<TxTransactionItem> listTxItemByDelay(Long delay) {
+        Timestamp ddl = new Timestamp(System.currentTimeMillis() - delay * 60 * 1000);
+        DateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        final Bson filter = Filters.and(Filters.lte("createDate", sdf.format(ddl)),
+                Filters.eq("status", TransactionStatusEnum.PRE_COMMIT.getCode()));
+        return find(itemCollection, filter, TxTransactionItem.class).join();
+    }
+
+    @Override
+    public List<TransactionMsgAdapter> listTxMsgByDelay(Long delay) {
+        final long ddl = System.currentTimeMillis() - delay * 60 * 1000;
+        final Bson filter = Filters.and(Filters.lte("createTime", ddl),
+                Filters.eq("consumed", ConsumedStatus.UNCONSUMED.getStatus()));
+        return find(msgCollection, filter, TransactionMsgAdapter.class).join();
+    }
+
+    @Override
+    public Boolean removeRollBackTxGroup() {
+        return true;
+    }
+
+    private Bson itemStatusUpdate(TxTransactionItem item, int status, Object message) {
+        final List<Bson> updates = new ArrayList<>();
+        updates.add(Updates.set("status", status));
+        if (Objects.nonNull(message)) {
+            updates.add(Updates.set("message", mongoConverter.convertToMongoType(message)));
+        }
+        //计算耗时
+        try {
+            final LocalDateTime createDateTime = DateUtils.parseLocalDateTime(item.getCreateDate());
+            updates.add(Updates.set("consumeTime", DateUtils.getSecondsBetween(createDateTime, LocalDateTime.now())));
+        } catch (ParseException e) {
+            e.printStackTrace();
+        }
+        return Updates.combine(updates);
+    }
+
+    /**
+     * 在msgExecutor中发送消息，全部发送后一次写入TransactionMsg
+     */
+    private CompletableFuture<Boolean> sendTxTransactionMsg(String groupId, List<TransactionMsgAdapter> msgs) {
+        if (CollectionUtils.isEmpty(msgs)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            final List<BasicDBObject> documents = new ArrayList<>(msgs.size());
+            for (TransactionMsgAdapter msg : msgs) {
+                if (msg != null) {
+                    msg.setGroupId(groupId);
+                    outputFactoryService.sendMsg(msg);
+                    documents.add(toDocument(msg));
+                    LogUtil.debug(LOGGER, () -> "success send msg");
+                }
+            }
+            return documents;
+        }, msgExecutor).thenCompose(documents -> {
+            final CompletableFuture<Void> inserted = new CompletableFuture<>();
+            if (documents.isEmpty()) {
+                inserted.complete(null);
+            } else {
+                msgCollection.insertMany(documents, callback(inserted));
+            }
+            return inserted.thenApply(v -> true);
+        }).exceptionally(e -> {
+            LogUtil.error(LOGGER, "send msgs failure and groupId id {}", () -> groupId);
+            return false;
+        });
+    }
+
+    private CompletableFuture<Boolean> insert(MongoCollection<BasicDBObject> collection, Object entity) {
+        final CompletableFuture<Void> inserted = new CompletableFuture<>();
+        collection.insertOne(toDocument(entity), callback(inserted));
+        return inserted.thenApply(v -> true);
+    }
+
+    private CompletableFuture<Boolean> updateFirst(MongoCollection<BasicDBObject> collection, Bson filter, Bson update) {
+        final CompletableFuture<UpdateResult> updated = new CompletableFuture<>();
+        collection.updateOne(filter, update, callback(updated));
+        return updated.thenApply(result -> result.getMatchedCount() > 0);
+    }
+
+    private <T> CompletableFuture<List<T>> find(MongoCollection<BasicDBObject> collection, Bson filter, Class<T> type) {
+        final CompletableFuture<List<BasicDBObject>> found = new CompletableFuture<>();
+        collection.find(filter).into(new ArrayList<>(), callback(found));
+        return found.thenApply(documents -> documents.stream()
+                .map(document -> mongoConverter.read(type, document))
+                .collect(Collectors.toList()));
+    }
+
+    private BasicDBObject toDocument(Object entity) {
+        final BasicDBObject document = new BasicDBObject();
+        mongoConverter.write(entity, document);
+        return document;
+    }
+
+    private static <T> SingleResultCallback<T> callback(CompletableFuture<? super T> future) {
+        return (result, t) -> {
+            if (Objects.nonNull(t)) {
+                future.completeExceptionally(t);
+            } else {
+                future.complete(result);
+            }
+        };
+    }
+}
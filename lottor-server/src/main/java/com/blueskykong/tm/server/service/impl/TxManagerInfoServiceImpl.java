@@ -6,6 +6,7 @@ import com.blueskykong.tm.common.entity.TxManagerServiceDTO;
 import com.blueskykong.tm.common.enums.ServiceNameEnum;
 import com.blueskykong.tm.common.holder.LogUtil;
 import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
+import com.blueskykong.tm.common.serializer.KryoRegistry;
 import com.blueskykong.tm.server.config.NettyConfig;
 import com.blueskykong.tm.server.discovery.DiscoveryService;
 import com.blueskykong.tm.server.entity.CollectionNameEnum;
@@ -104,6 +105,20 @@ public class TxManagerInfoServiceImpl implements TxManagerInfoService {
         return null;
     }
 
+    /**
+     * 当前TxManager的netty服务地址，客户端据此连接集群中的每一个TxManager
+     *
+     * @return TxManagerServer
+     */
+    @Override
+    public TxManagerServer findLocalServer() {
+        TxManagerServer txManagerServer = new TxManagerServer();
+        txManagerServer.setHost(localHost);
+        txManagerServer.setPort(nettyConfig.getPort());
+        txManagerServer.setKryoRegistration(KryoRegistry.fingerprint());
+        return txManagerServer;
+    }
+
     /**
      * 服务端信息
      *
@@ -9,17 +9,21 @@ import com.blueskykong.tm.common.holder.DateUtils;
 import com.blueskykong.tm.common.holder.LogUtil;
 import com.blueskykong.tm.common.netty.bean.TxTransactionGroup;
 import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
+import com.blueskykong.tm.server.config.MongoBatchConfig;
 import com.blueskykong.tm.server.entity.CollectionNameEnum;
 import com.blueskykong.tm.server.entity.TxTransactionItemAdapter;
 import com.blueskykong.tm.server.service.OutputFactoryService;
 import com.blueskykong.tm.server.service.TxManagerService;
+import com.blueskykong.tm.server.service.batch.MongoWriteBatcher;
 import com.mongodb.WriteResult;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
@@ -34,10 +38,14 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Component
+@ConditionalOnProperty(prefix = "tx.manager.mongo", name = "driver", havingValue = "sync", matchIfMissing = true)
 @SuppressWarnings("unchecked")
-public class TxManagerServiceImpl implements TxManagerService {
+public class TxManagerServiceImpl implements TxManagerService, DisposableBean {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TxManagerServiceImpl.class);
 
@@ -45,11 +53,39 @@ public class TxManagerServiceImpl implements TxManagerService {
 
     private final OutputFactoryService outputFactoryService;
 
+    /**
+     * 未开启写操作合并时为null
+     */
+    private final MongoWriteBatcher writeBatcher;
+
+    /**
+     * 等待合并写入结果的最长时间 单位：ms
+     */
+    private final long waitTimeout;
+
     @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
     @Autowired(required = false)
-    public TxManagerServiceImpl(MongoTemplate mongoTemplate, OutputFactoryService outputFactoryService) {
+    public TxManagerServiceImpl(MongoTemplate mongoTemplate, OutputFactoryService outputFactoryService,
+                                MongoBatchConfig mongoBatchConfig) {
         this.mongoTemplate = mongoTemplate;
         this.outputFactoryService = outputFactoryService;
+        this.writeBatcher = Objects.nonNull(mongoBatchConfig) && mongoBatchConfig.getBatchLinger() > 0
+                ? new MongoWriteBatcher(mongoTemplate, mongoBatchConfig) : null;
+        this.waitTimeout = Objects.nonNull(mongoBatchConfig) ? mongoBatchConfig.getWaitTimeout() : 0;
+    }
+
+    public MongoWriteBatcher getWriteBatcher() {
+        return writeBatcher;
+    }
+
+    /**
+     * 关闭时写完合并队列中剩余的操作
+     */
+    @Override
+    public void destroy() {
+        if (Objects.nonNull(writeBatcher)) {
+            writeBatcher.close();
+        }
     }
 
     /**
@@ -66,7 +102,7 @@ public class TxManagerServiceImpl implements TxManagerService {
             final TxTransactionItem item = txTransactionGroup.getItem();
             if (Objects.nonNull(item)) {
                 item.setTxGroupId(groupId);
-                mongoTemplate.insert(item, CollectionNameEnum.TxTransactionItem.name());
+                return insert(item, CollectionNameEnum.TxTransactionItem.name());
             }
         } catch (Exception e) {
             LogUtil.error(LOGGER, "failed to save TxTransactionGroup, groupId is {} and cause is {}",
@@ -113,8 +149,7 @@ public class TxManagerServiceImpl implements TxManagerService {
                 } catch (ParseException e) {
                     e.printStackTrace();
                 }
-                final WriteResult writeResult = mongoTemplate.updateFirst(query, update, TxTransactionItem.class, CollectionNameEnum.TxTransactionItem.name());
-                return writeResult.getN() > 0;
+                return updateFirst(query, update, TxTransactionItem.class, CollectionNameEnum.TxTransactionItem.name());
             }
         } catch (Exception e) {
             LogUtil.error(LOGGER, "failed to send msgs and  groupId is {}, cause is {}", () -> key, e::getMessage);
@@ -127,14 +162,16 @@ public class TxManagerServiceImpl implements TxManagerService {
         try {
             if (CollectionUtils.isNotEmpty(msgs)) {
 
-                msgs.forEach(msg -> {
+                for (TransactionMsgAdapter msg : msgs) {
                     if (msg != null) {
                         msg.setGroupId(groupId);
                         outputFactoryService.sendMsg(msg);
-                        mongoTemplate.insert(msg, CollectionNameEnum.TransactionMsg.name());
+                        if (!insert(msg, CollectionNameEnum.TransactionMsg.name())) {
+                            return false;
+                        }
                         LogUtil.debug(LOGGER, () -> "success send msg");
                     }
-                });
+                }
             }
         } catch (Exception e) {
             LogUtil.error(LOGGER, "send msgs failure and groupId id {}", () -> groupId);
@@ -159,8 +196,7 @@ public class TxManagerServiceImpl implements TxManagerService {
             if (StringUtils.isNotBlank(message)) {
                 update.set("message", message);
             }
-            final WriteResult writeResult = mongoTemplate.updateFirst(query, update, TransactionMsg.class, CollectionNameEnum.TransactionMsg.name());
-            return writeResult.getN() > 0;
+            return updateFirst(query, update, TransactionMsg.class, CollectionNameEnum.TransactionMsg.name());
         } catch (Exception e) {
             //TODO 处理异常
             LogUtil.error(LOGGER, e::getLocalizedMessage);
@@ -180,13 +216,52 @@ public class TxManagerServiceImpl implements TxManagerService {
         try {
 //            redisTemplate.opsForHash().put(cacheKey(txGroupId), txTransactionItem.getTaskKey(), txTransactionItem);
             txTransactionItem.setTxGroupId(txGroupId);
-            mongoTemplate.insert(txTransactionItem, CollectionNameEnum.TxTransactionItem.name());
+            return insert(txTransactionItem, CollectionNameEnum.TxTransactionItem.name());
         } catch (Exception e) {
             return false;
         }
+    }
+
+    /**
+     * 开启合并时提交给writeBatcher并等待所在批次写入，队列已满时直接写入
+     */
+    private boolean insert(Object document, String collectionName) throws Exception {
+        if (Objects.nonNull(writeBatcher)) {
+            final CompletableFuture<Boolean> future = writeBatcher.insert(collectionName, document);
+            if (Objects.nonNull(future)) {
+                return await(future, collectionName);
+            }
+        }
+        mongoTemplate.insert(document, collectionName);
         return true;
     }
 
+    /**
+     * 与直接写入一致，没有匹配到文档时返回false
+     */
+    private boolean updateFirst(Query query, Update update, Class<?> entityClass, String collectionName) throws Exception {
+        if (Objects.nonNull(writeBatcher)) {
+            final CompletableFuture<Boolean> future = writeBatcher.updateOne(collectionName, entityClass, query, update);
+            if (Objects.nonNull(future)) {
+                return await(future, collectionName);
+            }
+        }
+        final WriteResult writeResult = mongoTemplate.updateFirst(query, update, entityClass, collectionName);
+        return writeResult.getN() > 0;
+    }
+
+    /**
+     * 超时按失败处理，操作可能在之后写入，由客户端的补偿处理
+     */
+    private boolean await(CompletableFuture<Boolean> future, String collectionName) throws Exception {
+        try {
+            return future.get(waitTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LogUtil.error(LOGGER, "wait for batched write to {} timeout after {}ms", () -> collectionName, () -> waitTimeout);
+            return false;
+        }
+    }
+
     /**
      * 根据事务组id 获取所有的子项目
      *
@@ -218,6 +293,10 @@ public class TxManagerServiceImpl implements TxManagerService {
             Query query = new Query();
             query.addCriteria(new Criteria("txGroupId").is(txGroupId));
             TxTransactionItemAdapter itemAdapter = mongoTemplate.findOne(query, TxTransactionItemAdapter.class, CollectionNameEnum.TxTransactionItem.name());
+            //事务组不存在时与异步实现一致，按回滚处理
+            if (Objects.isNull(itemAdapter)) {
+                return TransactionStatusEnum.ROLLBACK.getCode();
+            }
             return itemAdapter.getStatus();
         } catch (BeansException e) {
             e.printStackTrace();
@@ -0,0 +1,227 @@
+package com.blueskykong.tm.server.socket;
+
+import com.blueskykong.tm.common.enums.ChannelSelectTypeEnum;
+import com.blueskykong.tm.server.entity.ChannelInfo;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelId;
+import io.netty.util.AttributeKey;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 客户端连接的索引
+ * <pre>
+ * 所有连接按ChannelId保存，客户端通过心跳注册后再按模块名（spring.application.name）和实例id索引
+ * 每条连接的客户端信息、模块名、实例id保存在channel的属性中，不需要按地址字符串查找
+ * 连接关闭时自动从所有索引中移除
+ * 同一模块有多个实例或者多条连接时，按照选择策略 roundRobin 或 leastPending（写缓冲中等待发送的数据最少）选择
+ * </pre>
+ */
+public class ClientChannelRegistry {
+
+    private static final AttributeKey<ChannelInfo> INFO = AttributeKey.valueOf("lottor.client.info");
+
+    private static final AttributeKey<String> MODEL = AttributeKey.valueOf("lottor.client.model");
+
+    private static final AttributeKey<String> INSTANCE = AttributeKey.valueOf("lottor.client.instance");
+
+    private static final AttributeKey<Long> WORKER = AttributeKey.valueOf("lottor.client.worker");
+
+    private final ConcurrentMap<ChannelId, Channel> channels = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, ModelChannels> models = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, List<Channel>> instances = new ConcurrentHashMap<>();
+
+    /**
+     * workerId -> 占用的实例id，实例的连接全部关闭后释放
+     */
+    private final ConcurrentMap<Long, String> workers = new ConcurrentHashMap<>();
+
+    private volatile ChannelSelectTypeEnum selectType = ChannelSelectTypeEnum.LEAST_PENDING;
+
+    public void setSelectType(ChannelSelectTypeEnum selectType) {
+        this.selectType = selectType;
+    }
+
+    /**
+     * 连接建立，关闭时自动移除
+     */
+    public void add(Channel channel) {
+        channel.attr(INFO).set(new ChannelInfo(String.valueOf(channel.remoteAddress()),
+                String.valueOf(channel.localAddress())));
+        channels.put(channel.id(), channel);
+        channel.closeFuture().addListener(future -> remove(channel));
+    }
+
+    /**
+     * 心跳注册，按模块名和实例id建立索引
+     *
+     * @return false 已经注册过
+     */
+    public boolean register(Channel channel, String modelName, String instanceId, String serialProtocol) {
+        if (StringUtils.isBlank(modelName) || !channel.attr(MODEL).compareAndSet(null, modelName)) {
+            return false;
+        }
+        final ChannelInfo info = channel.attr(INFO).get();
+        if (Objects.nonNull(info)) {
+            info.setMetaInfo(instanceId);
+            info.setSerialProtocol(serialProtocol);
+        }
+        models.computeIfAbsent(modelName, key -> new ModelChannels()).channels.add(channel);
+        if (StringUtils.isNotBlank(instanceId)) {
+            channel.attr(INSTANCE).set(instanceId);
+            instances.computeIfAbsent(instanceId, key -> new CopyOnWriteArrayList<>()).add(channel);
+        }
+        //注册过程中连接已经关闭，remove可能先于索引执行
+        if (!channel.isActive()) {
+            remove(channel);
+        }
+        return true;
+    }
+
+    /**
+     * 注册前占用客户端id生成器的workerId，同一实例的多条连接共用
+     *
+     * @return false workerId已被另一个在线实例占用
+     */
+    public boolean claimWorker(Channel channel, String instanceId, long workerId) {
+        if (StringUtils.isBlank(instanceId)) {
+            return true;
+        }
+        final String owner = workers.putIfAbsent(workerId, instanceId);
+        if (Objects.nonNull(owner) && !owner.equals(instanceId)) {
+            return false;
+        }
+        channel.attr(WORKER).set(workerId);
+        return true;
+    }
+
+    public boolean isRegistered(Channel channel) {
+        return Objects.nonNull(channel.attr(MODEL).get());
+    }
+
+    public void remove(Channel channel) {
+        channels.remove(channel.id());
+        final String modelName = channel.attr(MODEL).get();
+        if (Objects.nonNull(modelName)) {
+            models.computeIfPresent(modelName, (key, model) -> {
+                model.channels.remove(channel);
+                return model.channels.isEmpty() ? null : model;
+            });
+        }
+        final String instanceId = channel.attr(INSTANCE).get();
+        if (Objects.nonNull(instanceId)) {
+            instances.computeIfPresent(instanceId, (key, list) -> {
+                list.remove(channel);
+                return list.isEmpty() ? null : list;
+            });
+        }
+        final Long workerId = channel.attr(WORKER).get();
+        if (Objects.nonNull(workerId)) {
+            final String owner = workers.get(workerId);
+            if (Objects.nonNull(owner) && !instances.containsKey(owner)) {
+                workers.remove(workerId, owner);
+            }
+        }
+    }
+
+    /**
+     * 按照选择策略选择模块的一条连接，优先选择可写的连接
+     *
+     * @param modelName 模块名
+     * @return 没有可用连接时返回null
+     */
+    public Channel select(String modelName) {
+        final ModelChannels model = Objects.isNull(modelName) ? null : models.get(modelName);
+        return Objects.isNull(model) ? null : model.select(selectType);
+    }
+
+    /**
+     * @return 模块的所有连接
+     */
+    public List<Channel> channelsOf(String modelName) {
+        final ModelChannels model = Objects.isNull(modelName) ? null : models.get(modelName);
+        return Objects.isNull(model) ? Collections.emptyList() : Collections.unmodifiableList(model.channels);
+    }
+
+    /**
+     * @return 实例的所有连接
+     */
+    public List<Channel> channelsOfInstance(String instanceId) {
+        final List<Channel> list = Objects.isNull(instanceId) ? null : instances.get(instanceId);
+        return Objects.isNull(list) ? Collections.emptyList() : Collections.unmodifiableList(list);
+    }
+
+    public Collection<Channel> all() {
+        return Collections.unmodifiableCollection(channels.values());
+    }
+
+    public int size() {
+        return channels.size();
+    }
+
+    public static ChannelInfo infoOf(Channel channel) {
+        return channel.attr(INFO).get();
+    }
+
+    public static String modelOf(Channel channel) {
+        return channel.attr(MODEL).get();
+    }
+
+    /**
+     * @return 心跳注册的实例id，未注册时为null
+     */
+    public static String instanceOf(Channel channel) {
+        return channel.attr(INSTANCE).get();
+    }
+
+    /**
+     * 一个模块的所有连接
+     */
+    private static final class ModelChannels {
+
+        private final List<Channel> channels = new CopyOnWriteArrayList<>();
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        private Channel select(ChannelSelectTypeEnum selectType) {
+            final Object[] snapshot = channels.toArray();
+            final int length = snapshot.length;
+            if (length == 0) {
+                return null;
+            }
+            final int start = (next.getAndIncrement() & Integer.MAX_VALUE) % length;
+            Channel selected = null;
+            Channel fallback = null;
+            long most = -1;
+            for (int i = 0; i < length; i++) {
+                final Channel channel = (Channel) snapshot[(start + i) % length];
+                if (!channel.isActive()) {
+                    continue;
+                }
+                if (!channel.isWritable()) {
+                    fallback = Objects.isNull(fallback) ? channel : fallback;
+                    continue;
+                }
+                if (selectType == ChannelSelectTypeEnum.ROUND_ROBIN) {
+                    return channel;
+                }
+                final long available = channel.bytesBeforeUnwritable();
+                if (available > most) {
+                    most = available;
+                    selected = channel;
+                }
+            }
+            return Objects.nonNull(selected) ? selected : fallback;
+        }
+    }
+}
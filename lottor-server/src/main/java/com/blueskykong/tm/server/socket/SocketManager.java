@@ -1,82 +1,131 @@
 package com.blueskykong.tm.server.socket;
 
+import com.blueskykong.tm.common.enums.ChannelSelectTypeEnum;
+import com.blueskykong.tm.common.enums.SerializeProtocolEnum;
 import com.blueskykong.tm.server.entity.ChannelInfo;
-import com.google.common.collect.Lists;
+import com.blueskykong.tm.server.netty.handler.CodecNegotiationHandler;
+import com.blueskykong.tm.server.netty.handler.SlowConsumerHandler;
 import io.netty.channel.Channel;
-import lombok.Data;
-import org.apache.commons.collections.CollectionUtils;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
-@Data
+/**
+ * 客户端连接管理，连接的索引和选择见 {@link ClientChannelRegistry}
+ */
 public class SocketManager {
 
     /**
      * 最大连接数
      */
-    private int maxConnection = 50;
+    private volatile int maxConnection = 50;
+
+    private final ClientChannelRegistry registry = new ClientChannelRegistry();
+
+    private static SocketManager manager = new SocketManager();
+
+    private SocketManager() {
+    }
+
+    public static SocketManager getInstance() {
+        return manager;
+    }
+
+    public int getMaxConnection() {
+        return maxConnection;
+    }
 
     public void setMaxConnection(int maxConnection) {
         this.maxConnection = maxConnection;
     }
 
+    public void setSelectType(ChannelSelectTypeEnum selectType) {
+        registry.setSelectType(selectType);
+    }
+
+    public ClientChannelRegistry getRegistry() {
+        return registry;
+    }
+
     /**
      * 当前连接数
      */
-
-    private int nowConnection;
+    public int getNowConnection() {
+        return registry.size();
+    }
 
     /**
      * 允许连接请求 true允许 false拒绝
      */
-    private volatile boolean allowConnection = true;
-
-    private List<Channel> clients = Lists.newCopyOnWriteArrayList();
-
-    private List<ChannelInfo> channelInfos = new ArrayList<>();
-
-    private static SocketManager manager = new SocketManager();
-
-    private SocketManager() {
+    public boolean isAllowConnection() {
+        return maxConnection > registry.size();
     }
 
-    public static SocketManager getInstance() {
-        return manager;
+    /**
+     * 按照选择策略选择模块的一条连接
+     *
+     * @param name 模块名
+     * @return 没有可用连接时返回null
+     */
+    public Channel getChannelByModelName(String name) {
+        return registry.select(name);
     }
 
+    /**
+     * 客户端信息，包含channel当前的写缓冲状态
+     *
+     * @return List<ChannelInfo>
+     */
+    public List<ChannelInfo> getChannelInfos() {
+        return registry.all().stream()
+                .map(channel -> {
+                    final ChannelInfo channelInfo = ClientChannelRegistry.infoOf(channel);
+                    if (Objects.nonNull(channelInfo)) {
+                        SlowConsumerHandler.fill(channelInfo, channel);
+                        CodecNegotiationHandler.fill(channelInfo, channel);
+                    }
+                    return channelInfo;
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 
-    public Channel getChannelByModelName(String name) {
-        if (CollectionUtils.isNotEmpty(clients)) {
-            final Optional<Channel> first = clients.stream().filter(channel ->
-                    Objects.equals(channel.remoteAddress().toString(), name))
-                    .findFirst();
-            return first.orElse(null);
-        }
-        return null;
+    /**
+     * 各序列化方式的连接数
+     *
+     * @return 序列化方式 -> 连接数
+     */
+    public Map<String, Long> getCodecMix() {
+        return registry.all().stream()
+                .map(CodecNegotiationHandler::codecOf)
+                .filter(Objects::nonNull)
+                .collect(Collectors.groupingBy(SerializeProtocolEnum::getSerializeProtocol, TreeMap::new, Collectors.counting()));
     }
 
     public void addClient(Channel client) {
-        channelInfos = channelInfos.stream().filter(channelInfo -> !channelInfo.getClient().trim().equalsIgnoreCase(client.remoteAddress().toString())).collect(Collectors.toList());
-        channelInfos.add(new ChannelInfo(client.remoteAddress().toString(), client.localAddress().toString()));
-        nowConnection = channelInfos.size();
-        allowConnection = (maxConnection >= nowConnection);
+        registry.add(client);
+    }
+
+    /**
+     * 心跳注册客户端的模块名和实例信息
+     *
+     * @return false 已经注册过
+     */
+    public boolean completeClientInfo(Channel client, String modelName, String metaInfo, String serialProtocol) {
+        return registry.register(client, modelName, metaInfo, serialProtocol);
     }
 
-    public void completeClientInfo(Channel client, String metaInfo, String serialProtocol) {
-        channelInfos.stream().filter(channelInfo -> channelInfo.getClient().trim().equalsIgnoreCase(client.remoteAddress().toString()))
-                .forEach(channelInfo -> {
-                    channelInfo.setMetaInfo(metaInfo);
-                    channelInfo.setSerialProtocol(serialProtocol);
-                });
+    /**
+     * @return false 客户端的workerId已被另一个在线实例占用
+     */
+    public boolean claimWorkerId(Channel client, String metaInfo, long workerId) {
+        return registry.claimWorker(client, metaInfo, workerId);
     }
 
     public void removeClient(Channel client) {
-        channelInfos = channelInfos.stream().filter(channelInfo -> !channelInfo.getClient().trim().equalsIgnoreCase(client.remoteAddress().toString())).collect(Collectors.toList());
-        nowConnection = channelInfos.size();
-        allowConnection = (maxConnection >= nowConnection);
+        registry.remove(client);
     }
 }
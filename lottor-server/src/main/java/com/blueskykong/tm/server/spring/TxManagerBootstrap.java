@@ -3,13 +3,14 @@ package com.blueskykong.tm.server.spring;
 import com.blueskykong.tm.server.netty.NettyService;
 import com.blueskykong.tm.server.task.TxSyncTask;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.stereotype.Component;
 
 @Component
-public class TxManagerBootstrap implements ApplicationContextAware {
+public class TxManagerBootstrap implements ApplicationContextAware, DisposableBean {
 
 
     private final NettyService nettyService;
@@ -31,4 +32,12 @@ public class TxManagerBootstrap implements ApplicationContextAware {
             e.printStackTrace();
         }
     }
+
+    /**
+     * 先于TxManagerService关闭，业务线程池中的请求处理完后再写出合并队列中剩余的操作
+     */
+    @Override
+    public void destroy() {
+        nettyService.stop();
+    }
 }
@@ -14,15 +14,14 @@ import com.blueskykong.tm.server.entity.CollectionNameEnum;
 import com.blueskykong.tm.server.netty.handler.NettyServerMessageHandler;
 import com.blueskykong.tm.server.service.BaseItemService;
 import com.blueskykong.tm.server.service.TxManagerService;
+import com.blueskykong.tm.server.socket.SocketManager;
 import io.netty.channel.Channel;
-import io.netty.channel.ChannelHandlerContext;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.text.SimpleDateFormat;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
@@ -91,10 +90,8 @@ public class TxSyncTask {
                 String service = txTransactionItem.getModelName();
                 LottorRequest request = new LottorRequest();
                 request.setAction(GET_TRANSACTION_GROUP_STATUS.getCode());
-                List<ChannelHandlerContext> contexts = nettyServerMessageHandler.getCtxByName(service);
-                Assert.notNull(contexts, "no available servers."); //TODO 异常待处理
-                Collections.shuffle(contexts);
-                Channel context = contexts.stream().findAny().get().channel();
+                Channel context = SocketManager.getInstance().getChannelByModelName(service);
+                Assert.notNull(context, "no available servers."); //TODO 异常待处理
                 if (context.isActive()) {
                     request.setKey(txTransactionItem.getTxGroupId());
                     context.writeAndFlush(request);
@@ -119,10 +116,8 @@ public class TxSyncTask {
                 baseItemService.updateItem(new BaseItem(CollectionNameEnum.TransactionMsg.getType(), transactionMsg.getSubTaskId()));
                 LottorRequest request = new LottorRequest();
                 request.setAction(NettyMessageActionEnum.GET_TRANSACTION_MSG_STATUS.getCode());
-                List<ChannelHandlerContext> contexts = nettyServerMessageHandler.getCtxByName(transactionMsg.getTarget());
-                Assert.notNull(contexts, "no available servers.");
-                Collections.shuffle(contexts);
-                Channel context = contexts.stream().findAny().get().channel();
+                Channel context = SocketManager.getInstance().getChannelByModelName(transactionMsg.getTarget());
+                Assert.notNull(context, "no available servers.");
                 if (context.isActive()) {
                     request.setKey(transactionMsg.getGroupId());
                     request.setTransactionMsg(TransactionMsgAdapter.convert(transactionMsg));
@@ -0,0 +1,136 @@
+package com.blueskykong.tm.server.service;
+
+import com.blueskykong.tm.common.enums.TransactionStatusEnum;
+import com.blueskykong.tm.common.holder.DateUtils;
+import com.blueskykong.tm.common.holder.IdWorkerUtils;
+import com.blueskykong.tm.common.netty.bean.TxTransactionGroup;
+import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
+import com.blueskykong.tm.server.service.impl.AsyncMongoTxManagerServiceImpl;
+import com.blueskykong.tm.server.service.impl.TxManagerServiceImpl;
+import com.mongodb.MongoClient;
+import com.mongodb.async.client.MongoClients;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.DefaultMongoTypeMapper;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对本地mongod比较同步和异步两种 TxManagerService 的吞吐和延迟
+ * 每个事务组依次执行 创建事务组、提交、查询状态，与一次完整的事务组生命周期一致
+ * <p>
+ * 参数：host port groups concurrency，默认 localhost 27017 20000 64
+ * 使用单独的 lottor_loadtest 库，开始和结束时删除
+ */
+public class MongoBackendLoadTest {
+
+    private static final String DATABASE = "lottor_loadtest";
+
+    public static void main(String[] args) throws Exception {
+        final String host = args.length > 0 ? args[0] : "localhost";
+        final int port = args.length > 1 ? Integer.parseInt(args[1]) : 27017;
+        final int groups = args.length > 2 ? Integer.parseInt(args[2]) : 20000;
+        final int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+        final MongoClient mongoClient = new MongoClient(host, port);
+        final com.mongodb.async.client.MongoClient asyncClient = MongoClients.create("mongodb://" + host + ":" + port);
+        try {
+            final MongoTemplate mongoTemplate = new MongoTemplate(mongoClient, DATABASE);
+            ((MappingMongoConverter) mongoTemplate.getConverter()).setTypeMapper(new DefaultMongoTypeMapper(null));
+            final TxManagerServiceImpl syncService = new TxManagerServiceImpl(mongoTemplate, msg -> true, null);
+            final AsyncMongoTxManagerServiceImpl asyncService = new AsyncMongoTxManagerServiceImpl(asyncClient, DATABASE,
+                    mongoTemplate.getConverter(), msg -> true);
+
+            mongoClient.dropDatabase(DATABASE);
+            //预热
+            runSync(syncService, groups / 10, concurrency);
+            runAsync(asyncService, groups / 10, concurrency);
+
+            report("sync", runSync(syncService, groups, concurrency), groups);
+            report("async", runAsync(asyncService, groups, concurrency), groups);
+            asyncService.destroy();
+        } finally {
+            mongoClient.dropDatabase(DATABASE);
+            asyncClient.close();
+            mongoClient.close();
+        }
+    }
+
+    /**
+     * 与业务线程池相同，concurrency个线程各自阻塞等待
+     */
+    private static long[] runSync(TxManagerService service, int groups, int concurrency) throws InterruptedException {
+        final long[] latencies = new long[groups];
+        final ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        final long start = System.nanoTime();
+        for (int i = 0; i < groups; i++) {
+            final int index = i;
+            executor.execute(() -> {
+                final long begin = System.nanoTime();
+                final TxTransactionGroup group = newGroup();
+                service.saveTxTransactionGroup(group);
+                service.updateTxTransactionItemStatus(group.getId(), null, TransactionStatusEnum.COMMIT.getCode(), null);
+                service.findTxTransactionGroupStatus(group.getId());
+                latencies[index] = System.nanoTime() - begin;
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        return withElapsed(latencies, System.nanoTime() - start);
+    }
+
+    /**
+     * 由单个线程发起，最多concurrency个事务组同时在执行
+     */
+    private static long[] runAsync(AsyncTxManagerService service, int groups, int concurrency) throws InterruptedException {
+        final long[] latencies = new long[groups];
+        final Semaphore inFlight = new Semaphore(concurrency);
+        final long start = System.nanoTime();
+        for (int i = 0; i < groups; i++) {
+            inFlight.acquire();
+            final int index = i;
+            final long begin = System.nanoTime();
+            final TxTransactionGroup group = newGroup();
+            service.saveTxTransactionGroupAsync(group)
+                    .thenCompose(saved -> service.updateTxTransactionItemStatusAsync(group.getId(), null,
+                            TransactionStatusEnum.COMMIT.getCode(), null))
+                    .thenCompose(updated -> service.findTxTransactionGroupStatusAsync(group.getId()))
+                    .whenComplete((status, throwable) -> {
+                        latencies[index] = System.nanoTime() - begin;
+                        inFlight.release();
+                    });
+        }
+        inFlight.acquire(concurrency);
+        return withElapsed(latencies, System.nanoTime() - start);
+    }
+
+    private static TxTransactionGroup newGroup() {
+        final TxTransactionGroup group = new TxTransactionGroup();
+        group.setId(IdWorkerUtils.getInstance().createGroupId());
+        final TxTransactionItem item = new TxTransactionItem();
+        item.setTaskKey(group.getId());
+        item.setStatus(TransactionStatusEnum.BEGIN.getCode());
+        item.setCreateDate(DateUtils.getCurrentDateTime());
+        group.setItem(item);
+        return group;
+    }
+
+    private static long[] withElapsed(long[] latencies, long elapsed) {
+        final long[] result = Arrays.copyOf(latencies, latencies.length + 1);
+        result[latencies.length] = elapsed;
+        return result;
+    }
+
+    private static void report(String name, long[] result, int groups) {
+        final long elapsed = result[groups];
+        final long[] latencies = Arrays.copyOf(result, groups);
+        Arrays.sort(latencies);
+        System.out.println(String.format("%-6s %10.0f groups/s  p50 %8.2f ms  p99 %8.2f ms  max %8.2f ms",
+                name, groups * 1e9 / elapsed,
+                latencies[groups / 2] / 1e6, latencies[(int) (groups * 0.99)] / 1e6, latencies[groups - 1] / 1e6));
+    }
+}
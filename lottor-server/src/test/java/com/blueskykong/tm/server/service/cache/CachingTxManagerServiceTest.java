@@ -0,0 +1,148 @@
+package com.blueskykong.tm.server.service.cache;
+
+import com.blueskykong.tm.common.entity.TransactionMsg;
+import com.blueskykong.tm.common.entity.TransactionMsgAdapter;
+import com.blueskykong.tm.common.enums.TransactionStatusEnum;
+import com.blueskykong.tm.common.holder.IdWorkerUtils;
+import com.blueskykong.tm.common.netty.bean.TxTransactionGroup;
+import com.blueskykong.tm.common.netty.bean.TxTransactionItem;
+import com.blueskykong.tm.server.config.ActiveGroupCacheConfig;
+import com.blueskykong.tm.server.service.TxManagerService;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 保存事务组失败时内存中不能留下Mongo里不存在的事务组
+ * 1. 待持久化的写操作过多，调用方等待保存结果，保存失败
+ * 2. 异步保存，重试后仍然失败
+ * 两种情况之后的查询和写请求都交给Mongo（这里是总是失败的delegate）回答
+ */
+public class CachingTxManagerServiceTest {
+
+    public static void main(String[] args) throws Exception {
+        failedSave("waited", 0);
+        failedSave("behind", 10000);
+        System.out.println("failed group saves are evicted");
+    }
+
+    private static void failedSave(String name, int maxPendingWrites) throws Exception {
+        final ActiveGroupCacheConfig config = new ActiveGroupCacheConfig();
+        config.setMaxPendingWrites(maxPendingWrites);
+        config.setWriteRetries(1);
+        config.setRetryInterval(1);
+        final FailingTxManagerService delegate = new FailingTxManagerService();
+        final CachingTxManagerService service = new CachingTxManagerService(delegate, config);
+        try {
+            final String groupId = IdWorkerUtils.getInstance().createGroupId();
+            final Boolean saved = service.saveTxTransactionGroup(group(groupId));
+            check(saved == (maxPendingWrites > 0), name + ": save returned " + saved);
+            awaitWrites(service);
+
+            check(service.getMetrics().getSize() == 0, name + ": failed group is still cached");
+            check(service.findTxTransactionGroupStatus(groupId) == TransactionStatusEnum.ROLLBACK.getCode(),
+                    name + ": status answered from memory");
+            check(service.listByTxGroupId(groupId).isEmpty(), name + ": items answered from memory");
+            check(!service.addTxTransaction(groupId, item(groupId)), name + ": add accepted for an unsaved group");
+            check(delegate.reads == 3, name + ": " + delegate.reads + " requests reached the delegate, expected 3");
+            System.out.printf("%s: evicted after %d failed writes%n", name, service.getMetrics().getWriteFailures());
+        } finally {
+            service.destroy();
+        }
+    }
+
+    private static void awaitWrites(CachingTxManagerService service) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.getMetrics().getPendingWrites() > 0) {
+            check(System.nanoTime() < deadline, "pending writes did not finish");
+            Thread.sleep(5);
+        }
+    }
+
+    private static TxTransactionGroup group(String groupId) {
+        final TxTransactionGroup group = new TxTransactionGroup();
+        group.setId(groupId);
+        group.setItem(item(groupId));
+        return group;
+    }
+
+    private static TxTransactionItem item(String groupId) {
+        final TxTransactionItem item = new TxTransactionItem();
+        item.setTaskKey(IdWorkerUtils.getInstance().createTaskKey());
+        item.setTxGroupId(groupId);
+        item.setStatus(TransactionStatusEnum.PRE_COMMIT.getCode());
+        return item;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    /**
+     * Mongo不可用：写操作都失败，查不到事务组
+     */
+    private static final class FailingTxManagerService implements TxManagerService {
+
+        private volatile int reads;
+
+        @Override
+        public Boolean saveTxTransactionGroup(TxTransactionGroup txTransactionGroup) {
+            return false;
+        }
+
+        @Override
+        public Boolean addTxTransaction(String txGroupId, TxTransactionItem txTransactionItem) {
+            reads++;
+            return false;
+        }
+
+        @Override
+        public List<TxTransactionItem> listByTxGroupId(String txGroupId) {
+            reads++;
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void removeItemsByTxGroupId(String txGroupId) {
+        }
+
+        @Override
+        public Boolean updateTxTransactionItemStatus(String key, String hashKey, int status, Object message) {
+            return false;
+        }
+
+        @Override
+        public Boolean updateTxTransactionMsgStatus(TransactionMsg transactionMsg) {
+            return false;
+        }
+
+        @Override
+        public int findTxTransactionGroupStatus(String txGroupId) {
+            reads++;
+            return TransactionStatusEnum.ROLLBACK.getCode();
+        }
+
+        @Override
+        public Boolean removeCommitTxGroup() {
+            return false;
+        }
+
+        @Override
+        public List<TxTransactionItem> listTxItemByDelay(Long delay) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<TransactionMsgAdapter> listTxMsgByDelay(Long delay) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Boolean removeRollBackTxGroup() {
+            return false;
+        }
+    }
+}
@@ -7,6 +7,8 @@ import com.blueskykong.tm.core.service.AspectTransactionService;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.concurrent.CompletionStage;
+
 public class SpringCloudTxTransactionInterceptor implements TxTransactionInterceptor {
 
     private final AspectTransactionService aspectTransactionService;
@@ -25,4 +27,12 @@ public class SpringCloudTxTransactionInterceptor implements TxTransactionInterce
         return aspectTransactionService.invoke(groupId, pjp, operationEnum);
     }
 
+    @Override
+    public CompletionStage<Object> interceptorAsync(Object[] pjp, OperationEnum operationEnum) {
+
+        String groupId = TxTransactionLocal.getInstance().getTxGroupId();
+
+        return aspectTransactionService.invokeAsync(groupId, pjp, operationEnum);
+    }
+
 }